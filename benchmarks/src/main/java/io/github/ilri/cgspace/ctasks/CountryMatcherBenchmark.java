@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.ctasks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Country name matching throughput for a realistic mix of metadata values.
+ *
+ * <p>The values are drawn from a fixed number of distinct strings, most of which are exact or
+ * slightly misspelled country names and some of which are regions or other values that don't match
+ * any country, with a skewed distribution like in a real repository where a handful of countries
+ * account for most items.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CountryMatcherBenchmark {
+    private static final String[] COUNTRIES = {
+        "Kenya", "Ethiopia", "Uganda", "Tanzania", "India", "Viet Nam", "Nigeria", "Côte d'Ivoire",
+        "Bangladesh", "Burkina Faso", "Mali", "Niger", "Ghana", "Malawi", "Mozambique", "Zambia",
+        "Zimbabwe", "Rwanda", "Nepal", "Laos", "Cambodia", "Philippines", "Indonesia", "Peru",
+        "Colombia", "Bolivia", "Congo, Democratic Republic of", "Korea, DPR", "Russia", "Türkiye"
+    };
+
+    private static final String[] NOT_COUNTRIES = {
+        "East Africa", "West Africa", "Sub-Saharan Africa", "South Asia", "Global", "Africa",
+        "Latin America", "Southeast Asia", "Sahel", "Horn of Africa"
+    };
+
+    /** Number of distinct raw values in the metadata. */
+    @Param({"100", "5000"})
+    public int distinctValues;
+
+    /** Percentage of distinct values that don't match any country. */
+    @Param({"10", "50"})
+    public int unmatchedPercent;
+
+    /** Size of the matcher's cache, zero means every lookup normalizes the value. */
+    @Param({"0", "10000"})
+    public int cacheSize;
+
+    private String[] values;
+    private CountryMatcher countryMatcher;
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+
+        List<String> distinct = new ArrayList<>(distinctValues);
+        for (int i = 0; i < distinctValues; i++) {
+            if (random.nextInt(100) < unmatchedPercent) {
+                // a numbered suffix makes every unmatched value distinct
+                distinct.add(NOT_COUNTRIES[random.nextInt(NOT_COUNTRIES.length)] + " " + i);
+            } else {
+                distinct.add(vary(COUNTRIES[random.nextInt(COUNTRIES.length)], random));
+            }
+        }
+
+        // skewed towards the first distinct values, roughly like a Zipf distribution
+        values = new String[1 << 16];
+        for (int i = 0; i < values.length; i++) {
+            double skewed = Math.pow(random.nextDouble(), 3);
+            values[i] = distinct.get((int) (skewed * distinctValues));
+        }
+
+        countryMatcher = new CountryMatcher(CountryLookup.getInstance(), cacheSize);
+    }
+
+    /** Misspell a country name the way they appear in real metadata. */
+    private static String vary(String value, Random random) {
+        switch (random.nextInt(4)) {
+            case 0:
+                return value.toUpperCase(Locale.ROOT);
+            case 1:
+                return " " + value + ".";
+            case 2:
+                return "The " + value.toLowerCase(Locale.ROOT);
+            default:
+                return value;
+        }
+    }
+
+    @Benchmark
+    public String matchCountry() {
+        String value = values[next];
+        next = (next + 1) & (values.length - 1);
+
+        return countryMatcher.getAlpha2(value);
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.ctasks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How long it takes to load the compiled country vocabulary into a {@link CountryLookup}, which
+ * is what the first curation task in a JVM pays before it can process any items.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CountryVocabularyBenchmark {
+    private byte[] compiledVocabulary;
+
+    @Setup
+    public void setup() throws IOException {
+        // read the resource up front so we measure decoding rather than the class loader
+        try (InputStream in =
+                CountryLookup.class.getResourceAsStream(
+                        "/io/github/ilri/cgspace/ctasks/countries.bin")) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+            compiledVocabulary = bytes.toByteArray();
+        }
+    }
+
+    @Benchmark
+    public CountryLookup loadCompiledVocabulary() throws IOException {
+        return CountryLookup.read(new ByteArrayInputStream(compiledVocabulary));
+    }
+}
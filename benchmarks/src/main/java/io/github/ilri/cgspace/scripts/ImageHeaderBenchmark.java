@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.scripts;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Time it takes to get a JPEG's dimensions from its header with {@link ImageHeader}, compared to
+ * decoding the whole image. The JPEG has a 64 KiB segment before its frame header, like a photo
+ * with EXIF data and an embedded preview.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ImageHeaderBenchmark {
+    /** Width of the image, which is 3:2. */
+    @Param({"300", "3000"})
+    public int width;
+
+    private byte[] jpeg;
+
+    @Setup
+    public void setup() throws IOException {
+        BufferedImage image = new BufferedImage(width, width * 2 / 3, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, x * 31 ^ y * 17);
+            }
+        }
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpeg", encoded);
+        byte[] bytes = encoded.toByteArray();
+
+        // insert an APP1 segment of the maximum length after the start of image marker
+        ByteArrayOutputStream withExif = new ByteArrayOutputStream();
+        withExif.write(bytes, 0, 2);
+        withExif.write(0xff);
+        withExif.write(0xe1);
+        withExif.write(0xff);
+        withExif.write(0xff);
+        withExif.write(new byte[0xffff - 2], 0, 0xffff - 2);
+        withExif.write(bytes, 2, bytes.length - 2);
+        jpeg = withExif.toByteArray();
+    }
+
+    @Benchmark
+    public ImageHeader readHeader() throws IOException {
+        return ImageHeader.read(new ByteArrayInputStream(jpeg));
+    }
+
+    @Benchmark
+    public BufferedImage decodeImage() throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(jpeg));
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.scripts;
+
+import org.dspace.content.Bitstream;
+import org.dspace.content.BitstreamFormat;
+import org.dspace.content.Bundle;
+import org.dspace.content.Item;
+import org.dspace.core.Context;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Local stand-ins for DSpace's items, bundles, bitstreams, and bitstream formats.
+ *
+ * <p>The real classes are Hibernate entities whose getters fetch metadata through DSpace services,
+ * so these subclasses override the getters used by {@link ItemSnapshot} to return plain fields
+ * instead. That lets us build item graphs of any size without a running DSpace.
+ */
+public final class SyntheticItems {
+    static final BitstreamFormat PDF = new StubBitstreamFormat(1, "application/pdf");
+    static final BitstreamFormat JPEG = new StubBitstreamFormat(2, "image/jpeg");
+
+    private SyntheticItems() {}
+
+    /**
+     * Build an item with THUMBNAIL and ORIGINAL bundles that trigger every rule.
+     *
+     * <p>The ORIGINAL bundle has a PDF and <code>size - 1</code> small JPEGs, a few of which are
+     * labeled as thumbnails. The THUMBNAIL bundle has an "IM Thumbnail" for the PDF, a generated
+     * ".jpg.jpg" thumbnail for each JPEG, and the odd manually uploaded thumbnail.
+     *
+     * @param size number of bitstreams in each bundle
+     */
+    static Item item(int size) {
+        StubBundle original = new StubBundle("ORIGINAL");
+        StubBundle thumbnail = new StubBundle("THUMBNAIL");
+
+        original.add(new StubBitstream("report.pdf", "Report", 2_500_000, PDF));
+        thumbnail.add(new StubBitstream("report.pdf.jpg", "IM Thumbnail", 40_000, JPEG));
+
+        for (int i = 1; i < size; i++) {
+            String name = "photo-" + i + ".jpg";
+            String description = i % 5 == 0 ? "Thumbnail" : "Photo " + i;
+            original.add(new StubBitstream(name, description, 60_000 + i, JPEG));
+
+            if (i % 7 == 0) {
+                thumbnail.add(new StubBitstream(name, "Thumbnail for cover", 20_000, JPEG));
+            } else {
+                thumbnail.add(
+                        new StubBitstream(name + ".jpg", "Generated Thumbnail", 10_000, JPEG));
+            }
+        }
+
+        StubItem item = new StubItem();
+        item.bundles.add(original);
+        item.bundles.add(thumbnail);
+
+        return item;
+    }
+
+    static class StubItem extends Item {
+        private final UUID id = UUID.randomUUID();
+        private final List<Bundle> bundles = new ArrayList<>();
+
+        @Override
+        public UUID getID() {
+            return id;
+        }
+
+        @Override
+        public String getHandle() {
+            return "10568/" + (id.getLeastSignificantBits() & 0xffff);
+        }
+
+        @Override
+        public List<Bundle> getBundles() {
+            return bundles;
+        }
+
+        @Override
+        public List<Bundle> getBundles(String name) {
+            List<Bundle> matchingBundles = new ArrayList<>();
+            for (Bundle bundle : bundles) {
+                if (name.equals(bundle.getName())) {
+                    matchingBundles.add(bundle);
+                }
+            }
+            return matchingBundles;
+        }
+    }
+
+    static class StubBundle extends Bundle {
+        private final UUID id = UUID.randomUUID();
+        private final String name;
+        private final List<Bitstream> bitstreams = new ArrayList<>();
+
+        StubBundle(String name) {
+            this.name = name;
+        }
+
+        void add(Bitstream bitstream) {
+            bitstreams.add(bitstream);
+        }
+
+        @Override
+        public UUID getID() {
+            return id;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public List<Bitstream> getBitstreams() {
+            // like DSpace, return a copy so callers can remove bitstreams while iterating
+            return new ArrayList<>(bitstreams);
+        }
+
+        @Override
+        public void removeBitstream(Bitstream bitstream) {
+            bitstreams.remove(bitstream);
+        }
+    }
+
+    static class StubBitstream extends Bitstream {
+        private final UUID id = UUID.randomUUID();
+        private final String name;
+        private final String description;
+        private final long sizeBytes;
+        private final BitstreamFormat format;
+
+        StubBitstream(String name, String description, long sizeBytes, BitstreamFormat format) {
+            this.name = name;
+            this.description = description;
+            this.sizeBytes = sizeBytes;
+            this.format = format;
+        }
+
+        @Override
+        public UUID getID() {
+            return id;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getDescription() {
+            return description;
+        }
+
+        @Override
+        public long getSizeBytes() {
+            return sizeBytes;
+        }
+
+        @Override
+        public BitstreamFormat getFormat(Context context) {
+            return format;
+        }
+    }
+
+    static class StubBitstreamFormat extends BitstreamFormat {
+        private final Integer id;
+        private final String mimeType;
+
+        StubBitstreamFormat(int id, String mimeType) {
+            this.id = id;
+            this.mimeType = mimeType;
+        }
+
+        @Override
+        public Integer getID() {
+            return id;
+        }
+
+        @Override
+        public String getMIMEType() {
+            return mimeType;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.scripts;
+
+import org.dspace.authorize.AuthorizeException;
+import org.dspace.content.Item;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time it takes to evaluate the thumbnail rules for one item, depending on how many bitstreams
+ * its bundles have. Most items only have a couple, but some have hundreds of photos.
+ *
+ * <p>The rules work from an {@link ItemSnapshot}, so taking the snapshot is measured separately.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ThumbnailRulesBenchmark {
+    /** Number of bitstreams in each of the item's ORIGINAL and THUMBNAIL bundles. */
+    @Param({"2", "10", "100"})
+    public int bitstreams;
+
+    private Item item;
+    private ItemSnapshot snapshot;
+
+    @Setup
+    public void setup() throws SQLException, IOException, AuthorizeException {
+        item = SyntheticItems.item(bitstreams);
+        snapshot = ItemSnapshot.load(null, item, false);
+    }
+
+    @Benchmark
+    public ItemSnapshot loadSnapshot() throws SQLException, IOException, AuthorizeException {
+        // the stubbed bitstreams don't need a context to look up their formats
+        return ItemSnapshot.load(null, item, false);
+    }
+
+    @Benchmark
+    public List<ThumbnailAction> jpgJpgThumbnails() {
+        return ThumbnailRules.jpgJpgThumbnailActions(snapshot, 0);
+    }
+
+    @Benchmark
+    public List<ThumbnailAction> lowQualityThumbnails() {
+        return ThumbnailRules.lowQualityThumbnailActions(snapshot, 0);
+    }
+}
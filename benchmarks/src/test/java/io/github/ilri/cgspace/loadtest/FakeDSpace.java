@@ -0,0 +1,500 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.loadtest;
+
+import io.github.ilri.cgspace.loadtest.SyntheticRepository.SyntheticBundle;
+import io.github.ilri.cgspace.loadtest.SyntheticRepository.SyntheticItem;
+
+import org.dspace.content.Bitstream;
+import org.dspace.content.BitstreamFormat;
+import org.dspace.content.Bundle;
+import org.dspace.content.Collection;
+import org.dspace.content.DSpaceObject;
+import org.dspace.content.Item;
+import org.dspace.content.service.BitstreamFormatService;
+import org.dspace.content.service.BitstreamService;
+import org.dspace.content.service.BundleService;
+import org.dspace.content.service.CommunityService;
+import org.dspace.content.service.ItemService;
+import org.dspace.core.Context;
+import org.dspace.core.DBConnection;
+import org.dspace.handle.service.HandleService;
+import org.dspace.kernel.DSpaceKernel;
+import org.dspace.kernel.DSpaceKernelManager;
+import org.dspace.kernel.ServiceManager;
+import org.dspace.services.ConfigurationService;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A DSpace kernel whose services are backed by a {@link SyntheticRepository} instead of a database,
+ * so that the scripts and curation tasks can be run unchanged against millions of items.
+ *
+ * <p>The tools get their services from DSpace's factories, which get them from the kernel's
+ * service manager, so that is what we replace. The factories themselves are DSpace's own
+ * implementations with our services injected instead of Spring's. The item, bundle, bitstream,
+ * bitstream format, community, and handle services, the configuration service, and the database
+ * connection are faked well enough for the tools, and every other service throws an {@link
+ * UnsupportedOperationException} naming the method, so a tool that starts using something new
+ * fails loudly instead of measuring the wrong thing.
+ *
+ * <p>The database connection keeps a session per thread like Hibernate does, which holds the items
+ * loaded in it, together with their bundles and bitstreams, until they are evicted or the
+ * transaction ends. That way the harness sees the same memory growth as DSpace if a tool forgets
+ * to evict items.
+ */
+final class FakeDSpace {
+    private static final List<BitstreamFormat> FORMATS =
+            Arrays.asList(
+                    SyntheticRepository.PDF, SyntheticRepository.JPEG, SyntheticRepository.PNG);
+
+    private final SyntheticRepository repository;
+    private final Properties properties;
+
+    private final Map<Class<?>, Object> services = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Object> factories = new ConcurrentHashMap<>();
+    private final DBConnection<?> dbConnection;
+    private final ThreadLocal<Map<UUID, Item>> sessions = ThreadLocal.withInitial(HashMap::new);
+
+    private FakeDSpace(SyntheticRepository repository, Properties properties) {
+        this.repository = repository;
+        this.properties = properties;
+
+        services.put(ConfigurationService.class, proxy(ConfigurationService.class, this::config));
+        services.put(ItemService.class, proxy(ItemService.class, this::itemService));
+        services.put(BundleService.class, proxy(BundleService.class, this::bundleService));
+        services.put(BitstreamService.class, proxy(BitstreamService.class, this::bitstreamService));
+        services.put(
+                BitstreamFormatService.class,
+                proxy(BitstreamFormatService.class, this::bitstreamFormatService));
+        services.put(CommunityService.class, proxy(CommunityService.class, this::communityService));
+        services.put(HandleService.class, proxy(HandleService.class, this::handleService));
+        dbConnection = proxy(DBConnection.class, this::dbConnection);
+    }
+
+    /**
+     * Make a fake kernel the default one, before any of the tools' classes are loaded, because
+     * they get their services when they are initialized.
+     *
+     * @param repository the items to serve
+     * @param properties the DSpace configuration, for example the curation task's
+     */
+    static FakeDSpace start(SyntheticRepository repository, Properties properties) {
+        FakeDSpace dspace = new FakeDSpace(repository, properties);
+
+        ServiceManager serviceManager = proxy(ServiceManager.class, dspace::serviceManager);
+        DSpaceKernel kernel =
+                proxy(
+                        DSpaceKernel.class,
+                        (method, args) -> {
+                            switch (method.getName()) {
+                                case "isRunning":
+                                    return true;
+                                case "getMBeanName":
+                                    return "org.dspace:name=FakeDSpace,type=DSpaceKernel";
+                                case "getServiceManager":
+                                    return serviceManager;
+                                case "getConfigurationService":
+                                    return dspace.services.get(ConfigurationService.class);
+                                default:
+                                    throw unsupported(method);
+                            }
+                        });
+        DSpaceKernelManager.setDefaultKernel(kernel);
+
+        // a new Context checks the database schema the first time, which there is no need for
+        try {
+            Field databaseUpdated = Context.class.getDeclaredField("databaseUpdated");
+            databaseUpdated.setAccessible(true);
+            ((AtomicBoolean) databaseUpdated.get(null)).set(true);
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            System.err.println("FakeDSpace: unable to skip the database update: " + e);
+        }
+
+        return dspace;
+    }
+
+    private Object serviceManager(Method method, Object[] args) {
+        switch (method.getName()) {
+            case "getServiceByName":
+                return getService((Class<?>) args[1]);
+            case "getServicesByType":
+                List<Object> found = new ArrayList<>();
+                for (Object service : services.values()) {
+                    if (((Class<?>) args[0]).isInstance(service)) {
+                        found.add(service);
+                    }
+                }
+                return found;
+            case "isServiceExists":
+                return false;
+            case "getServicesNames":
+                return Collections.emptyList();
+            default:
+                throw unsupported(method);
+        }
+    }
+
+    /** Get a service, a factory, or a stand-in that throws for every method. */
+    private Object getService(Class<?> type) {
+        if (type == DBConnection.class) {
+            return dbConnection;
+        }
+        if (!type.getName().startsWith("org.dspace.")) {
+            return null;
+        }
+        if (type.isInterface()) {
+            return services.computeIfAbsent(type, FakeDSpace::unsupportedService);
+        }
+        if (Modifier.isAbstract(type.getModifiers())) {
+            return factories.computeIfAbsent(type, this::newFactory);
+        }
+        return null;
+    }
+
+    /**
+     * Create DSpace's implementation of a service factory like ContentServiceFactory, which is
+     * always named like the factory with "Impl" added, and inject our services into it.
+     */
+    private Object newFactory(Class<?> type) {
+        try {
+            Class<?> implementation = Class.forName(type.getName() + "Impl");
+            Constructor<?> constructor = implementation.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            Object factory = constructor.newInstance();
+
+            for (Class<?> c = implementation; c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers())
+                            && field.getType().isInterface()
+                            && field.getType().getName().startsWith("org.dspace.")) {
+                        field.setAccessible(true);
+                        field.set(factory, getService(field.getType()));
+                    }
+                }
+            }
+            return factory;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("unable to create " + type.getName(), e);
+        }
+    }
+
+    private Object config(Method method, Object[] args) {
+        String value =
+                args != null && args.length > 0 ? properties.getProperty((String) args[0]) : null;
+        boolean hasDefault = args != null && args.length > 1;
+        switch (method.getName()) {
+            case "getProperty":
+                return value != null || !hasDefault ? value : args[1];
+            case "hasProperty":
+                return value != null;
+            case "getArrayProperty":
+                if (value == null) {
+                    return hasDefault ? args[1] : new String[0];
+                }
+                return value.trim().split("\\s*,\\s*");
+            case "getBooleanProperty":
+                return value != null
+                        ? Boolean.valueOf(value.trim())
+                        : hasDefault && (boolean) args[1];
+            case "getIntProperty":
+                return value != null ? Integer.valueOf(value.trim()) : hasDefault ? args[1] : 0;
+            case "getLongProperty":
+                return value != null ? Long.valueOf(value.trim()) : hasDefault ? args[1] : 0L;
+            case "getProperties":
+                return properties;
+            default:
+                throw unsupported(method);
+        }
+    }
+
+    private Object itemService(Method method, Object[] args) {
+        switch (method.getName()) {
+            case "find":
+                return find((UUID) args[1], Item.class);
+            case "findAll":
+            case "findAllRegularItems":
+                return items(repository.findAll());
+            case "findByCollection":
+            case "findAllByCollection":
+                return items(repository.findByCollection((Collection) args[1]));
+            case "findByLastModifiedSince":
+                // every item was last modified at the same time
+                return ((Date) args[1]).before(SyntheticRepository.LAST_MODIFIED)
+                        ? items(repository.findAll())
+                        : Collections.emptyIterator();
+            case "getMetadataByMetadataString":
+                return ((SyntheticItem) args[0]).getMetadata((String) args[1]);
+            case "addMetadata":
+                SyntheticItem item = (SyntheticItem) args[1];
+                String field = field(args[2], args[3], args[4]);
+                List<?> values =
+                        args[6] instanceof List
+                                ? (List<?>) args[6]
+                                : Collections.singletonList(args[6]);
+                for (Object value : values) {
+                    item.add(field, (String) value);
+                }
+                repository.valuesAdded.add(values.size());
+                return method.getReturnType() == List.class
+                        ? item.getMetadata(field)
+                        : item.getMetadata(field).get(0);
+            case "clearMetadata":
+                ((SyntheticItem) args[1]).clear(field(args[2], args[3], args[4]));
+                repository.fieldsCleared.increment();
+                return null;
+            case "update":
+                repository.itemsUpdated.increment();
+                return null;
+            case "updateLastModified":
+                return null;
+            default:
+                throw unsupported(method);
+        }
+    }
+
+    private Object bundleService(Method method, Object[] args) {
+        switch (method.getName()) {
+            case "find":
+                return find((UUID) args[1], Bundle.class);
+            case "addBitstream":
+                ((SyntheticBundle) args[1]).add((Bitstream) args[2]);
+                repository.bitstreamsAdded.increment();
+                return null;
+            case "removeBitstream":
+                ((Bundle) args[1]).removeBitstream((Bitstream) args[2]);
+                return null;
+            case "update":
+                return null;
+            default:
+                throw unsupported(method);
+        }
+    }
+
+    private Object bitstreamService(Method method, Object[] args) {
+        switch (method.getName()) {
+            case "find":
+                return find((UUID) args[1], Bitstream.class);
+            case "retrieve":
+                // only the images' headers are ever read
+                return new ByteArrayInputStream(SyntheticRepository.jpegHeader());
+            case "update":
+                return null;
+            default:
+                throw unsupported(method);
+        }
+    }
+
+    private Object bitstreamFormatService(Method method, Object[] args) {
+        switch (method.getName()) {
+            case "findByShortDescription":
+                for (BitstreamFormat format : FORMATS) {
+                    if (args[1].equals(format.getShortDescription())) {
+                        return format;
+                    }
+                }
+                return null;
+            case "findByMIMEType":
+                for (BitstreamFormat format : FORMATS) {
+                    if (args[1].equals(format.getMIMEType())) {
+                        return format;
+                    }
+                }
+                return null;
+            default:
+                throw unsupported(method);
+        }
+    }
+
+    private Object communityService(Method method, Object[] args) {
+        if (method.getName().equals("findAllTop")) {
+            return new ArrayList<>(Collections.singletonList(repository.getCommunity()));
+        }
+        throw unsupported(method);
+    }
+
+    private Object handleService(Method method, Object[] args) {
+        if (method.getName().equals("resolveToObject")) {
+            Object resolved = repository.resolve((String) args[1]);
+            return resolved instanceof Integer ? load((Integer) resolved) : resolved;
+        }
+        throw unsupported(method);
+    }
+
+    /**
+     * Like Hibernate's session, except that nothing is written to the database. Only the methods
+     * the tools use through their contexts do anything.
+     */
+    private Object dbConnection(Method method, Object[] args) {
+        switch (method.getName()) {
+            case "isTransActionAlive":
+            case "isSessionAlive":
+                return true;
+            case "commit":
+                repository.commits.increment();
+                return null;
+            case "rollback":
+            case "closeDBConnection":
+                sessions.get().clear();
+                return null;
+            case "getCacheSize":
+                return (long) sessions.get().size();
+            case "reloadEntity":
+                // an evicted object is loaded again, as it was generated
+                if (args[0] instanceof DSpaceObject) {
+                    DSpaceObject dso = (DSpaceObject) args[0];
+                    Object loaded = find(dso.getID(), dso.getClass());
+                    return loaded != null ? loaded : dso;
+                }
+                return args[0];
+            case "uncacheEntity":
+                if (args[0] instanceof DSpaceObject) {
+                    sessions.get().remove(((DSpaceObject) args[0]).getID());
+                }
+                return null;
+            case "getType":
+                return "fake";
+            default:
+                return defaultValue(method.getReturnType());
+        }
+    }
+
+    /** Load an item into this thread's session, unless it is already there. */
+    private Item load(int index) {
+        Map<UUID, Item> session = sessions.get();
+        Item item = session.get(repository.getItemId(index));
+        if (item == null) {
+            item = repository.load(index);
+            session.put(item.getID(), item);
+        }
+        return item;
+    }
+
+    /**
+     * Find an item, bundle, or bitstream, loading the item it belongs to if it isn't in this
+     * thread's session.
+     *
+     * @return the object, or <code>null</code> if there is no such object of that type
+     */
+    private <T> T find(UUID id, Class<T> type) {
+        int index = repository.findItemIndex(id);
+        if (index < 0) {
+            return null;
+        }
+
+        Item item = load(index);
+        Object found = null;
+        if (item.getID().equals(id)) {
+            found = item;
+        }
+        for (Bundle bundle : item.getBundles()) {
+            if (bundle.getID().equals(id)) {
+                found = bundle;
+            }
+            // a bitstream that was moved is in another bundle now
+            for (Bitstream bitstream : bundle.getBitstreams()) {
+                if (bitstream.getID().equals(id)) {
+                    found = bitstream;
+                }
+            }
+        }
+        return type.isInstance(found) ? type.cast(found) : null;
+    }
+
+    private Iterator<Item> items(PrimitiveIterator.OfInt indexes) {
+        return new Iterator<Item>() {
+            @Override
+            public boolean hasNext() {
+                return indexes.hasNext();
+            }
+
+            @Override
+            public Item next() {
+                return load(indexes.nextInt());
+            }
+        };
+    }
+
+    private static String field(Object schema, Object element, Object qualifier) {
+        return schema + "." + element + (qualifier != null ? "." + qualifier : "");
+    }
+
+    /** A method of a service, which may throw whatever the service's methods throw. */
+    @FunctionalInterface
+    private interface Handler {
+        Object invoke(Method method, Object[] args) throws Exception;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        InvocationHandler invocationHandler =
+                (proxy, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class) {
+                        switch (method.getName()) {
+                            case "equals":
+                                return proxy == args[0];
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            default:
+                                return "Fake" + type.getSimpleName();
+                        }
+                    }
+                    return handler.invoke(method, args);
+                };
+        return (T)
+                Proxy.newProxyInstance(
+                        FakeDSpace.class.getClassLoader(),
+                        new Class<?>[] {type},
+                        invocationHandler);
+    }
+
+    private static Object unsupportedService(Class<?> type) {
+        return proxy(
+                type,
+                (method, args) -> {
+                    throw unsupported(method);
+                });
+    }
+
+    private static UnsupportedOperationException unsupported(Method method) {
+        return new UnsupportedOperationException(
+                method.getDeclaringClass().getSimpleName()
+                        + "."
+                        + method.getName()
+                        + "() isn't faked by the load test");
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+}
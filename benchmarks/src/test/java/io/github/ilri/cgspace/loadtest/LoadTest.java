@@ -0,0 +1,374 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.loadtest;
+
+import io.github.ilri.cgspace.ctasks.CountryCodeTagger;
+import io.github.ilri.cgspace.scripts.FixJpgJpgThumbnails;
+import io.github.ilri.cgspace.scripts.FixLowQualityThumbnails;
+import io.github.ilri.cgspace.util.ItemList;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.dspace.curate.Curator;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.stream.Stream;
+
+/**
+ * Run one of the scripts or the country code tagger against a synthetic repository of any size,
+ * using {@link FakeDSpace} instead of a real DSpace, and report its throughput and heap usage.
+ *
+ * <p>The tools run unchanged, so this measures their own overhead, like how they traverse, batch,
+ * and evict items, and whether they hold on to memory per item, but not the time DSpace spends in
+ * the database. The peak heap is sampled while the tool runs and the retained heap is measured
+ * after a full garbage collection at the end, which should not grow with the number of items.
+ */
+public final class LoadTest {
+    private static final String TASK_ID = "countrycodetagger";
+
+    private LoadTest() {}
+
+    public static void main(String[] args) {
+        Options options = new Options();
+        options.addOption(numberOption("n", "items", "number of items (default 100000)"));
+        options.addOption(numberOption(null, "collections", "number of collections (default 20)"));
+        options.addOption(
+                numberOption(
+                        null,
+                        "bitstreams",
+                        "number of bitstreams in each item's ORIGINAL and THUMBNAIL bundles, at"
+                                + " most 255 (default 2)"));
+        options.addOption(
+                numberOption(null, "countries", "most countries an item has (default 3)"));
+        options.addOption(
+                numberOption(
+                        null,
+                        "unmatched-percent",
+                        "percentage of countries that are regions and don't match (default 10)"));
+        options.addOption(
+                numberOption(
+                        null,
+                        "coded-percent",
+                        "percentage of items that already have alpha2 codes (default 0)"));
+        options.addOption(
+                numberOption(
+                        null,
+                        "jpg-jpg-percent",
+                        "percentage of items with .jpg.jpg thumbnails (default 5)"));
+        options.addOption(
+                numberOption(
+                        null,
+                        "mapped-percent",
+                        "percentage of items mapped into a second collection (default 5)"));
+        options.addOption(numberOption(null, "seed", "seed for generating items (default 42)"));
+        options.addOption(
+                Option.builder("D")
+                        .hasArgs()
+                        .valueSeparator('=')
+                        .argName("KEY=VALUE")
+                        .desc("set a DSpace configuration property, for example of the tagger")
+                        .build());
+        options.addOption("h", "help", false, "show this help");
+
+        CommandLine line;
+        String tool;
+        SyntheticRepository repository;
+        try {
+            // everything after the tool's name is passed on to the tool
+            line = new DefaultParser().parse(options, args, true);
+            if (line.hasOption("help")) {
+                printHelp(options);
+                return;
+            }
+            if (line.getArgs().length == 0) {
+                throw new ParseException("Missing the tool to run");
+            }
+            tool = line.getArgs()[0];
+
+            int bitstreams = intValue(line, "bitstreams", 2);
+            if (bitstreams < 1 || bitstreams > 255) {
+                throw new ParseException("Number of bitstreams must be from 1 to 255");
+            }
+            repository =
+                    new SyntheticRepository(
+                            intValue(line, "items", 100_000),
+                            Math.max(1, intValue(line, "collections", 20)),
+                            bitstreams,
+                            intValue(line, "countries", 3),
+                            intValue(line, "unmatched-percent", 10),
+                            intValue(line, "coded-percent", 0),
+                            intValue(line, "jpg-jpg-percent", 5),
+                            intValue(line, "mapped-percent", 5),
+                            Long.parseLong(line.getOptionValue("seed", "42")));
+        } catch (ParseException | NumberFormatException e) {
+            System.err.println("LoadTest: " + e.getMessage());
+            printHelp(options);
+            return;
+        }
+
+        Properties properties = taggerProperties();
+        properties.putAll(line.getOptionProperties("D"));
+        FakeDSpace.start(repository, properties);
+
+        String[] toolArgs = Arrays.copyOfRange(line.getArgs(), 1, line.getArgs().length);
+        Path workDirectory = null;
+        HeapSampler sampler = new HeapSampler();
+        try {
+            workDirectory = Files.createTempDirectory("LoadTest");
+            long items = repository.getItemCount();
+            long start;
+            switch (tool) {
+                case "FixJpgJpgThumbnails":
+                    // the script finds its candidates with SQL, so give it the same items
+                    File candidates = new File(workDirectory.toFile(), "candidates.txt");
+                    items = writeCandidates(repository, candidates);
+                    start = sampler.start();
+                    FixJpgJpgThumbnails.main(
+                            scriptArgs(
+                                    tool,
+                                    workDirectory,
+                                    toolArgs,
+                                    "--items",
+                                    candidates.getPath()));
+                    break;
+                case "FixLowQualityThumbnails":
+                    start = sampler.start();
+                    FixLowQualityThumbnails.main(
+                            scriptArgs(
+                                    tool,
+                                    workDirectory,
+                                    toolArgs,
+                                    repository.getCommunity().getHandle()));
+                    break;
+                case "CountryCodeTagger":
+                    start = sampler.start();
+                    runTagger(repository);
+                    break;
+                default:
+                    System.err.println("LoadTest: unknown tool " + tool);
+                    printHelp(options);
+                    return;
+            }
+            long elapsedMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+            sampler.stop();
+
+            System.out.println(
+                    "LoadTest: "
+                            + tool
+                            + " on "
+                            + items
+                            + " item(s) in "
+                            + elapsedMillis / 1000
+                            + "s ("
+                            + items * 1000 / elapsedMillis
+                            + " items/s)");
+            System.out.println(
+                    "> Peak heap: "
+                            + sampler.peakBytes.get() / (1024 * 1024)
+                            + " MiB, retained after GC: "
+                            + sampler.retainedBytes() / (1024 * 1024)
+                            + " MiB");
+            System.out.println(
+                    "> Loaded "
+                            + repository.itemsLoaded.sum()
+                            + " item(s), updated "
+                            + repository.itemsUpdated.sum()
+                            + ", added "
+                            + repository.valuesAdded.sum()
+                            + " metadata value(s), cleared "
+                            + repository.fieldsCleared.sum()
+                            + " field(s), added "
+                            + repository.bitstreamsAdded.sum()
+                            + " and removed "
+                            + repository.bitstreamsRemoved.sum()
+                            + " bitstream(s), "
+                            + repository.commits.sum()
+                            + " commit(s)");
+        } catch (IOException | SQLException e) {
+            e.printStackTrace(System.err);
+        } finally {
+            sampler.stop();
+            deleteRecursively(workDirectory);
+        }
+    }
+
+    /** The tagger's configuration for the fields of the synthetic items. */
+    static Properties taggerProperties() {
+        Properties properties = new Properties();
+        properties.setProperty(TASK_ID + ".iso3166.field", SyntheticRepository.COUNTRY_FIELD);
+        properties.setProperty(
+                TASK_ID + ".iso3166-alpha2.field", SyntheticRepository.ALPHA2_FIELD);
+        return properties;
+    }
+
+    /** The script's own arguments, then the ones to run it quietly in a scratch directory. */
+    static String[] scriptArgs(
+            String name, Path workDirectory, String[] toolArgs, String... defaultArgs) {
+        List<String> scriptArgs = new ArrayList<>(Arrays.asList(toolArgs));
+        if (!scriptArgs.contains("-l") && !scriptArgs.contains("--log")) {
+            scriptArgs.add("--quiet");
+        }
+        if (!scriptArgs.contains("-c") && !scriptArgs.contains("--checkpoint")) {
+            scriptArgs.add("--checkpoint");
+            scriptArgs.add(workDirectory.resolve(name + ".checkpoint").toString());
+        }
+        scriptArgs.addAll(Arrays.asList(defaultArgs));
+        return scriptArgs.toArray(new String[0]);
+    }
+
+    /**
+     * Run the tagger on the whole community like the curation system would, with the task's
+     * configuration from the properties.
+     */
+    static void runTagger(SyntheticRepository repository)
+            throws IOException, SQLException {
+        Curator curator = new Curator();
+        // the tagger reports every item, which we don't want to measure
+        curator.setReporter(new NullAppendable());
+
+        CountryCodeTagger tagger = new CountryCodeTagger();
+        tagger.init(curator, TASK_ID);
+        tagger.perform(repository.getCommunity());
+        Curator.curationContext().complete();
+
+        System.out.println("CountryCodeTagger: " + curator.getResult(TASK_ID));
+    }
+
+    /** Write the UUIDs of the items with ".jpg.jpg" thumbnails, like the candidate query finds. */
+    static long writeCandidates(SyntheticRepository repository, File file)
+            throws IOException {
+        List<UUID> itemIds = new ArrayList<>();
+        for (PrimitiveIterator.OfInt indexes = repository.findAll(); indexes.hasNext(); ) {
+            int index = indexes.nextInt();
+            if (repository.hasJpgJpgThumbnails(index)) {
+                itemIds.add(repository.getItemId(index));
+            }
+        }
+        ItemList.write(file, itemIds.toArray(new UUID[0]));
+        return itemIds.size();
+    }
+
+    private static void deleteRecursively(Path directory) {
+        if (directory == null) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        } catch (IOException e) {
+            System.err.println("LoadTest: unable to delete " + directory + ": " + e.getMessage());
+        }
+    }
+
+    private static Option numberOption(String shortName, String longName, String description) {
+        return Option.builder(shortName)
+                .longOpt(longName)
+                .hasArg()
+                .argName("N")
+                .desc(description)
+                .build();
+    }
+
+    private static int intValue(CommandLine line, String option, int defaultValue) {
+        int value = Integer.parseInt(line.getOptionValue(option, String.valueOf(defaultValue)));
+        if (value < 0) {
+            throw new NumberFormatException("--" + option + " must not be negative");
+        }
+        return value;
+    }
+
+    private static void printHelp(Options options) {
+        new HelpFormatter()
+                .printHelp(
+                        "java -cp benchmarks.jar:benchmarks-tests.jar"
+                                + " io.github.ilri.cgspace.loadtest.LoadTest [options]"
+                                + " FixJpgJpgThumbnails|FixLowQualityThumbnails|CountryCodeTagger"
+                                + " [tool options]",
+                        options);
+    }
+
+    /**
+     * Samples the used heap while a tool runs. Sampling misses short spikes, but not the steady
+     * growth of a tool that holds on to every item.
+     */
+    private static class HeapSampler {
+        private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        private final LongAccumulator peakBytes = new LongAccumulator(Math::max, 0);
+        private long baselineBytes;
+        private Thread thread;
+
+        /** Collect garbage and start sampling, returning the start time in nanoseconds. */
+        private long start() {
+            System.gc();
+            baselineBytes = memory.getHeapMemoryUsage().getUsed();
+
+            thread =
+                    new Thread(
+                            () -> {
+                                while (!Thread.currentThread().isInterrupted()) {
+                                    peakBytes.accumulate(memory.getHeapMemoryUsage().getUsed());
+                                    try {
+                                        Thread.sleep(10);
+                                    } catch (InterruptedException e) {
+                                        return;
+                                    }
+                                }
+                            },
+                            "LoadTest heap sampler");
+            thread.setDaemon(true);
+            thread.start();
+            return System.nanoTime();
+        }
+
+        private void stop() {
+            if (thread != null) {
+                thread.interrupt();
+                thread = null;
+            }
+        }
+
+        /** The heap still used after collecting garbage, compared to before the tool ran. */
+        private long retainedBytes() {
+            System.gc();
+            return Math.max(0, memory.getHeapMemoryUsage().getUsed() - baselineBytes);
+        }
+    }
+
+    private static class NullAppendable implements Appendable {
+        @Override
+        public Appendable append(CharSequence csq) {
+            return this;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) {
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.loadtest;
+
+import static org.junit.Assert.assertTrue;
+
+import io.github.ilri.cgspace.scripts.FixJpgJpgThumbnails;
+import io.github.ilri.cgspace.scripts.FixLowQualityThumbnails;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+
+/**
+ * Runs each tool of the {@link LoadTest} on a small synthetic repository, so that a change to
+ * DSpace's services that {@link FakeDSpace} doesn't fake fails the build instead of the next load
+ * test.
+ *
+ * <p>The tools get their services once, when their classes are loaded, so all of them run against
+ * the same repository. Its changes are only counted, so each test compares the counters before and
+ * after its tool.
+ */
+public class LoadTestSmokeTest {
+    private static final int ITEMS = 200;
+
+    private static SyntheticRepository repository;
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void startDSpace() {
+        repository = new SyntheticRepository(ITEMS, 4, 2, 3, 10, 0, 20, 5, 42);
+        FakeDSpace.start(repository, LoadTest.taggerProperties());
+    }
+
+    @Test
+    public void fixJpgJpgThumbnails() throws IOException {
+        File candidates = folder.newFile("candidates.txt");
+        long items = LoadTest.writeCandidates(repository, candidates);
+        assertTrue(items > 0);
+        long loaded = repository.itemsLoaded.sum();
+        long removed = repository.bitstreamsRemoved.sum();
+        long commits = repository.commits.sum();
+
+        FixJpgJpgThumbnails.main(
+                scriptArgs("FixJpgJpgThumbnails", "--items", candidates.getPath()));
+
+        assertTrue(repository.itemsLoaded.sum() - loaded >= items);
+        assertTrue(repository.bitstreamsRemoved.sum() > removed);
+        assertTrue(repository.commits.sum() > commits);
+    }
+
+    @Test
+    public void fixLowQualityThumbnails() {
+        long loaded = repository.itemsLoaded.sum();
+        long commits = repository.commits.sum();
+
+        FixLowQualityThumbnails.main(
+                scriptArgs("FixLowQualityThumbnails", repository.getCommunity().getHandle()));
+
+        // every item is in one collection of the community and some are mapped into another
+        assertTrue(repository.itemsLoaded.sum() - loaded >= ITEMS);
+        assertTrue(repository.commits.sum() > commits);
+    }
+
+    @Test
+    public void countryCodeTagger() throws IOException, SQLException {
+        long updated = repository.itemsUpdated.sum();
+        long added = repository.valuesAdded.sum();
+
+        LoadTest.runTagger(repository);
+
+        assertTrue(repository.itemsUpdated.sum() > updated);
+        assertTrue(repository.valuesAdded.sum() - added >= repository.itemsUpdated.sum() - updated);
+    }
+
+    private String[] scriptArgs(String name, String... args) {
+        Path workDirectory = folder.getRoot().toPath();
+        return LoadTest.scriptArgs(name, workDirectory, new String[0], args);
+    }
+}
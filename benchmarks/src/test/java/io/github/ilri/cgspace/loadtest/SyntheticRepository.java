@@ -0,0 +1,597 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.loadtest;
+
+import io.github.ilri.cgspace.ctasks.CountryLookup;
+
+import org.dspace.content.Bitstream;
+import org.dspace.content.BitstreamFormat;
+import org.dspace.content.Bundle;
+import org.dspace.content.Collection;
+import org.dspace.content.Community;
+import org.dspace.content.Item;
+import org.dspace.content.MetadataValue;
+import org.dspace.core.Context;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * A repository of synthetic items that are generated when they are loaded instead of being stored.
+ *
+ * <p>Every item is derived from its index and the seed, so loading an item twice gives two equal
+ * copies, like loading it in two contexts would, and a repository of millions of items only takes
+ * memory for the items that are loaded at the moment. The items are spread over the collections of
+ * a community and its sub-community, and some of them are mapped into a second collection.
+ *
+ * <p>Changes to items are counted but not kept, so an item is always loaded as it was generated.
+ */
+final class SyntheticRepository {
+    static final String HANDLE_PREFIX = "99999";
+    static final String COUNTRY_FIELD = "cg.coverage.country";
+    static final String ALPHA2_FIELD = "cg.coverage.iso3166-alpha2";
+
+    static final BitstreamFormat PDF = new SyntheticFormat(1, "application/pdf", "Adobe PDF");
+    static final BitstreamFormat JPEG = new SyntheticFormat(2, "image/jpeg", "JPEG");
+    static final BitstreamFormat PNG = new SyntheticFormat(3, "image/png", "PNG");
+
+    // the most significant bits of a UUID say what it identifies, the least significant bits the
+    // item and the bundle and bitstream in it
+    private static final long ITEM = 0x53594e5448000001L;
+    private static final long BUNDLE = 0x53594e5448000002L;
+    private static final long BITSTREAM = 0x53594e5448000003L;
+    private static final long COLLECTION = 0x53594e5448000004L;
+    private static final long COMMUNITY = 0x53594e5448000005L;
+
+    // a handful of countries account for most items, like in CGSpace
+    private static final String[] COUNTRIES = {
+        "Kenya", "Ethiopia", "Uganda", "Tanzania", "India", "Viet Nam", "Nigeria", "Côte d'Ivoire",
+        "Bangladesh", "Burkina Faso", "Mali", "Niger", "Ghana", "Malawi", "Mozambique", "Zambia",
+        "Zimbabwe", "Rwanda", "Nepal", "Laos", "Cambodia", "Philippines", "Indonesia", "Peru",
+        "Colombia", "Bolivia", "Congo, Democratic Republic of", "Korea, DPR", "Russia", "Türkiye"
+    };
+    private static final String[] NOT_COUNTRIES = {
+        "East Africa", "West Africa", "Sub-Saharan Africa", "South Asia", "Global", "Africa",
+        "Latin America", "Southeast Asia", "Sahel", "Horn of Africa"
+    };
+    private static final String[] TYPES = {"Journal Article", "Report", "Brief", "Poster"};
+
+    // so that items don't look modified however early a --since is
+    static final Date LAST_MODIFIED = new Date(1767225600000L); // 2026-01-01
+
+    private final int itemCount;
+    private final int bitstreams;
+    private final int maxCountries;
+    private final int unmatchedPercent;
+    private final int codedPercent;
+    private final int jpgJpgPercent;
+    private final int mappedPercent;
+    private final long seed;
+
+    private final SyntheticCommunity community;
+    private final List<Collection> collections = new ArrayList<>();
+
+    final LongAdder itemsLoaded = new LongAdder();
+    final LongAdder itemsUpdated = new LongAdder();
+    final LongAdder valuesAdded = new LongAdder();
+    final LongAdder fieldsCleared = new LongAdder();
+    final LongAdder bitstreamsAdded = new LongAdder();
+    final LongAdder bitstreamsRemoved = new LongAdder();
+    final LongAdder commits = new LongAdder();
+
+    /**
+     * @param itemCount number of items
+     * @param collectionCount number of collections, half of them in a sub-community
+     * @param bitstreams number of bitstreams in each item's ORIGINAL and THUMBNAIL bundles, at
+     *     most 255
+     * @param maxCountries largest number of countries an item has
+     * @param unmatchedPercent percentage of country values that are regions and don't match
+     * @param codedPercent percentage of items that already have alpha2 country codes
+     * @param jpgJpgPercent percentage of items with JPEGs that have ".jpg.jpg" thumbnails
+     * @param mappedPercent percentage of items that are mapped into a second collection
+     * @param seed makes a different repository of the same shape
+     */
+    SyntheticRepository(
+            int itemCount,
+            int collectionCount,
+            int bitstreams,
+            int maxCountries,
+            int unmatchedPercent,
+            int codedPercent,
+            int jpgJpgPercent,
+            int mappedPercent,
+            long seed) {
+        this.itemCount = itemCount;
+        this.bitstreams = bitstreams;
+        this.maxCountries = maxCountries;
+        this.unmatchedPercent = unmatchedPercent;
+        this.codedPercent = codedPercent;
+        this.jpgJpgPercent = jpgJpgPercent;
+        this.mappedPercent = mappedPercent;
+        this.seed = seed;
+
+        community = new SyntheticCommunity(new UUID(COMMUNITY, 0), HANDLE_PREFIX + "/c0");
+        SyntheticCommunity subcommunity =
+                new SyntheticCommunity(new UUID(COMMUNITY, 1), HANDLE_PREFIX + "/c1");
+        community.subcommunities.add(subcommunity);
+        for (int i = 0; i < collectionCount; i++) {
+            Collection collection =
+                    new SyntheticCollection(
+                            new UUID(COLLECTION, i), HANDLE_PREFIX + "/col" + i, i);
+            collections.add(collection);
+            (i % 2 == 0 ? community : subcommunity).collections.add(collection);
+        }
+    }
+
+    int getItemCount() {
+        return itemCount;
+    }
+
+    /** The top-level community, which contains every collection. */
+    Community getCommunity() {
+        return community;
+    }
+
+    /** Whether an item has ".jpg.jpg" thumbnails, which is cheaper than generating it. */
+    boolean hasJpgJpgThumbnails(int index) {
+        return percentile(index, 1) < jpgJpgPercent;
+    }
+
+    UUID getItemId(int index) {
+        return new UUID(ITEM, index);
+    }
+
+    /** The indexes of all items, in the order of their UUIDs. */
+    PrimitiveIterator.OfInt findAll() {
+        return IntStream.range(0, itemCount).iterator();
+    }
+
+    /** The indexes of the items in a collection, first its own and then the mapped ones. */
+    PrimitiveIterator.OfInt findByCollection(Collection collection) {
+        int size = collections.size();
+        int number = ((SyntheticCollection) collection).number;
+        // items belong to collection index % size and are mapped to the next one
+        int mappedFrom = (number + size - 1) % size;
+        IntStream own = IntStream.iterate(number, i -> i + size).limit(count(number, size));
+        IntStream mapped =
+                IntStream.iterate(mappedFrom, i -> i + size)
+                        .limit(size > 1 ? count(mappedFrom, size) : 0)
+                        .filter(i -> percentile(i, 2) < mappedPercent);
+        return IntStream.concat(own, mapped).iterator();
+    }
+
+    private long count(int first, int step) {
+        return first < itemCount ? (itemCount - first + step - 1) / step : 0;
+    }
+
+    /**
+     * Get the item, bundle, or bitstream with a UUID, or the item it belongs to.
+     *
+     * @return the index of the item, or -1 if there is no such object
+     */
+    int findItemIndex(UUID id) {
+        long lsb = id.getLeastSignificantBits();
+        long index;
+        if (id.getMostSignificantBits() == ITEM) {
+            index = lsb;
+        } else if (id.getMostSignificantBits() == BUNDLE) {
+            index = lsb >>> 8;
+        } else if (id.getMostSignificantBits() == BITSTREAM) {
+            index = lsb >>> 16;
+        } else {
+            return -1;
+        }
+        return index >= 0 && index < itemCount ? (int) index : -1;
+    }
+
+    /** Resolve a community, collection, or item handle. */
+    Object resolve(String handle) {
+        if (handle.equals(community.getHandle())) {
+            return community;
+        }
+        for (Community subcommunity : community.getSubcommunities()) {
+            if (handle.equals(subcommunity.getHandle())) {
+                return subcommunity;
+            }
+        }
+        for (Collection collection : collections) {
+            if (handle.equals(collection.getHandle())) {
+                return collection;
+            }
+        }
+        if (handle.startsWith(HANDLE_PREFIX + "/")) {
+            try {
+                int index = Integer.parseInt(handle.substring(HANDLE_PREFIX.length() + 1));
+                return index >= 0 && index < itemCount ? index : null;
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /** Generate an item with its bundles and bitstreams. */
+    SyntheticItem load(int index) {
+        itemsLoaded.increment();
+        SplittableRandom random = new SplittableRandom(seed * 0x9e3779b97f4a7c15L + index);
+
+        SyntheticItem item = new SyntheticItem(this, index);
+        item.add("dc.title", "Synthetic item " + index);
+        // Infographics and Maps are skipped by FixJpgJpgThumbnails
+        int type = random.nextInt(100);
+        item.add(
+                "dcterms.type",
+                type < 2 ? "Infographic" : type < 4 ? "Map" : TYPES[type % TYPES.length]);
+
+        int countries = random.nextInt(maxCountries + 1);
+        boolean coded = random.nextInt(100) < codedPercent;
+        for (int i = 0; i < countries; i++) {
+            String country;
+            if (random.nextInt(100) < unmatchedPercent) {
+                country = NOT_COUNTRIES[random.nextInt(NOT_COUNTRIES.length)];
+            } else {
+                // skewed towards the first countries, roughly like a Zipf distribution
+                country = COUNTRIES[(int) (Math.pow(random.nextDouble(), 3) * COUNTRIES.length)];
+            }
+            item.add(COUNTRY_FIELD, country);
+
+            String alpha2 = coded ? CountryLookup.getInstance().getAlpha2(country) : null;
+            if (alpha2 != null) {
+                item.add(ALPHA2_FIELD, alpha2);
+            }
+        }
+
+        SyntheticBundle original = new SyntheticBundle(item, 0, "ORIGINAL");
+        SyntheticBundle thumbnail = new SyntheticBundle(item, 1, "THUMBNAIL");
+        item.bundles.add(original);
+        item.bundles.add(thumbnail);
+
+        // like SyntheticItems, a PDF and then either JPEGs with generated ".jpg.jpg" thumbnails
+        // or more PDFs
+        original.add(new SyntheticBitstream(original, 0, "report.pdf", "Report", 2_500_000, PDF));
+        thumbnail.add(
+                new SyntheticBitstream(
+                        thumbnail, 0, "report.pdf.jpg", "IM Thumbnail", 40_000, JPEG));
+        boolean jpgJpg = hasJpgJpgThumbnails(index);
+        for (int i = 1; i < bitstreams; i++) {
+            if (jpgJpg) {
+                String name = "photo-" + i + ".jpg";
+                original.add(
+                        new SyntheticBitstream(
+                                original, i, name, "Photo " + i, 60_000 + i, JPEG));
+                thumbnail.add(
+                        new SyntheticBitstream(
+                                thumbnail,
+                                i,
+                                name + ".jpg",
+                                "Generated Thumbnail",
+                                10_000,
+                                JPEG));
+            } else {
+                String name = "annex-" + i + ".pdf";
+                original.add(
+                        new SyntheticBitstream(
+                                original, i, name, "Annex " + i, 500_000 + i, PDF));
+                thumbnail.add(
+                        new SyntheticBitstream(
+                                thumbnail, i, name + ".jpg", "IM Thumbnail", 30_000, JPEG));
+            }
+        }
+
+        return item;
+    }
+
+    /** A number from 0 to 99 for each item, which is independent of the item's random numbers. */
+    private int percentile(int index, int salt) {
+        long hash = (seed + salt) * 0xbf58476d1ce4e5b9L + index * 0x94d049bb133111ebL;
+        hash ^= hash >>> 31;
+        hash *= 0x9e3779b97f4a7c15L;
+        hash ^= hash >>> 29;
+        return (int) Long.remainderUnsigned(hash, 100);
+    }
+
+    /** The header of a 600x400 JPEG, enough for ImageHeader to read its dimensions. */
+    static byte[] jpegHeader() {
+        return new byte[] {
+            (byte) 0xff, (byte) 0xd8, // start of image
+            (byte) 0xff, (byte) 0xc0, 0x00, 0x11, 0x08, // start of frame, 8 bits per sample
+            0x01, (byte) 0x90, 0x02, 0x58, // 400 high and 600 wide
+            0x03, 0x01, 0x22, 0x00, 0x02, 0x11, 0x01, 0x03, 0x11, 0x01
+        };
+    }
+
+    /**
+     * The real classes are Hibernate entities whose getters fetch metadata through DSpace
+     * services, so these subclasses override the getters the tools use to return plain fields.
+     */
+    static final class SyntheticItem extends Item {
+        private final SyntheticRepository repository;
+        private final int index;
+        private final UUID id;
+        private final Map<String, List<MetadataValue>> metadata = new LinkedHashMap<>();
+        private final List<Bundle> bundles = new ArrayList<>(2);
+
+        private SyntheticItem(SyntheticRepository repository, int index) {
+            this.repository = repository;
+            this.index = index;
+            this.id = repository.getItemId(index);
+        }
+
+        void add(String field, String value) {
+            metadata.computeIfAbsent(field, f -> new ArrayList<>())
+                    .add(new SyntheticMetadataValue(value));
+        }
+
+        void clear(String field) {
+            metadata.remove(field);
+        }
+
+        List<MetadataValue> getMetadata(String field) {
+            List<MetadataValue> values = metadata.get(field);
+            return values != null ? new ArrayList<>(values) : new ArrayList<>();
+        }
+
+        @Override
+        public UUID getID() {
+            return id;
+        }
+
+        @Override
+        public String getHandle() {
+            return HANDLE_PREFIX + "/" + index;
+        }
+
+        @Override
+        public String getName() {
+            List<MetadataValue> titles = metadata.get("dc.title");
+            return titles != null ? titles.get(0).getValue() : null;
+        }
+
+        @Override
+        public boolean isArchived() {
+            return true;
+        }
+
+        @Override
+        public Date getLastModified() {
+            return LAST_MODIFIED;
+        }
+
+        @Override
+        public Collection getOwningCollection() {
+            return repository.collections.get(index % repository.collections.size());
+        }
+
+        @Override
+        public List<Bundle> getBundles() {
+            return bundles;
+        }
+
+        @Override
+        public List<Bundle> getBundles(String name) {
+            List<Bundle> matchingBundles = new ArrayList<>();
+            for (Bundle bundle : bundles) {
+                if (name.equals(bundle.getName())) {
+                    matchingBundles.add(bundle);
+                }
+            }
+            return matchingBundles;
+        }
+    }
+
+    static final class SyntheticBundle extends Bundle {
+        private final SyntheticItem item;
+        private final UUID id;
+        private final String name;
+        private final List<Bitstream> bitstreams = new ArrayList<>();
+
+        private SyntheticBundle(SyntheticItem item, int number, String name) {
+            this.item = item;
+            this.id = new UUID(BUNDLE, (long) item.index << 8 | number);
+            this.name = name;
+        }
+
+        void add(Bitstream bitstream) {
+            bitstreams.add(bitstream);
+        }
+
+        @Override
+        public UUID getID() {
+            return id;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public List<Item> getItems() {
+            return Collections.singletonList(item);
+        }
+
+        @Override
+        public List<Bitstream> getBitstreams() {
+            // like DSpace, return a copy so callers can remove bitstreams while iterating
+            return new ArrayList<>(bitstreams);
+        }
+
+        @Override
+        public void removeBitstream(Bitstream bitstream) {
+            if (bitstreams.remove(bitstream)) {
+                item.repository.bitstreamsRemoved.increment();
+            }
+        }
+    }
+
+    static final class SyntheticBitstream extends Bitstream {
+        private final SyntheticBundle bundle;
+        private final UUID id;
+        private final String name;
+        private final String description;
+        private final long sizeBytes;
+        private final BitstreamFormat format;
+
+        private SyntheticBitstream(
+                SyntheticBundle bundle,
+                int number,
+                String name,
+                String description,
+                long sizeBytes,
+                BitstreamFormat format) {
+            this.bundle = bundle;
+            this.id = new UUID(BITSTREAM, bundle.id.getLeastSignificantBits() << 8 | number);
+            this.name = name;
+            this.description = description;
+            this.sizeBytes = sizeBytes;
+            this.format = format;
+        }
+
+        @Override
+        public UUID getID() {
+            return id;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getDescription() {
+            return description;
+        }
+
+        @Override
+        public long getSizeBytes() {
+            return sizeBytes;
+        }
+
+        @Override
+        public BitstreamFormat getFormat(Context context) {
+            return format;
+        }
+
+        @Override
+        public List<Bundle> getBundles() {
+            return Collections.singletonList(bundle);
+        }
+    }
+
+    static final class SyntheticFormat extends BitstreamFormat {
+        private final Integer id;
+        private final String mimeType;
+        private final String shortDescription;
+
+        private SyntheticFormat(int id, String mimeType, String shortDescription) {
+            this.id = id;
+            this.mimeType = mimeType;
+            this.shortDescription = shortDescription;
+        }
+
+        @Override
+        public Integer getID() {
+            return id;
+        }
+
+        @Override
+        public String getMIMEType() {
+            return mimeType;
+        }
+
+        @Override
+        public String getShortDescription() {
+            return shortDescription;
+        }
+    }
+
+    static final class SyntheticMetadataValue extends MetadataValue {
+        private final String value;
+
+        private SyntheticMetadataValue(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public String getValue() {
+            return value;
+        }
+    }
+
+    static final class SyntheticCollection extends Collection {
+        private final UUID id;
+        private final String handle;
+        private final int number;
+
+        private SyntheticCollection(UUID id, String handle, int number) {
+            this.id = id;
+            this.handle = handle;
+            this.number = number;
+        }
+
+        @Override
+        public UUID getID() {
+            return id;
+        }
+
+        @Override
+        public String getHandle() {
+            return handle;
+        }
+
+        @Override
+        public String getName() {
+            return "Synthetic collection " + number;
+        }
+    }
+
+    static final class SyntheticCommunity extends Community {
+        private final UUID id;
+        private final String handle;
+        private final List<Community> subcommunities = new ArrayList<>();
+        private final List<Collection> collections = new ArrayList<>();
+
+        private SyntheticCommunity(UUID id, String handle) {
+            this.id = id;
+            this.handle = handle;
+        }
+
+        @Override
+        public UUID getID() {
+            return id;
+        }
+
+        @Override
+        public String getHandle() {
+            return handle;
+        }
+
+        @Override
+        public String getName() {
+            return "Synthetic community";
+        }
+
+        @Override
+        public List<Community> getSubcommunities() {
+            return subcommunities;
+        }
+
+        @Override
+        public List<Collection> getCollections() {
+            return collections;
+        }
+    }
+}
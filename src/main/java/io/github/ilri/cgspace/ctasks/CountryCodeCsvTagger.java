@@ -0,0 +1,348 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.ctasks;
+
+import io.github.ilri.cgspace.util.CsvReader;
+import io.github.ilri.cgspace.util.CsvWriter;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Add ISO 3166-1 Alpha2 country codes to the items in a CSV file from DSpace's <code>
+ * metadata-export</code> without a database, for backfilling the codes of a whole repository.
+ *
+ * <p>The export is read one row at a time and the countries are matched the same way as by {@link
+ * CountryCodeTagger}, with a {@link CountryMatcher}. Only the rows whose codes change are written
+ * to a new CSV file with the item's <code>id</code> and its country code columns, which can then
+ * be applied with <code>metadata-import</code>. Neither file is ever held in memory, so the size of
+ * the export doesn't matter, and only the id, country, and country code columns of each row are
+ * turned into strings.
+ *
+ * <p>Like the curation task, only items without any codes get them unless <code>--force</code> is
+ * given, and then only the items whose codes would change. The codes are written in English like
+ * the curation task does, and the columns of the field in other languages are emptied, so that
+ * <code>metadata-import</code> replaces all of the item's existing codes.
+ */
+public final class CountryCodeCsvTagger {
+    private static final String NAME = "CountryCodeCsvTagger";
+
+    static final String DEFAULT_COUNTRY_FIELD = "cg.coverage.country";
+    static final String DEFAULT_ALPHA2_FIELD = "cg.coverage.iso3166-alpha2";
+    // the default bulkedit.valueseparator and bulkedit.authorityseparator in DSpace
+    private static final String VALUE_SEPARATOR = "||";
+    private static final String AUTHORITY_SEPARATOR = "::";
+    private static final String LANGUAGE = "en_US";
+
+    private final String countryField;
+    private final String alpha2Field;
+    private final boolean force;
+    private final CountryMatcher countryMatcher;
+
+    private long rows;
+    private long changedRows;
+    private long clearedRows;
+    private long noCountries;
+    private long hadCodes;
+    private long unchanged;
+    private long noMatches;
+
+    CountryCodeCsvTagger(String countryField, String alpha2Field, boolean force, int cacheSize) {
+        this.countryField = countryField;
+        this.alpha2Field = alpha2Field;
+        this.force = force;
+        this.countryMatcher = new CountryMatcher(CountryLookup.getInstance(), cacheSize);
+    }
+
+    public static void main(String[] args) {
+        Options options = new Options();
+        options.addOption(
+                Option.builder("i")
+                        .longOpt("input")
+                        .hasArg()
+                        .argName("FILE")
+                        .desc("CSV file from metadata-export to read, or - for standard input")
+                        .build());
+        options.addOption(
+                Option.builder("o")
+                        .longOpt("output")
+                        .hasArg()
+                        .argName("FILE")
+                        .desc(
+                                "CSV file for metadata-import to write the changed items to, or -"
+                                        + " for standard output")
+                        .build());
+        options.addOption(
+                Option.builder()
+                        .longOpt("country-field")
+                        .hasArg()
+                        .argName("FIELD")
+                        .desc(
+                                "field containing ISO 3166-1 country names (default "
+                                        + DEFAULT_COUNTRY_FIELD
+                                        + ")")
+                        .build());
+        options.addOption(
+                Option.builder()
+                        .longOpt("alpha2-field")
+                        .hasArg()
+                        .argName("FIELD")
+                        .desc(
+                                "field containing ISO 3166-1 Alpha2 country codes (default "
+                                        + DEFAULT_ALPHA2_FIELD
+                                        + ")")
+                        .build());
+        options.addOption(
+                "f", "force", false, "replace existing country codes if they would change");
+        options.addOption(
+                Option.builder()
+                        .longOpt("cache-size")
+                        .hasArg()
+                        .argName("N")
+                        .desc("number of distinct country values to cache (default 10000)")
+                        .build());
+        options.addOption("h", "help", false, "show this help");
+
+        CommandLine line;
+        CountryCodeCsvTagger tagger;
+        try {
+            line = new DefaultParser().parse(options, args);
+            if (line.hasOption("help")) {
+                printHelp(options);
+                return;
+            }
+            if (!line.hasOption("input") || !line.hasOption("output")) {
+                throw new ParseException("Missing the input or output file");
+            }
+            tagger =
+                    new CountryCodeCsvTagger(
+                            line.getOptionValue("country-field", DEFAULT_COUNTRY_FIELD),
+                            line.getOptionValue("alpha2-field", DEFAULT_ALPHA2_FIELD),
+                            line.hasOption("force"),
+                            Integer.parseInt(line.getOptionValue("cache-size", "10000")));
+        } catch (ParseException | NumberFormatException e) {
+            System.err.println(NAME + ": " + e.getMessage());
+            printHelp(options);
+            return;
+        }
+
+        String input = line.getOptionValue("input");
+        String output = line.getOptionValue("output");
+        // keep the summary out of the CSV
+        PrintStream console = "-".equals(output) ? System.err : System.out;
+
+        long startNanos = System.nanoTime();
+        try (CsvReader reader = openReader(input);
+                CsvWriter writer = openWriter(output)) {
+            tagger.tag(reader, writer);
+        } catch (NoSuchFileException e) {
+            System.err.println(NAME + ": no such file: " + e.getMessage());
+            return;
+        } catch (IOException e) {
+            System.err.println(NAME + ": " + e.getMessage());
+            return;
+        }
+
+        tagger.printSummary(console, startNanos);
+    }
+
+    private static CsvReader openReader(String file) throws IOException {
+        InputStream in = "-".equals(file) ? System.in : Files.newInputStream(Paths.get(file));
+        return new CsvReader(in);
+    }
+
+    private static CsvWriter openWriter(String file) throws IOException {
+        OutputStream out = "-".equals(file) ? System.out : Files.newOutputStream(Paths.get(file));
+        return new CsvWriter(
+                new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024));
+    }
+
+    /** Read an export and write the rows whose country codes change. */
+    void tag(CsvReader reader, CsvWriter writer) throws IOException {
+        List<String> row = new ArrayList<>();
+        if (!reader.next(row)) {
+            throw new IOException("the input is empty");
+        }
+
+        int idColumn = row.indexOf("id");
+        if (idColumn == -1) {
+            throw new IOException("the input has no id column");
+        }
+        List<Integer> countryColumns = new ArrayList<>();
+        List<Integer> codeColumns = new ArrayList<>();
+        // the id, then the code columns of the export and the one the codes are written to
+        List<String> header = new ArrayList<>();
+        header.add("id");
+        boolean[] columns = new boolean[row.size()];
+        columns[idColumn] = true;
+        for (int i = 0; i < row.size(); i++) {
+            if (isField(row.get(i), countryField)) {
+                countryColumns.add(i);
+                columns[i] = true;
+            } else if (isField(row.get(i), alpha2Field)) {
+                codeColumns.add(i);
+                header.add(row.get(i));
+                columns[i] = true;
+            }
+        }
+        if (countryColumns.isEmpty()) {
+            throw new IOException("the input has no " + countryField + " column");
+        }
+        int targetColumn = header.indexOf(alpha2Field + "[" + LANGUAGE + "]");
+        if (targetColumn == -1) {
+            targetColumn = header.size();
+            header.add(alpha2Field + "[" + LANGUAGE + "]");
+        }
+
+        reader.setColumns(columns);
+        writer.write(header.toArray(new String[0]));
+
+        // reused for every row so that memory use doesn't depend on the size of the export
+        String[] delta = new String[header.size()];
+        List<String> countries = new ArrayList<>();
+        List<String> oldCodes = new ArrayList<>();
+        List<String> newCodes = new ArrayList<>();
+        while (reader.next(row)) {
+            String id = get(row, idColumn);
+            if (id.isEmpty()) {
+                continue;
+            }
+            rows++;
+
+            countries.clear();
+            for (int column : countryColumns) {
+                split(get(row, column), countries);
+            }
+            if (countries.isEmpty()) {
+                noCountries++;
+                continue;
+            }
+
+            oldCodes.clear();
+            for (int column : codeColumns) {
+                split(get(row, column), oldCodes);
+            }
+            if (!oldCodes.isEmpty() && !force) {
+                hadCodes++;
+                continue;
+            }
+
+            newCodes.clear();
+            for (String country : countries) {
+                String code = countryMatcher.getAlpha2(country);
+                if (code != null && !newCodes.contains(code)) {
+                    newCodes.add(code);
+                }
+            }
+
+            if (newCodes.isEmpty() && oldCodes.isEmpty()) {
+                noMatches++;
+                continue;
+            }
+            if (oldCodes.equals(newCodes)) {
+                unchanged++;
+                continue;
+            }
+
+            // the "force" option clears existing codes even if we don't find any new ones
+            if (newCodes.isEmpty()) {
+                clearedRows++;
+            }
+            for (int i = 0; i < delta.length; i++) {
+                delta[i] = "";
+            }
+            delta[0] = id;
+            delta[targetColumn] = String.join(VALUE_SEPARATOR, newCodes);
+            writer.write(delta);
+            changedRows++;
+        }
+    }
+
+    /** Whether a column is a field, with or without a language, like "dc.title[en_US]". */
+    static boolean isField(String column, String field) {
+        return column.startsWith(field)
+                && (column.length() == field.length() || column.charAt(field.length()) == '[');
+    }
+
+    private static String get(List<String> row, int column) {
+        String field = column < row.size() ? row.get(column) : null;
+        return field != null ? field : "";
+    }
+
+    /** Add the values of a field to a list, without their authorities. */
+    static void split(String field, List<String> values) {
+        int start = 0;
+        while (start < field.length()) {
+            int end = field.indexOf(VALUE_SEPARATOR, start);
+            if (end == -1) {
+                end = field.length();
+            }
+            int authority = field.indexOf(AUTHORITY_SEPARATOR, start);
+            String value =
+                    field.substring(start, authority != -1 && authority < end ? authority : end);
+            if (!value.isEmpty()) {
+                values.add(value);
+            }
+            start = end + VALUE_SEPARATOR.length();
+        }
+    }
+
+    private void printSummary(PrintStream console, long startNanos) {
+        long elapsedMillis = Math.max(1, (System.nanoTime() - startNanos) / 1_000_000);
+
+        console.println(
+                NAME
+                        + ": read "
+                        + rows
+                        + " item(s), wrote "
+                        + changedRows
+                        + " changed item(s), in "
+                        + elapsedMillis / 1000
+                        + "s ("
+                        + rows * 1000 / elapsedMillis
+                        + " items/s)");
+        console.println(
+                "> No countries: "
+                        + noCountries
+                        + ", already had codes: "
+                        + hadCodes
+                        + ", codes unchanged: "
+                        + unchanged
+                        + ", no matching countries: "
+                        + noMatches
+                        + ", codes cleared: "
+                        + clearedRows);
+        console.println("> " + countryMatcher);
+    }
+
+    private static void printHelp(Options options) {
+        new HelpFormatter()
+                .printHelp(
+                        "java -cp \"dspace/lib/*\""
+                                + " io.github.ilri.cgspace.ctasks."
+                                + NAME
+                                + " -i FILE -o FILE",
+                        options);
+    }
+}
@@ -6,7 +6,13 @@
 
 package io.github.ilri.cgspace.ctasks;
 
-import com.google.gson.Gson;
+import io.github.ilri.cgspace.metrics.Metrics;
+import io.github.ilri.cgspace.metrics.PhaseTimer;
+import io.github.ilri.cgspace.util.AdaptiveThrottle;
+import io.github.ilri.cgspace.util.DeferredIndex;
+import io.github.ilri.cgspace.util.FingerprintIndex;
+import io.github.ilri.cgspace.util.Shard;
+import io.github.ilri.cgspace.util.SummaryFile;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -15,27 +21,158 @@ import org.dspace.content.DSpaceObject;
 import org.dspace.content.Item;
 import org.dspace.content.MetadataValue;
 import org.dspace.core.Constants;
+import org.dspace.core.Context;
 import org.dspace.curate.AbstractCurationTask;
 import org.dspace.curate.Curator;
+import org.dspace.curate.Distributive;
+import org.dspace.discovery.SearchServiceException;
 
-import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
+import java.util.UUID;
 
+/**
+ * Add ISO 3166-1 Alpha2, Alpha3, and numeric country codes to items based on their existing country
+ * metadata.
+ *
+ * <p>Each type of country code is written to its own field (see <code>iso3166-alpha2.field</code>,
+ * <code>iso3166-alpha3.field</code>, and <code>iso3166-numeric.field</code>), and any combination
+ * of them can be configured. The country field is read and matched once per item no matter how
+ * many codes are derived from it, and all of an item's codes are written with a single update.
+ *
+ * <p>The task is {@link Distributive} so that it sees the whole community or collection it is run
+ * on and can write country codes in batches (see <code>batch.size</code>) instead of updating and
+ * dispatching events for each item separately. Because the curation system then only commits once
+ * for the whole community or collection, the task commits every batch itself, and without a batch
+ * size every changed item, and removes the items it has checked from the Hibernate session.
+ *
+ * <p>The time spent finding and writing country codes is recorded by {@link PhaseTimer}s, which can
+ * be watched over JMX and are written to a Prometheus text file (see <code>metrics.file</code>)
+ * after each run.
+ *
+ * <p>With <code>index.list</code> or <code>index.reindex</code> the changed items aren't reindexed
+ * one by one while the task runs, but listed or reindexed together at the end (see {@link
+ * DeferredIndex}).
+ *
+ * <p>With <code>fingerprint.file</code> the task remembers a fingerprint of each item's countries
+ * and country codes together with the version of the vocabulary (see {@link FingerprintIndex}),
+ * and skips the items that haven't changed since the last run without matching their countries
+ * again. A rerun of the "force" profile then only touches the items whose codes would change.
+ *
+ * <p>With <code>throttle.latency</code> the task slows down and writes smaller batches while items
+ * take longer than that many milliseconds on average (see {@link AdaptiveThrottle}), and reports
+ * every change of its rate.
+ *
+ * <p>To split a large run across several processes or hosts, {@link CountryCodeTaggerRunner} runs
+ * the task on one {@link Shard} of the items at a time.
+ */
+@Distributive
 public class CountryCodeTagger extends AbstractCurationTask {
+    // includes writing the batch when an item fills it up
+    private static final PhaseTimer ITEM = Metrics.timer("CountryCodeTagger", "item");
+    private static final PhaseTimer MATCH_COUNTRIES =
+            Metrics.timer("CountryCodeTagger", "match_countries");
+    private static final PhaseTimer UPDATE_ITEM =
+            Metrics.timer("CountryCodeTagger", "update_item");
+    private static final PhaseTimer COMMIT = Metrics.timer("CountryCodeTagger", "commit");
+
+    /** A type of country code and the property that configures its field. */
+    private enum CountryCodeType {
+        ALPHA2("alpha2", "iso3166-alpha2.field"),
+        ALPHA3("alpha3", "iso3166-alpha3.field"),
+        NUMERIC("numeric", "iso3166-numeric.field");
+
+        private final String label;
+        private final String property;
+
+        CountryCodeType(String label, String property) {
+            this.label = label;
+            this.property = property;
+        }
+
+        private String get(CountryLookup.CountryCodes codes) {
+            switch (this) {
+                case ALPHA2:
+                    return codes.getAlpha2();
+                case ALPHA3:
+                    return codes.getAlpha3();
+                default:
+                    return codes.getNumeric();
+            }
+        }
+    }
+
+    /** A field to add one type of country code to. */
+    private static class CountryCodeField {
+        private final CountryCodeType type;
+        private final String field;
+        // the field split into schema, element, and qualifier once so we can use it with
+        // item.addMetadata()
+        private final String[] fieldParts;
+
+        private CountryCodeField(CountryCodeType type, String field) {
+            this.type = type;
+            this.field = field;
+            this.fieldParts = field.split("\\.");
+        }
+
+        private String getSchema() {
+            return fieldParts[0];
+        }
+
+        private String getElement() {
+            return fieldParts[1];
+        }
+
+        private String getQualifier() {
+            return fieldParts.length > 2 ? fieldParts[2] : null;
+        }
+    }
+
     public class CountryCodeTaggerConfig {
-        private final String isocodesJsonPath = "/io/github/ilri/cgspace/ctasks/iso_3166-1.json";
-        private final String cgspaceCountriesJsonPath =
-                "/io/github/ilri/cgspace/ctasks/cgspace-countries.json";
         private final String iso3166Field = taskProperty("iso3166.field");
-        private final String iso3166Alpha2Field = taskProperty("iso3166-alpha2.field");
+        // the configured country code fields, in the order of CountryCodeType
+        private final List<CountryCodeField> countryCodeFields = readCountryCodeFields();
         private final boolean forceupdate = taskBooleanProperty("forceupdate", false);
+        // number of changed items to write and commit at once, or 0 to write and commit items
+        // immediately
+        private final int batchSize = taskIntProperty("batch.size", 0);
+        // number of distinct country values to remember the matching country code for
+        private final int cacheSize = taskIntProperty("cache.size", 10000);
+        // where to write the timing metrics after each run, if anywhere
+        private final String metricsFile = taskProperty("metrics.file");
+        // where to write the UUIDs of changed items instead of reindexing them, if anywhere
+        private final String indexList = taskProperty("index.list");
+        // reindex the changed items at the end instead of one by one
+        private final boolean indexReindex = taskBooleanProperty("index.reindex", false);
+        // where to keep the fingerprints of items to skip unchanged ones in the next run, if
+        // anywhere
+        private final String fingerprintFile = taskProperty("fingerprint.file");
+        // the average time per item in milliseconds to slow down above, or 0 to never slow down
+        private final int throttleLatency = taskIntProperty("throttle.latency", 0);
 
         private final Logger log = LogManager.getLogger();
+
+        private boolean isIndexDeferred() {
+            return (indexList != null && !indexList.isEmpty()) || indexReindex;
+        }
+
+        private List<CountryCodeField> readCountryCodeFields() {
+            List<CountryCodeField> fields = new ArrayList<>();
+            for (CountryCodeType type : CountryCodeType.values()) {
+                String field = taskProperty(type.property);
+                if (field != null && !field.isEmpty()) {
+                    fields.add(new CountryCodeField(type, field));
+                }
+            }
+            return fields;
+        }
     }
 
     public static class CountryCodeTaggerResult {
@@ -59,33 +196,245 @@ public class CountryCodeTagger extends AbstractCurationTask {
         }
     }
 
+    private CountryCodeTaggerConfig config;
+    private CountryMatcher countryMatcher;
+    private PendingCountryCodes pendingCountryCodes;
+    // only set when indexing is deferred
+    private DeferredIndex deferredIndex;
+    // only set when there is a fingerprint file
+    private FingerprintIndex fingerprints;
+    private long fingerprintSeed;
+    private int unchangedItems = 0;
+    // only set when curating one shard of the items
+    private Shard shard;
+    private long checkedItems = 0;
+    // only set when throttling
+    private AdaptiveThrottle throttle;
+    private boolean reportedCountryLookup = false;
+
+    /**
+     * Only curate the items in one shard. Each shard keeps its own fingerprint file, index list,
+     * and metrics file, named after the configured ones. Must be called before {@link
+     * #init(Curator, String)}.
+     */
+    void setShard(Shard shard) {
+        this.shard = shard;
+    }
+
+    /** The file for this shard, if the task runs on one. */
+    private String shardFile(String file) {
+        return shard != null ? file + "." + shard.getName() : file;
+    }
+
+    @Override
+    public void init(Curator curator, String taskId) throws IOException {
+        super.init(curator, taskId);
+
+        // Load configuration once per task instance (ie, per profile) instead of for every item
+        config = new CountryCodeTaggerConfig();
+        if (config.countryCodeFields.isEmpty()) {
+            throw new IOException(
+                    taskId
+                            + ": no country code fields configured, set at least one of"
+                            + " iso3166-alpha2.field, iso3166-alpha3.field, and"
+                            + " iso3166-numeric.field");
+        }
+        countryMatcher = new CountryMatcher(CountryLookup.getInstance(), config.cacheSize);
+        pendingCountryCodes = new PendingCountryCodes();
+        if (config.throttleLatency > 0) {
+            throttle = new AdaptiveThrottle(config.throttleLatency);
+        }
+
+        if (config.fingerprintFile != null && !config.fingerprintFile.isEmpty()) {
+            fingerprints = FingerprintIndex.open(new File(shardFile(config.fingerprintFile)));
+
+            // a new vocabulary or different fields change the fingerprint of every item
+            fingerprintSeed =
+                    FingerprintIndex.hash(
+                            FingerprintIndex.HASH_SEED,
+                            Long.toHexString(CountryLookup.getInstance().getVersion()));
+            fingerprintSeed = FingerprintIndex.hash(fingerprintSeed, config.iso3166Field);
+            for (CountryCodeField field : config.countryCodeFields) {
+                fingerprintSeed = FingerprintIndex.hash(fingerprintSeed, field.type.property);
+                fingerprintSeed = FingerprintIndex.hash(fingerprintSeed, field.field);
+            }
+        }
+    }
+
     @Override
     public int perform(DSpaceObject dso) throws IOException {
+        // The lookup is shared by all task instances in this JVM so only the first task to get
+        // here pays the cost of building it. Report its statistics once per task.
+        if (!reportedCountryLookup) {
+            report(CountryLookup.getInstance().toString());
+            reportedCountryLookup = true;
+        }
+
         // gotta define this here so we can access it after the if context...
-        CountryCodeTaggerResult alpha2Result = new CountryCodeTaggerResult();
+        CountryCodeTaggerResult countryCodesResult = new CountryCodeTaggerResult();
+        pendingCountryCodes.reset();
+        unchangedItems = 0;
+        checkedItems = 0;
+
+        // only set when indexing is deferred
+        Context curationContext = null;
+        String dispatcher = null;
+        try {
+            if (config.isIndexDeferred()) {
+                // the curation system commits the context too, so this covers all changed items
+                deferredIndex = new DeferredIndex();
+                curationContext = Curator.curationContext();
+                dispatcher = DeferredIndex.suppressIndexing(curationContext);
+            }
+
+            if (dso.getType() == Constants.ITEM) {
+                countryCodesResult = performCountryCodes((Item) dso, config);
+                pendingCountryCodes.flush();
+            } else {
+                // visit all items in this site, community, or collection via performItem()
+                distribute(dso);
 
-        if (dso.getType() == Constants.ITEM) {
-            // Load configuration
-            CountryCodeTaggerConfig config = new CountryCodeTaggerConfig();
+                // write whatever is left over from the last batch
+                pendingCountryCodes.flush();
 
-            Item item = (Item) dso;
+                countryCodesResult.setStatus(Curator.CURATE_SUCCESS);
+                countryCodesResult.setResult(
+                        dso.getHandle()
+                                + ": updated "
+                                + pendingCountryCodes.flushedItems
+                                + " item(s) in "
+                                + pendingCountryCodes.flushedBatches
+                                + " batch(es)"
+                                + (fingerprints != null
+                                        ? ", " + unchangedItems + " unchanged since the last run"
+                                        : ""));
+
+                report(countryMatcher.toString());
+                if (throttle != null) {
+                    report("Throttle: " + throttle);
+                }
+            }
+            if (deferredIndex != null) {
+                finishDeferredIndex();
+            }
+            if (fingerprints != null) {
+                int added = fingerprints.getAdded();
+                fingerprints.save();
+                report(
+                        "Saved "
+                                + added
+                                + " item fingerprint(s) to "
+                                + shardFile(config.fingerprintFile)
+                                + ", "
+                                + fingerprints.size()
+                                + " in total");
+            }
+        } catch (SQLException | SearchServiceException throwables) {
+            throwables.printStackTrace();
+        } finally {
+            // the context is shared with the other tasks of the curation run
+            if (curationContext != null) {
+                DeferredIndex.restoreIndexing(curationContext, dispatcher);
+            }
+        }
+
+        if (pendingCountryCodes.failedItems > 0) {
+            countryCodesResult.setStatus(Curator.CURATE_ERROR);
+        }
+
+        setResult(countryCodesResult.getResult());
+        report(countryCodesResult.getResult());
+
+        if (config.metricsFile != null && !config.metricsFile.isEmpty()) {
+            Metrics.writePrometheus(new File(shardFile(config.metricsFile)));
+        }
+
+        return countryCodesResult.getStatus();
+    }
 
+    /** Write out or reindex the items changed by this run. */
+    private void finishDeferredIndex() throws SQLException, SearchServiceException, IOException {
+        if (config.indexList != null && !config.indexList.isEmpty()) {
+            deferredIndex.write(new File(shardFile(config.indexList)));
+            report(
+                    "Wrote "
+                            + deferredIndex.size()
+                            + " changed item(s) to reindex to "
+                            + shardFile(config.indexList));
+        }
+
+        if (config.indexReindex) {
+            // don't put anything in the index that could still be rolled back
+            Context context = Curator.curationContext();
+            context.commit();
+            report("Reindexed " + deferredIndex.reindex(context) + " changed item(s)");
+        }
+    }
+
+    /** Add the counts of the last run to a summary. */
+    void summarize(SummaryFile summary) {
+        summary.count("updated", pendingCountryCodes.flushedItems);
+        summary.count("batches", pendingCountryCodes.flushedBatches);
+        summary.count("failed", pendingCountryCodes.failedItems);
+        if (fingerprints != null) {
+            summary.count("unchanged since the last run", unchangedItems);
+        }
+    }
+
+    /** The number of items the last run checked, only counting the items in its shard. */
+    long getCheckedItems() {
+        return checkedItems;
+    }
+
+    @Override
+    protected void performItem(Item item) throws SQLException, IOException {
+        // the other items are left to the other shards
+        if (shard != null && !shard.contains(item.getID())) {
+            Curator.curationContext().uncacheEntity(item);
+            return;
+        }
+        checkedItems++;
+
+        if (throttle != null) {
             try {
-                alpha2Result = performAlpha2(item, config);
-            } catch (SQLException throwables) {
-                throwables.printStackTrace();
+                throttle.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while throttled");
             }
+        }
 
-            setResult(alpha2Result.getResult());
-            report(alpha2Result.getResult());
+        long start = System.nanoTime();
+        CountryCodeTaggerResult countryCodesResult = performCountryCodes(item, config);
+        ITEM.stop(start);
+
+        report(countryCodesResult.getResult());
+
+        // Queued items are removed from the session once their batch is written, but most items
+        // of a rerun are never queued and would otherwise stay in the session until the end.
+        if (!pendingCountryCodes.contains(item)) {
+            Curator.curationContext().uncacheEntity(item);
         }
 
-        return alpha2Result.getStatus();
+        // the item's time includes writing its batch, if it filled one up
+        if (throttle != null && throttle.record(1, System.nanoTime() - start)) {
+            report("Throttle: " + throttle);
+        }
     }
 
+    /**
+     * @deprecated the task adds all of the configured country codes in one pass now, not only the
+     *     Alpha2 codes, use {@link #performCountryCodes(Item, CountryCodeTaggerConfig)}
+     */
+    @Deprecated
     public CountryCodeTaggerResult performAlpha2(Item item, CountryCodeTaggerConfig config)
             throws IOException, SQLException {
-        CountryCodeTaggerResult alpha2Result = new CountryCodeTaggerResult();
+        return performCountryCodes(item, config);
+    }
+
+    public CountryCodeTaggerResult performCountryCodes(
+            Item item, CountryCodeTaggerConfig config) throws IOException, SQLException {
+        CountryCodeTaggerResult countryCodesResult = new CountryCodeTaggerResult();
         String itemHandle = item.getHandle();
 
         List<MetadataValue> itemCountries =
@@ -93,104 +442,355 @@ public class CountryCodeTagger extends AbstractCurationTask {
 
         // skip items that don't have country metadata
         if (itemCountries.isEmpty()) {
-            alpha2Result.setResult(itemHandle + ": no countries, skipping.");
-            alpha2Result.setStatus(Curator.CURATE_SKIP);
+            countryCodesResult.setResult(itemHandle + ": no countries, skipping.");
+            countryCodesResult.setStatus(Curator.CURATE_SKIP);
+
+            return countryCodesResult;
+        }
+
+        // check the item's country codes, if any, and only fill the fields that don't have any
+        List<List<String>> oldCodesByField = new ArrayList<>();
+        List<Integer> fieldsToUpdate = new ArrayList<>();
+        for (CountryCodeField field : config.countryCodeFields) {
+            List<String> oldCodes = new ArrayList<>();
+            for (MetadataValue itemCountryCode :
+                    itemService.getMetadataByMetadataString(item, field.field)) {
+                oldCodes.add(itemCountryCode.getValue());
+            }
+
+            if (oldCodes.isEmpty() || config.forceupdate) {
+                fieldsToUpdate.add(oldCodesByField.size());
+            }
+            oldCodesByField.add(oldCodes);
+        }
+
+        if (fieldsToUpdate.isEmpty()) {
+            countryCodesResult.setResult(itemHandle + ": item has country codes, skipping");
+            countryCodesResult.setStatus(Curator.CURATE_SKIP);
+
+            return countryCodesResult;
+        }
+
+        // skip items whose countries and codes are the same as after the last run
+        if (fingerprints != null
+                && fingerprints.get(item.getID()) == fingerprint(itemCountries, oldCodesByField)) {
+            countryCodesResult.setResult(itemHandle + ": unchanged since the last run, skipping");
+            countryCodesResult.setStatus(Curator.CURATE_SKIP);
+            unchangedItems++;
+
+            return countryCodesResult;
+        }
+
+        // a single (cached) lookup covers the ISO 3166-1 and the CGSpace countries and gives us
+        // every type of code, so each country is only matched once however many fields we fill
+        long start = System.nanoTime();
+        List<CountryLookup.CountryCodes> matchedCountries = new ArrayList<>();
+        for (MetadataValue itemCountry : itemCountries) {
+            CountryLookup.CountryCodes codes = countryMatcher.getCodes(itemCountry.getValue());
+
+            // all names of a country share the same codes, so this also drops an item's variants
+            // of the same country name
+            if (codes != null && !matchedCountries.contains(codes)) {
+                matchedCountries.add(codes);
+            }
+        }
+        MATCH_COUNTRIES.stop(start);
+
+        // the codes the item will have once the changed fields are written
+        List<List<String>> newCodesByField = new ArrayList<>(oldCodesByField);
+        List<PendingField> changedFields = new ArrayList<>();
+        List<String> addedCodes = new ArrayList<>();
+        for (int fieldIndex : fieldsToUpdate) {
+            CountryCodeField field = config.countryCodeFields.get(fieldIndex);
+            List<String> oldCodes = oldCodesByField.get(fieldIndex);
+
+            List<String> newCodes = new ArrayList<>();
+            for (CountryLookup.CountryCodes codes : matchedCountries) {
+                // don't add the same code twice, for example the numeric code of CD and ZR
+                String code = field.type.get(codes);
+                if (!newCodes.contains(code)) {
+                    newCodes.add(code);
+                }
+            }
+
+            // When forcing an update we would clear the existing country codes and add the same
+            // ones back for most items, so don't touch fields whose codes are the same.
+            if (!oldCodes.isEmpty() && oldCodes.equals(newCodes)) {
+                continue;
+            }
+
+            // the "force" profile clears existing country codes even if we don't find any new
+            // ones
+            boolean clearCodes = !oldCodes.isEmpty();
+
+            if (!newCodes.isEmpty() || clearCodes) {
+                changedFields.add(new PendingField(field, clearCodes, newCodes));
+                newCodesByField.set(fieldIndex, newCodes);
+            }
+            if (!newCodes.isEmpty()) {
+                addedCodes.add(newCodes.size() + " " + field.type.label);
+            }
+        }
+
+        // Only remember the result if every field was checked. Otherwise a run without
+        // forceupdate would make a later "force" run skip items whose codes it never checked.
+        long newFingerprint = 0;
+        if (fingerprints != null && fieldsToUpdate.size() == config.countryCodeFields.size()) {
+            newFingerprint = fingerprint(itemCountries, newCodesByField);
+        }
+
+        if (changedFields.isEmpty()) {
+            if (newFingerprint != 0) {
+                fingerprints.put(item.getID(), newFingerprint);
+            }
+
+            if (!matchedCountries.isEmpty()) {
+                countryCodesResult.setResult(itemHandle + ": country codes unchanged, skipping");
+                countryCodesResult.setStatus(Curator.CURATE_SKIP);
+            } else {
+                countryCodesResult.setResult(itemHandle + ": no matching countries found");
+                countryCodesResult.setStatus(Curator.CURATE_SUCCESS);
+            }
+
+            return countryCodesResult;
+        }
+
+        // all of the item's fields are written with one update
+        pendingCountryCodes.add(item, changedFields, newFingerprint);
+
+        if (!addedCodes.isEmpty()) {
+            countryCodesResult.setResult(
+                    itemHandle
+                            + ": added "
+                            + String.join(", ", addedCodes)
+                            + " country code(s)");
         } else {
-            Gson gson = new Gson();
-
-            // TODO: convert to try:
-            // https://docs.oracle.com/javase/tutorial/essential/exceptions/tryResourceClose.html
-            BufferedReader reader =
-                    new BufferedReader(
-                            new InputStreamReader(
-                                    Objects.requireNonNull(this.getClass().getResourceAsStream(config.isocodesJsonPath))));
-            ISO3166CountriesVocabulary isocodesCountriesJson =
-                    gson.fromJson(reader, ISO3166CountriesVocabulary.class);
-            reader.close();
-
-            reader =
-                    new BufferedReader(
-                            new InputStreamReader(
-                                    Objects.requireNonNull(this.getClass()
-                                            .getResourceAsStream(config.cgspaceCountriesJsonPath))));
-            CGSpaceCountriesVocabulary cgspaceCountriesJson =
-                    gson.fromJson(reader, CGSpaceCountriesVocabulary.class);
-            reader.close();
-
-            // split the alpha2 country code field into schema, element, and qualifier so we can use
-            // it with item.addMetadata()
-            String[] iso3166Alpha2FieldParts = config.iso3166Alpha2Field.split("\\.");
-
-            if (config.forceupdate) {
-                itemService.clearMetadata(
-                        Curator.curationContext(),
-                        item,
-                        iso3166Alpha2FieldParts[0],
-                        iso3166Alpha2FieldParts[1],
-                        iso3166Alpha2FieldParts[2],
-                        Item.ANY);
-            }
-
-            // check the item's country codes, if any
-            List<MetadataValue> itemAlpha2CountryCodes =
-                    itemService.getMetadataByMetadataString(item, config.iso3166Alpha2Field);
-
-            if (itemAlpha2CountryCodes.isEmpty()) {
-                List<String> newAlpha2Codes = new ArrayList<String>();
-                for (MetadataValue itemCountry : itemCountries) {
-                    // check ISO 3166-1 countries
-                    for (CountriesVocabulary.Country country : isocodesCountriesJson.countries) {
-                        if (itemCountry.getValue().equalsIgnoreCase(country.getName())
-                                || itemCountry
-                                        .getValue()
-                                        .equalsIgnoreCase(country.get_official_name())
-                                || itemCountry
-                                        .getValue()
-                                        .equalsIgnoreCase(country.get_common_name())) {
-                            newAlpha2Codes.add(country.getAlpha_2());
-                        }
-                    }
+            countryCodesResult.setResult(itemHandle + ": no matching countries found");
+        }
+        countryCodesResult.setStatus(Curator.CURATE_SUCCESS);
+
+        return countryCodesResult;
+    }
+
+    /**
+     * A fingerprint of everything an item's country codes depend on: the vocabulary and the
+     * configured fields (see {@link #init(Curator, String)}), the item's countries, and the codes
+     * in each of its country code fields.
+     */
+    private long fingerprint(List<MetadataValue> itemCountries, List<List<String>> codesByField) {
+        long hash = fingerprintSeed;
+        for (MetadataValue itemCountry : itemCountries) {
+            hash = FingerprintIndex.hash(hash, itemCountry.getValue());
+        }
+        for (List<String> codes : codesByField) {
+            // separate the fields so a code can't move from one to the next unnoticed
+            hash = FingerprintIndex.hash(hash, null);
+            for (String code : codes) {
+                hash = FingerprintIndex.hash(hash, code);
+            }
+        }
+
+        // 0 means there is no fingerprint
+        return hash == 0 ? 1 : hash;
+    }
+
+    /**
+     * Country codes waiting to be written to items.
+     *
+     * <p>Items are queued by {@link #performCountryCodes(Item, CountryCodeTaggerConfig)} and
+     * written once <code>batch.size</code> of them have accumulated. Each batch is committed and
+     * its items are removed from the Hibernate session so that memory use stays flat when curating
+     * large communities. With the default batch size of zero items are written and committed as
+     * soon as they are queued, one transaction per item like with the <code>object</code>
+     * transaction scope of a task that isn't distributive.
+     */
+    private class PendingCountryCodes {
+        private final Map<UUID, PendingItem> items = new LinkedHashMap<>();
+        private int flushedItems = 0;
+        private int flushedBatches = 0;
+        private int failedItems = 0;
+
+        private void add(Item item, List<PendingField> fields, long fingerprint)
+                throws SQLException {
+            // items mapped to several collections are visited more than once, but we only need
+            // to write them once
+            items.put(item.getID(), new PendingItem(item, fields, fingerprint));
+
+            int batchSize =
+                    throttle != null ? throttle.getBatchSize(config.batchSize) : config.batchSize;
+            if (items.size() >= Math.max(1, batchSize)) {
+                flush();
+            }
+        }
 
-                    // check CGSpace countries
-                    for (CountriesVocabulary.Country country : cgspaceCountriesJson.countries) {
-                        if (itemCountry.getValue().equalsIgnoreCase(country.getCgspace_name())) {
-                            newAlpha2Codes.add(country.getAlpha_2());
-                        }
+        private boolean contains(Item item) {
+            return items.containsKey(item.getID());
+        }
+
+        /**
+         * Write all pending country codes.
+         *
+         * <p>If an item can't be written, the batch is rolled back so that no half-written item is
+         * committed, like one whose codes were cleared but not added again, and its items are
+         * written again one at a time, so only the item that failed is lost.
+         */
+        private void flush() throws SQLException {
+            if (items.isEmpty()) {
+                return;
+            }
+
+            Context context = Curator.curationContext();
+            List<PendingItem> batch = new ArrayList<>(items.values());
+            items.clear();
+
+            // a batch of one item is already written on its own
+            boolean alone = batch.size() == 1;
+            boolean written = true;
+            for (PendingItem pending : batch) {
+                if (!write(context, pending, alone)) {
+                    written = false;
+                    break;
+                }
+            }
+
+            if (written) {
+                commit(context);
+                for (PendingItem pending : batch) {
+                    done(pending);
+                }
+            } else if (alone) {
+                rollback(context, batch);
+                failedItems++;
+            } else {
+                rollback(context, batch);
+                for (PendingItem pending : batch) {
+                    if (write(context, pending, true)) {
+                        commit(context);
+                        done(pending);
+                    } else {
+                        rollback(context, batch);
+                        failedItems++;
                     }
                 }
+            }
 
-                if (!newAlpha2Codes.isEmpty()) {
-                    try {
+            for (PendingItem pending : batch) {
+                context.uncacheEntity(pending.item);
+            }
+            flushedBatches++;
+        }
+
+        /**
+         * Write an item's country codes without committing them.
+         *
+         * @param report whether to report a failure, which is only final when the item is written
+         *     on its own
+         * @return whether the item was written
+         */
+        private boolean write(Context context, PendingItem pending, boolean report)
+                throws SQLException {
+            // the item may have been evicted from the session after it was queued
+            Item item = context.reloadEntity(pending.item);
+            pending.item = item;
+
+            long start = System.nanoTime();
+            try {
+                for (PendingField pendingField : pending.fields) {
+                    CountryCodeField field = pendingField.field;
+                    if (pendingField.clearCodes) {
+                        itemService.clearMetadata(
+                                context,
+                                item,
+                                field.getSchema(),
+                                field.getElement(),
+                                field.getQualifier(),
+                                Item.ANY);
+                    }
+
+                    if (!pendingField.codes.isEmpty()) {
                         itemService.addMetadata(
-                                Curator.curationContext(),
+                                context,
                                 item,
-                                iso3166Alpha2FieldParts[0],
-                                iso3166Alpha2FieldParts[1],
-                                iso3166Alpha2FieldParts[2],
+                                field.getSchema(),
+                                field.getElement(),
+                                field.getQualifier(),
                                 "en_US",
-                                newAlpha2Codes);
-                        itemService.update(Curator.curationContext(), item);
-                    } catch (SQLException | AuthorizeException sqle) {
-                        config.log.debug(sqle.getMessage());
-                        alpha2Result.setResult(itemHandle + ": error");
-                        alpha2Result.setStatus(Curator.CURATE_ERROR);
+                                pendingField.codes);
                     }
+                }
 
-                    alpha2Result.setResult(
-                            itemHandle
-                                    + ": added "
-                                    + newAlpha2Codes.size()
-                                    + " alpha2 country code(s)");
-                } else {
-                    alpha2Result.setResult(itemHandle + ": no matching countries found");
+                itemService.update(context, item);
+                UPDATE_ITEM.stop(start);
+                return true;
+            } catch (SQLException | AuthorizeException | RuntimeException e) {
+                config.log.debug(e.getMessage());
+                if (report) {
+                    report(item.getHandle() + ": error");
                 }
-                alpha2Result.setStatus(Curator.CURATE_SUCCESS);
-            } else {
-                alpha2Result.setResult(itemHandle + ": item has country codes, skipping");
-                alpha2Result.setStatus(Curator.CURATE_SKIP);
+                return false;
+            }
+        }
+
+        private void commit(Context context) throws SQLException {
+            // the curation system only commits once for the whole community or collection
+            long start = System.nanoTime();
+            context.commit();
+            COMMIT.stop(start);
+        }
+
+        /**
+         * Roll back the changes since the last commit and evict the batch's items, which still
+         * have the changes that were rolled back, so that they are loaded again.
+         */
+        private void rollback(Context context, List<PendingItem> batch) throws SQLException {
+            context.rollback();
+            for (PendingItem pending : batch) {
+                context.uncacheEntity(pending.item);
+            }
+        }
+
+        /** Count a committed item, and index and remember it. */
+        private void done(PendingItem pending) {
+            flushedItems++;
+            if (deferredIndex != null) {
+                deferredIndex.add(pending.item.getID());
+            }
+            if (pending.fingerprint != 0) {
+                fingerprints.put(pending.item.getID(), pending.fingerprint);
             }
         }
 
-        return alpha2Result;
+        private void reset() {
+            items.clear();
+            flushedItems = 0;
+            flushedBatches = 0;
+            failedItems = 0;
+        }
+    }
+
+    private static class PendingItem {
+        // the item as it was last loaded
+        private Item item;
+        private final List<PendingField> fields;
+        // the item's fingerprint once the fields are written, or 0 if it shouldn't be remembered
+        private final long fingerprint;
+
+        private PendingItem(Item item, List<PendingField> fields, long fingerprint) {
+            this.item = item;
+            this.fields = fields;
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    private static class PendingField {
+        private final CountryCodeField field;
+        private final boolean clearCodes;
+        private final List<String> codes;
+
+        private PendingField(CountryCodeField field, boolean clearCodes, List<String> codes) {
+            this.field = field;
+            this.clearCodes = clearCodes;
+            this.codes = codes;
+        }
     }
 }
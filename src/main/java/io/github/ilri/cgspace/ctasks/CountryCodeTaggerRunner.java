@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.ctasks;
+
+import io.github.ilri.cgspace.util.Shard;
+import io.github.ilri.cgspace.util.SummaryFile;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.dspace.content.DSpaceObject;
+import org.dspace.core.Context;
+import org.dspace.curate.Curator;
+import org.dspace.handle.factory.HandleServiceFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+
+/**
+ * Run {@link CountryCodeTagger} on a site, community, or collection outside of the curation
+ * system, optionally on only one {@link Shard} of the items, so that a large run can be split
+ * across several processes or hosts.
+ *
+ * <p>The task is configured like for <code>dspace curate</code>, with the properties of its task
+ * id. Each shard writes its own {@link SummaryFile}, which can be merged with the others by {@link
+ * io.github.ilri.cgspace.scripts.MergeSummaries}.
+ */
+public final class CountryCodeTaggerRunner {
+    private static final String NAME = "CountryCodeTaggerRunner";
+    private static final String DEFAULT_TASK_ID = "countrycodetagger";
+
+    private CountryCodeTaggerRunner() {}
+
+    public static void main(String[] args) {
+        Options options = new Options();
+        options.addOption(
+                Option.builder("t")
+                        .longOpt("task")
+                        .hasArg()
+                        .argName("ID")
+                        .desc(
+                                "the task id to read the configuration of, for example"
+                                        + " countrycodetagger.force (default "
+                                        + DEFAULT_TASK_ID
+                                        + ")")
+                        .build());
+        options.addOption(
+                Option.builder()
+                        .longOpt("shard")
+                        .hasArg()
+                        .argName("I/N")
+                        .desc(
+                                "only curate the I-th of N slices of the items, by a hash of their"
+                                        + " UUIDs, to split a run across processes or hosts")
+                        .build());
+        options.addOption(
+                Option.builder()
+                        .longOpt("summary")
+                        .hasArg()
+                        .argName("FILE")
+                        .desc(
+                                "write the summary to FILE as JSON for MergeSummaries (default"
+                                        + " ID.shard-I-of-N.json with --shard)")
+                        .build());
+        options.addOption("q", "quiet", false, "only print the summary");
+        options.addOption("h", "help", false, "show this help");
+
+        CommandLine line;
+        Shard shard = null;
+        try {
+            line = new DefaultParser().parse(options, args);
+            if (line.hasOption("shard")) {
+                shard = Shard.parse(line.getOptionValue("shard"));
+            }
+            if (!line.hasOption("help") && line.getArgs().length != 1) {
+                throw new ParseException("Missing the handle to curate");
+            }
+        } catch (ParseException | IllegalArgumentException e) {
+            System.err.println(NAME + ": " + e.getMessage());
+            printHelp(options);
+            return;
+        }
+
+        if (line.hasOption("help")) {
+            printHelp(options);
+            return;
+        }
+
+        String handle = line.getArgs()[0];
+        String taskId = line.getOptionValue("task", DEFAULT_TASK_ID);
+        Curator curator = new Curator();
+        curator.setReporter(new Reporter(!line.hasOption("quiet")));
+
+        long startMillis = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        CountryCodeTagger tagger = new CountryCodeTagger();
+        tagger.setShard(shard);
+        Context context = null;
+        try {
+            // the task does everything in the curation context of this thread
+            context = Curator.curationContext();
+            context.turnOffAuthorisationSystem();
+
+            DSpaceObject dso =
+                    HandleServiceFactory.getInstance()
+                            .getHandleService()
+                            .resolveToObject(context, handle);
+            if (dso == null) {
+                System.err.println(NAME + ": unable to resolve handle " + handle);
+                return;
+            }
+
+            tagger.init(curator, taskId);
+            if (shard != null) {
+                System.out.println(NAME + ": curating shard " + shard + " of " + handle);
+            }
+            tagger.perform(dso);
+            context.complete();
+        } catch (IOException | SQLException e) {
+            e.printStackTrace(System.err);
+            return;
+        } finally {
+            if (context != null && context.isValid()) {
+                context.abort();
+            }
+        }
+
+        // the task id is the tool, so that the shards of different profiles can't be merged
+        String summaryFile =
+                line.getOptionValue(
+                        "summary", shard != null ? taskId + "." + shard.getName() + ".json" : null);
+        SummaryFile summary =
+                new SummaryFile(
+                        taskId,
+                        handle,
+                        shard,
+                        startMillis,
+                        (System.nanoTime() - startNanos) / 1_000_000,
+                        tagger.getCheckedItems());
+        tagger.summarize(summary);
+        summary.print(System.out);
+        if (summaryFile != null) {
+            try {
+                summary.write(new File(summaryFile));
+                System.out.println(NAME + ": wrote summary to " + summaryFile);
+            } catch (IOException e) {
+                e.printStackTrace(System.err);
+            }
+        }
+    }
+
+    private static void printHelp(Options options) {
+        new HelpFormatter()
+                .printHelp(
+                        "dspace dsrun io.github.ilri.cgspace.ctasks." + NAME + " [options] handle",
+                        options);
+    }
+
+    /** Print the task's reports one per line, or nothing with <code>--quiet</code>. */
+    private static class Reporter implements Appendable {
+        private final boolean verbose;
+
+        Reporter(boolean verbose) {
+            this.verbose = verbose;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq) {
+            if (verbose) {
+                System.out.println(csq);
+            }
+            return this;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) {
+            return append(csq.subSequence(start, end));
+        }
+
+        @Override
+        public Appendable append(char c) {
+            return append(String.valueOf(c));
+        }
+    }
+}
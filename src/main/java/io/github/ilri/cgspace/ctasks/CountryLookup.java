@@ -0,0 +1,284 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.ctasks;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.text.Normalizer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable index of country names to their ISO 3166-1 Alpha2, Alpha3, and numeric country codes.
+ *
+ * <p>The ISO 3166-1 and CGSpace vocabularies are compiled into a compact binary resource at build
+ * time by {@link CountryVocabularyCompiler}. It is loaded once per JVM, the first time the index
+ * is requested, and the result is shared by all instances of the curation task (for example the
+ * <code>countrycodetagger</code> and <code>countrycodetagger.force</code> profiles). Every name
+ * variant of a country (name, official name, common name, and CGSpace name) is normalized with
+ * {@link #normalize(String)} when the vocabulary is compiled so that looking up an item's country
+ * is a single hash lookup instead of a scan over both vocabularies.
+ */
+public final class CountryLookup {
+    private static final String COMPILED_VOCABULARY_PATH =
+            "/io/github/ilri/cgspace/ctasks/countries.bin";
+
+    // identifies the compiled vocabulary format, bump it when the format changes
+    static final int MAGIC = 0x43434332; // "CCC2"
+
+    // runs of anything other than letters and digits, for example punctuation and whitespace
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private static final Logger log = LogManager.getLogger();
+
+    private final Map<String, CountryCodes> codesByName;
+    private final long version;
+    private final long buildTimeNanos;
+    private final long estimatedSizeBytes;
+
+    /** The codes of one country, shared by all of its names. */
+    public static final class CountryCodes {
+        private final String alpha2;
+        private final String alpha3;
+        private final String numeric;
+
+        CountryCodes(String alpha2, String alpha3, String numeric) {
+            this.alpha2 = alpha2;
+            this.alpha3 = alpha3;
+            this.numeric = numeric;
+        }
+
+        public String getAlpha2() {
+            return alpha2;
+        }
+
+        public String getAlpha3() {
+            return alpha3;
+        }
+
+        /** The numeric code, which is zero-padded to three digits like "004". */
+        public String getNumeric() {
+            return numeric;
+        }
+
+        @Override
+        public String toString() {
+            return alpha2 + "/" + alpha3 + "/" + numeric;
+        }
+    }
+
+    // Initialization-on-demand holder: the JVM guarantees that the index is built exactly once,
+    // lazily, and safely published to all threads without any explicit locking.
+    private static class Holder {
+        static final CountryLookup INSTANCE = load();
+    }
+
+    private CountryLookup(
+            Map<String, CountryCodes> codesByName, long version, long buildTimeNanos) {
+        this.codesByName = Collections.unmodifiableMap(codesByName);
+        this.version = version;
+        this.buildTimeNanos = buildTimeNanos;
+        this.estimatedSizeBytes = estimateSizeBytes(codesByName);
+    }
+
+    /** Get the shared index, building it on first use. */
+    public static CountryLookup getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Look up the ISO 3166-1 codes for a country name.
+     *
+     * @param countryName a country name as it appears in item metadata
+     * @return the codes, or <code>null</code> if the name is not in either vocabulary
+     */
+    public CountryCodes getCodes(String countryName) {
+        if (countryName == null) {
+            return null;
+        }
+
+        return codesByName.get(normalize(countryName));
+    }
+
+    /**
+     * Look up the ISO 3166-1 Alpha2 code for a country name.
+     *
+     * @param countryName a country name as it appears in item metadata
+     * @return the Alpha2 code, or <code>null</code> if the name is not in either vocabulary
+     */
+    public String getAlpha2(String countryName) {
+        CountryCodes codes = getCodes(countryName);
+
+        return codes != null ? codes.getAlpha2() : null;
+    }
+
+    /** Number of distinct (normalized) country names in the index. */
+    public int size() {
+        return codesByName.size();
+    }
+
+    /**
+     * A hash of the compiled vocabulary, which changes whenever a country is added or renamed or
+     * its codes change.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /** Wall-clock time it took to parse the vocabularies and build the index. */
+    public long getBuildTimeNanos() {
+        return buildTimeNanos;
+    }
+
+    /**
+     * Rough estimate of the heap retained by the index, assuming compressed oops and compact
+     * strings. It is only meant to give an idea of the order of magnitude.
+     */
+    public long getEstimatedSizeBytes() {
+        return estimatedSizeBytes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "country lookup: %d names, version %016x, built in %d ms, ~%d KiB",
+                size(), version, buildTimeNanos / 1_000_000, estimatedSizeBytes / 1024);
+    }
+
+    private static CountryLookup load() {
+        try (InputStream in = CountryLookup.class.getResourceAsStream(COMPILED_VOCABULARY_PATH)) {
+            if (in == null) {
+                throw new IllegalStateException(
+                        COMPILED_VOCABULARY_PATH
+                                + " not found, it is generated during the process-classes phase"
+                                + " of the Maven build");
+            }
+
+            CountryLookup lookup = read(in);
+            log.info("Built {}", lookup);
+
+            return lookup;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read " + COMPILED_VOCABULARY_PATH, e);
+        }
+    }
+
+    /**
+     * Read a vocabulary written by {@link CountryVocabularyCompiler}.
+     *
+     * @param in the compiled vocabulary
+     * @return a new index
+     */
+    static CountryLookup read(InputStream in) throws IOException {
+        long start = System.nanoTime();
+
+        // slurp the whole (small) file in one go and decode it from memory
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 * 1024);
+        byte[] buffer = new byte[16 * 1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            bytes.write(buffer, 0, read);
+        }
+
+        byte[] compiled = bytes.toByteArray();
+        DataInputStream data = new DataInputStream(new ByteArrayInputStream(compiled));
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a compiled country vocabulary");
+        }
+
+        // the codes of each country are stored once and the names refer to them by index, so all
+        // names of a country share one instance
+        CountryCodes[] countries = new CountryCodes[data.readInt()];
+        for (int i = 0; i < countries.length; i++) {
+            countries[i] = new CountryCodes(data.readUTF(), data.readUTF(), data.readUTF());
+        }
+
+        int size = data.readInt();
+        Map<String, CountryCodes> codesByName = new HashMap<>(size * 4 / 3 + 1);
+        for (int i = 0; i < size; i++) {
+            String name = data.readUTF();
+            int country = data.readUnsignedShort();
+            if (country >= countries.length) {
+                throw new IOException("Country name \"" + name + "\" refers to a missing country");
+            }
+            codesByName.put(name, countries[country]);
+        }
+
+        // FNV-1a over the whole file
+        long version = 0xcbf29ce484222325L;
+        for (byte b : compiled) {
+            version ^= b & 0xff;
+            version *= 0x100000001b3L;
+        }
+
+        return new CountryLookup(codesByName, version, System.nanoTime() - start);
+    }
+
+    /**
+     * Normalize a country name so that trivial differences in spelling don't prevent a match.
+     *
+     * <p>The name is decomposed with Unicode NFKD and its accents are dropped, punctuation and
+     * whitespace are collapsed into single spaces, it is case folded, and a leading or trailing
+     * "the" is removed. For example, "Côte d'Ivoire", "COTE D'IVOIRE." and " Cote d Ivoire" are
+     * all normalized to "cote d ivoire", and "The Gambia" and "Gambia, The" to "gambia".
+     *
+     * @param name a country name
+     * @return the normalized name
+     */
+    public static String normalize(String name) {
+        String normalized = Normalizer.normalize(name, Normalizer.Form.NFKD);
+        normalized = COMBINING_MARKS.matcher(normalized).replaceAll("");
+        normalized = NON_ALPHANUMERIC.matcher(normalized).replaceAll(" ");
+        normalized = normalized.trim().toLowerCase(Locale.ROOT);
+
+        if (normalized.startsWith("the ")) {
+            normalized = normalized.substring(4);
+        }
+        if (normalized.endsWith(" the")) {
+            normalized = normalized.substring(0, normalized.length() - 4);
+        }
+
+        return normalized;
+    }
+
+    private static long estimateSizeBytes(Map<String, CountryCodes> codesByName) {
+        // HashMap object plus its table of references, rounded up to a power of two
+        int tableSize = Integer.highestOneBit(Math.max(1, codesByName.size() * 4 / 3)) * 2;
+        long bytes = 48 + 16 + 4L * tableSize;
+
+        // the codes are shared by all names of a country so only count them once
+        Map<CountryCodes, Boolean> values = new IdentityHashMap<>();
+        for (Map.Entry<String, CountryCodes> entry : codesByName.entrySet()) {
+            // HashMap.Node plus the key String and its backing array
+            bytes += 32 + stringSizeBytes(entry.getKey());
+            if (values.put(entry.getValue(), Boolean.TRUE) == null) {
+                CountryCodes codes = entry.getValue();
+                bytes += 24 + stringSizeBytes(codes.alpha2);
+                bytes += stringSizeBytes(codes.alpha3) + stringSizeBytes(codes.numeric);
+            }
+        }
+
+        return bytes;
+    }
+
+    private static long stringSizeBytes(String s) {
+        // String object plus byte[] header, padded to eight bytes
+        return 24 + ((16 + s.length() + 7) & ~7);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.ctasks;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Match country names from item metadata against the {@link CountryLookup} index.
+ *
+ * <p>Normalizing a name is much more expensive than looking it up, and the country field of a
+ * repository typically only has a few thousand distinct values across hundreds of thousands of
+ * items, so results are memoized in a size-bounded LRU cache keyed by the raw metadata value.
+ * Names that don't match any country are cached as well.
+ *
+ * <p>Instances are not thread safe. Each task instance should have its own matcher.
+ */
+public class CountryMatcher {
+    // marks cached names that don't match any country, since null means "not cached"
+    private static final CountryLookup.CountryCodes NO_MATCH =
+            new CountryLookup.CountryCodes("", "", "");
+
+    private final CountryLookup countryLookup;
+    private final Map<String, CountryLookup.CountryCodes> cache;
+
+    private long cacheHits = 0;
+    private long cacheMisses = 0;
+
+    /**
+     * @param countryLookup the index to look up normalized names in
+     * @param cacheSize maximum number of raw values to remember
+     */
+    public CountryMatcher(CountryLookup countryLookup, final int cacheSize) {
+        this.countryLookup = countryLookup;
+        this.cache =
+                new LinkedHashMap<String, CountryLookup.CountryCodes>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(
+                            Map.Entry<String, CountryLookup.CountryCodes> eldest) {
+                        return size() > cacheSize;
+                    }
+                };
+    }
+
+    /**
+     * Get the ISO 3166-1 codes for a country name.
+     *
+     * @param countryName a country name as it appears in item metadata
+     * @return the codes, or <code>null</code> if the name doesn't match any country
+     */
+    public CountryLookup.CountryCodes getCodes(String countryName) {
+        if (countryName == null) {
+            return null;
+        }
+
+        CountryLookup.CountryCodes codes = cache.get(countryName);
+        if (codes != null) {
+            cacheHits++;
+        } else {
+            cacheMisses++;
+
+            codes = countryLookup.getCodes(countryName);
+            if (codes == null) {
+                codes = NO_MATCH;
+            }
+            cache.put(countryName, codes);
+        }
+
+        return codes == NO_MATCH ? null : codes;
+    }
+
+    /**
+     * Get the ISO 3166-1 Alpha2 code for a country name.
+     *
+     * @param countryName a country name as it appears in item metadata
+     * @return the Alpha2 code, or <code>null</code> if the name doesn't match any country
+     */
+    public String getAlpha2(String countryName) {
+        CountryLookup.CountryCodes codes = getCodes(countryName);
+
+        return codes != null ? codes.getAlpha2() : null;
+    }
+
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses;
+    }
+
+    @Override
+    public String toString() {
+        long lookups = cacheHits + cacheMisses;
+
+        return String.format(
+                "country matcher cache: %d hits, %d misses (%.1f%% hit rate, %d cached)",
+                cacheHits,
+                cacheMisses,
+                lookups == 0 ? 0.0 : 100.0 * cacheHits / lookups,
+                cache.size());
+    }
+}
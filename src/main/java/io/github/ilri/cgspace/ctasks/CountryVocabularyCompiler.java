@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.ctasks;
+
+import com.google.gson.Gson;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Compile the ISO 3166-1 and CGSpace country vocabularies into the binary form read by {@link
+ * CountryLookup}.
+ *
+ * <p>This runs during the build (see the <code>process-classes</code> execution in
+ * <code>pom.xml</code>) so that the curation task never has to parse JSON at runtime.
+ *
+ * <p>Usage: <code>CountryVocabularyCompiler &lt;output file&gt;</code>
+ */
+public class CountryVocabularyCompiler {
+    static final String ISOCODES_JSON_PATH = "/io/github/ilri/cgspace/ctasks/iso_3166-1.json";
+    static final String CGSPACE_COUNTRIES_JSON_PATH =
+            "/io/github/ilri/cgspace/ctasks/cgspace-countries.json";
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            throw new IllegalArgumentException("Usage: CountryVocabularyCompiler <output file>");
+        }
+
+        File output = new File(args[0]);
+        Map<String, CountriesVocabulary.Country> countryByName = readVocabularies();
+        write(countryByName, output);
+
+        System.out.println(
+                "Compiled " + countryByName.size() + " country names to " + output.getPath());
+    }
+
+    /** Read both vocabularies into a map of normalized country names, in vocabulary order. */
+    static Map<String, CountriesVocabulary.Country> readVocabularies() throws IOException {
+        ISO3166CountriesVocabulary isocodesCountriesJson =
+                readJson(ISOCODES_JSON_PATH, ISO3166CountriesVocabulary.class);
+        CGSpaceCountriesVocabulary cgspaceCountriesJson =
+                readJson(CGSPACE_COUNTRIES_JSON_PATH, CGSpaceCountriesVocabulary.class);
+
+        // keep the order of the vocabularies so the compiled file is reproducible
+        Map<String, CountriesVocabulary.Country> countryByName = new LinkedHashMap<>();
+
+        // ISO 3166-1 countries can be matched by their name, official name, or common name
+        for (CountriesVocabulary.Country country : isocodesCountriesJson.countries) {
+            put(countryByName, country.getName(), country);
+            put(countryByName, country.get_official_name(), country);
+            put(countryByName, country.get_common_name(), country);
+        }
+
+        // CGSpace countries can only be matched by their CGSpace name
+        for (CountriesVocabulary.Country country : cgspaceCountriesJson.countries) {
+            put(countryByName, country.getCgspace_name(), country);
+        }
+
+        return countryByName;
+    }
+
+    private static void write(Map<String, CountriesVocabulary.Country> countryByName, File output)
+            throws IOException {
+        File parent = output.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Unable to create " + parent);
+        }
+
+        // Write the codes of each country once, in order of their first name, and refer to them
+        // by index from the names. Countries in both vocabularies (like CD) must have the same
+        // codes in both.
+        Map<String, CountriesVocabulary.Country> countryByAlpha2 = new LinkedHashMap<>();
+        for (CountriesVocabulary.Country country : countryByName.values()) {
+            CountriesVocabulary.Country existing =
+                    countryByAlpha2.putIfAbsent(country.getAlpha_2(), country);
+            if (existing != null
+                    && !(existing.getAlpha_3().equals(country.getAlpha_3())
+                            && existing.getNumeric().equals(country.getNumeric()))) {
+                throw new IllegalStateException(
+                        "Vocabularies disagree about the codes of " + country.getAlpha_2());
+            }
+        }
+        if (countryByAlpha2.size() > 0xffff) {
+            throw new IllegalStateException("Too many countries: " + countryByAlpha2.size());
+        }
+
+        Map<String, Integer> indexByAlpha2 = new LinkedHashMap<>();
+        try (DataOutputStream out =
+                new DataOutputStream(new BufferedOutputStream(new FileOutputStream(output)))) {
+            out.writeInt(CountryLookup.MAGIC);
+            out.writeInt(countryByAlpha2.size());
+            for (CountriesVocabulary.Country country : countryByAlpha2.values()) {
+                indexByAlpha2.put(country.getAlpha_2(), indexByAlpha2.size());
+                out.writeUTF(country.getAlpha_2());
+                out.writeUTF(country.getAlpha_3());
+                out.writeUTF(country.getNumeric());
+            }
+
+            out.writeInt(countryByName.size());
+            for (Map.Entry<String, CountriesVocabulary.Country> entry : countryByName.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeShort(indexByAlpha2.get(entry.getValue().getAlpha_2()));
+            }
+        }
+    }
+
+    static <T> T readJson(String path, Class<T> clazz) throws IOException {
+        try (BufferedReader reader =
+                new BufferedReader(
+                        new InputStreamReader(
+                                Objects.requireNonNull(
+                                        CountryVocabularyCompiler.class.getResourceAsStream(path),
+                                        path),
+                                StandardCharsets.UTF_8))) {
+            return new Gson().fromJson(reader, clazz);
+        }
+    }
+
+    private static void put(
+            Map<String, CountriesVocabulary.Country> countryByName,
+            String name,
+            CountriesVocabulary.Country country) {
+        // optional names like official_name are null for many countries
+        if (name == null) {
+            return;
+        }
+
+        // The first vocabulary entry wins in case of duplicates (many countries have the same
+        // name and official name, for example "Hungary").
+        countryByName.putIfAbsent(CountryLookup.normalize(name), country);
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.metrics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * JVM-wide registry of {@link PhaseTimer}s.
+ *
+ * <p>Every timer is registered as an MBean named <code>
+ * io.github.ilri.cgspace:type=PhaseTimer,component=...,phase=...</code> when it is created, so
+ * the timers can be watched over JMX while a run is going on. At the end of a run {@link
+ * #writePrometheus(File)} writes all timers in the Prometheus text format, for example for the
+ * node exporter's textfile collector.
+ *
+ * <p>Timers are never removed, so when several runs share a JVM (for example curation tasks run
+ * from the web interface) their times add up, like Prometheus counters.
+ */
+public final class Metrics {
+    private static final Logger log = LogManager.getLogger();
+
+    private static final String JMX_DOMAIN = "io.github.ilri.cgspace";
+    private static final String PROMETHEUS_NAME = "cgspace_phase_duration_seconds";
+
+    // keeps the order the timers were created in, which is usually the order of the phases
+    private static final Map<String, PhaseTimer> TIMERS = new LinkedHashMap<>();
+    private static final long STARTED_NANOS = System.nanoTime();
+
+    private Metrics() {}
+
+    /**
+     * Get the timer for a phase, creating and registering it the first time.
+     *
+     * <p>Timers are meant to be looked up once, for example in a static field, and not for every
+     * time they are used.
+     *
+     * @param component the script, curation task, or class, for example "CountryCodeTagger"
+     * @param phase the phase, for example "update_item"
+     */
+    public static synchronized PhaseTimer timer(String component, String phase) {
+        String key = component + "/" + phase;
+        PhaseTimer timer = TIMERS.get(key);
+        if (timer == null) {
+            timer = new PhaseTimer(component, phase);
+            TIMERS.put(key, timer);
+            register(timer);
+        }
+        return timer;
+    }
+
+    private static void register(PhaseTimer timer) {
+        try {
+            ObjectName name =
+                    new ObjectName(
+                            JMX_DOMAIN
+                                    + ":type=PhaseTimer,component="
+                                    + ObjectName.quote(timer.getComponent())
+                                    + ",phase="
+                                    + ObjectName.quote(timer.getPhase()));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(timer, name);
+        } catch (JMException e) {
+            // the timer still works, it just can't be watched
+            log.warn("Unable to register timer over JMX: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Write all timers to a file in the Prometheus text format.
+     *
+     * <p>The file is replaced atomically, so a collector never reads it half-written.
+     */
+    public static void writePrometheus(File file) throws IOException {
+        List<PhaseTimer> timers;
+        synchronized (Metrics.class) {
+            timers = new ArrayList<>(TIMERS.values());
+        }
+
+        File temp = new File(file.getPath() + ".tmp");
+        try (Writer out = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8)) {
+            writePrometheus(out, timers);
+        }
+        Files.move(
+                temp.toPath(),
+                file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writePrometheus(Writer out, List<PhaseTimer> timers) throws IOException {
+        out.write("# HELP " + PROMETHEUS_NAME + " Time spent in each phase of a run.\n");
+        out.write("# TYPE " + PROMETHEUS_NAME + " histogram\n");
+        for (PhaseTimer timer : timers) {
+            String labels =
+                    "component=\""
+                            + escape(timer.getComponent())
+                            + "\",phase=\""
+                            + escape(timer.getPhase())
+                            + "\"";
+
+            // Prometheus buckets are cumulative
+            long[] counts = timer.getBucketCounts();
+            long cumulative = 0;
+            for (int i = 0; i < counts.length; i++) {
+                cumulative += counts[i];
+                String le =
+                        i < PhaseTimer.BUCKET_BOUNDS_NANOS.length
+                                ? toSeconds(PhaseTimer.BUCKET_BOUNDS_NANOS[i])
+                                : "+Inf";
+                out.write(
+                        PROMETHEUS_NAME
+                                + "_bucket{"
+                                + labels
+                                + ",le=\""
+                                + le
+                                + "\"} "
+                                + cumulative
+                                + "\n");
+            }
+            out.write(PROMETHEUS_NAME + "_sum{" + labels + "} " + timer.getTotalSeconds() + "\n");
+            out.write(PROMETHEUS_NAME + "_count{" + labels + "} " + cumulative + "\n");
+        }
+
+        // together with the counts these give the rate of items per second
+        out.write("# HELP cgspace_metrics_collected_seconds How long the timers were running.\n");
+        out.write("# TYPE cgspace_metrics_collected_seconds gauge\n");
+        out.write(
+                "cgspace_metrics_collected_seconds "
+                        + toSeconds(System.nanoTime() - STARTED_NANOS)
+                        + "\n");
+        out.write("# HELP cgspace_metrics_timestamp_seconds When the timers were written.\n");
+        out.write("# TYPE cgspace_metrics_timestamp_seconds gauge\n");
+        out.write(
+                "cgspace_metrics_timestamp_seconds "
+                        + TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis())
+                        + "\n");
+    }
+
+    private static String toSeconds(long nanos) {
+        return BigDecimal.valueOf(nanos, 9).stripTrailingZeros().toPlainString();
+    }
+
+    private static String escape(String labelValue) {
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Count and total time of one phase of a run, for example loading items, with a latency histogram.
+ *
+ * <p>Timers are shared by all worker threads, so everything is recorded with {@link LongAdder}s,
+ * which spread updates over several cells instead of having every thread fight over the same
+ * counter. Recording a time doesn't allocate or lock anything. Get timers from {@link
+ * Metrics#timer(String, String)}.
+ *
+ * <pre>
+ * long start = System.nanoTime();
+ * itemService.update(context, item);
+ * UPDATE_TIMER.stop(start);
+ * </pre>
+ */
+public final class PhaseTimer implements PhaseTimerMXBean {
+    // upper bounds of the histogram buckets, from 10µs to 10s, plus one for everything slower
+    static final long[] BUCKET_BOUNDS_NANOS = {
+        10_000L,
+        25_000L,
+        50_000L,
+        100_000L,
+        250_000L,
+        500_000L,
+        1_000_000L,
+        2_500_000L,
+        5_000_000L,
+        10_000_000L,
+        25_000_000L,
+        50_000_000L,
+        100_000_000L,
+        250_000_000L,
+        500_000_000L,
+        1_000_000_000L,
+        2_500_000_000L,
+        5_000_000_000L,
+        10_000_000_000L
+    };
+
+    private final String component;
+    private final String phase;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    // the last bucket counts everything slower than the last bound
+    private final LongAdder[] buckets = new LongAdder[BUCKET_BOUNDS_NANOS.length + 1];
+
+    PhaseTimer(String component, String phase) {
+        this.component = component;
+        this.phase = phase;
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Record the time since <code>startNanos</code>.
+     *
+     * @param startNanos the value of {@link System#nanoTime()} when the phase started
+     * @return the current value of {@link System#nanoTime()}, to start the next phase with
+     */
+    public long stop(long startNanos) {
+        long now = System.nanoTime();
+        record(now - startNanos);
+        return now;
+    }
+
+    /** Record one time of the phase. */
+    public void record(long nanos) {
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+
+        int bucket = Arrays.binarySearch(BUCKET_BOUNDS_NANOS, nanos);
+        // bounds are inclusive, like Prometheus' "le"
+        buckets[bucket >= 0 ? bucket : -bucket - 1].increment();
+    }
+
+    @Override
+    public String getComponent() {
+        return component;
+    }
+
+    @Override
+    public String getPhase() {
+        return phase;
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    /** The number of times recorded in each bucket, which is not cumulative. */
+    long[] getBucketCounts() {
+        long[] counts = new long[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    @Override
+    public double getTotalSeconds() {
+        return getTotalNanos() / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+
+    @Override
+    public double getMeanMillis() {
+        long n = getCount();
+        return n == 0 ? 0 : toMillis(getTotalNanos()) / n;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return toMillis(maxNanos.get());
+    }
+
+    @Override
+    public double getP50Millis() {
+        return getPercentileMillis(0.5);
+    }
+
+    @Override
+    public double getP99Millis() {
+        return getPercentileMillis(0.99);
+    }
+
+    private double getPercentileMillis(double quantile) {
+        long[] counts = getBucketCounts();
+        long total = 0;
+        for (long bucketCount : counts) {
+            total += bucketCount;
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_BOUNDS_NANOS.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return toMillis(BUCKET_BOUNDS_NANOS[i]);
+            }
+        }
+
+        // slower than the last bucket, which has no upper bound
+        return getMaxMillis();
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
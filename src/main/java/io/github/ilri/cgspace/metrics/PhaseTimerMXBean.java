@@ -0,0 +1,33 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.metrics;
+
+/**
+ * The attributes of a {@link PhaseTimer} that can be watched over JMX while a run is going on, for
+ * example with JConsole or VisualVM.
+ *
+ * <p>Percentiles are estimated from the timer's histogram, so they are the upper bound of the
+ * bucket the percentile falls into.
+ */
+public interface PhaseTimerMXBean {
+    String getComponent();
+
+    String getPhase();
+
+    /** Number of times the phase was timed. */
+    long getCount();
+
+    double getTotalSeconds();
+
+    double getMeanMillis();
+
+    double getMaxMillis();
+
+    double getP50Millis();
+
+    double getP99Millis();
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.scripts;
+
+import io.github.ilri.cgspace.util.AdaptiveThrottle;
+
+import org.dspace.content.Item;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Where the thumbnail scripts report what they do with each item.
+ *
+ * <p>By default this is the console ({@link ConsoleActionLog}). With <code>--log FILE</code> it is
+ * a file with one JSON object per line ({@link JsonActionLog}), and with <code>--quiet</code>
+ * nothing is logged at all. Errors are always printed to standard error, and the status lines and
+ * summary of the run are always printed too.
+ *
+ * <p>Implementations are called from all worker threads at once.
+ */
+interface ActionLog extends Closeable {
+    /** Doesn't log anything. */
+    ActionLog QUIET =
+            new ActionLog() {
+                @Override
+                public void item(Item item) {}
+
+                @Override
+                public void itemSkipped(Item item, String reason) {}
+
+                @Override
+                public void action(Item item, ThumbnailAction action) {}
+
+                @Override
+                public void changeSkipped(Item item, BitstreamChange change) {}
+
+                @Override
+                public void batchDone(
+                        int worker, int items, long peakHeapBytes, AdaptiveThrottle throttle) {}
+
+                @Override
+                public void close() {}
+            };
+
+    /** An item is about to be processed. */
+    void item(Item item) throws IOException;
+
+    /** An item was skipped as a whole, for example because of its type. */
+    void itemSkipped(Item item, String reason) throws IOException;
+
+    /** An action is about to be applied or written to a plan. */
+    void action(Item item, ThumbnailAction action) throws IOException;
+
+    /** A change could not be applied, because the item changed since it was planned. */
+    void changeSkipped(Item item, BitstreamChange change) throws IOException;
+
+    /**
+     * A worker committed a batch of items, or wrote them to a plan.
+     *
+     * @param worker the worker thread, starting from 0
+     * @param items the number of items in the batch
+     * @param peakHeapBytes the most heap in use after any item of the batch
+     * @param throttle the run's throttle, or <code>null</code> if the run isn't throttled
+     */
+    void batchDone(int worker, int items, long peakHeapBytes, AdaptiveThrottle throttle)
+            throws IOException;
+
+    /**
+     * Print a status line of the run to the console, like which items it processes. A log that
+     * writes to the console prints it in order with the rest of the log.
+     */
+    default void status(String message) {
+        System.out.println(message);
+    }
+
+    /**
+     * Write out what was logged to the console so far, so that an error printed to standard error
+     * after it doesn't come out ahead of it.
+     */
+    default void flush() {}
+}
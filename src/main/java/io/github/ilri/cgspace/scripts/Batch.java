@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.scripts;
+
+import org.dspace.content.Item;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The items a worker processed since its last commit.
+ *
+ * <p>Items are only marked done in the checkpoint once their batch is committed, see {@link
+ * ItemProcessor#commitBatch(int, org.dspace.core.Context, Batch, RunSummary)}.
+ */
+final class Batch {
+    private final List<QueuedItem> queuedItems;
+    // only the items that still existed
+    private final List<Item> items;
+    private long peakHeapBytes;
+    private int size;
+    private int appliedChanges;
+
+    Batch(int batchSize) {
+        queuedItems = new ArrayList<>(batchSize);
+        items = new ArrayList<>(batchSize);
+    }
+
+    /**
+     * @param queuedItem the item as it was queued
+     * @param item the item, or <code>null</code> if it no longer exists
+     * @param appliedChanges the number of changes applied to the item
+     */
+    void add(QueuedItem queuedItem, Item item, int appliedChanges) {
+        queuedItems.add(queuedItem);
+        if (item != null) {
+            items.add(item);
+        }
+        size++;
+        this.appliedChanges += appliedChanges;
+
+        Runtime runtime = Runtime.getRuntime();
+        peakHeapBytes = Math.max(peakHeapBytes, runtime.totalMemory() - runtime.freeMemory());
+    }
+
+    int size() {
+        return size;
+    }
+
+    List<QueuedItem> getQueuedItems() {
+        return queuedItems;
+    }
+
+    List<Item> getItems() {
+        return items;
+    }
+
+    long getPeakHeapBytes() {
+        return peakHeapBytes;
+    }
+
+    int getAppliedChanges() {
+        return appliedChanges;
+    }
+
+    void clear() {
+        queuedItems.clear();
+        items.clear();
+        peakHeapBytes = 0;
+        size = 0;
+        appliedChanges = 0;
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.scripts;
+
+import io.github.ilri.cgspace.metrics.Metrics;
+import io.github.ilri.cgspace.metrics.PhaseTimer;
+
+import org.dspace.authorize.AuthorizeException;
+import org.dspace.content.Bitstream;
+import org.dspace.content.Bundle;
+import org.dspace.content.Item;
+import org.dspace.content.factory.ContentServiceFactory;
+import org.dspace.content.service.BitstreamService;
+import org.dspace.content.service.BundleService;
+import org.dspace.core.Context;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A single change to one of an item's bundles: removing a bitstream from a bundle, or moving it to
+ * another bundle of the same item.
+ *
+ * <p>Changes only refer to objects by UUID so they can be written to a plan file and applied later
+ * (see {@link PlanFile}). Every {@link ThumbnailAction} is applied as one or more changes, whether
+ * it comes from a plan or not.
+ */
+class BitstreamChange {
+    // note: static members belong to the class itself, not any one instance
+    public static BundleService bundleService =
+            ContentServiceFactory.getInstance().getBundleService();
+    public static BitstreamService bitstreamService =
+            ContentServiceFactory.getInstance().getBitstreamService();
+
+    private static final PhaseTimer ADD_BITSTREAM =
+            Metrics.timer("BitstreamChange", "add_bitstream");
+    private static final PhaseTimer REMOVE_BITSTREAM =
+            Metrics.timer("BitstreamChange", "remove_bitstream");
+
+    enum Type {
+        /** Move a bitstream to another bundle. */
+        MOVE,
+        /** Remove a bitstream from a bundle. */
+        REMOVE
+    }
+
+    private final Type type;
+    private final UUID itemId;
+    private final UUID bundleId;
+    private final UUID bitstreamId;
+    // only used when moving a bitstream
+    private final UUID targetBundleId;
+
+    BitstreamChange(
+            Type type, UUID itemId, UUID bundleId, UUID bitstreamId, UUID targetBundleId) {
+        this.type = type;
+        this.itemId = itemId;
+        this.bundleId = bundleId;
+        this.bitstreamId = bitstreamId;
+        this.targetBundleId = targetBundleId;
+    }
+
+    /**
+     * Get the changes needed to apply an action.
+     *
+     * @param itemId the item the action belongs to
+     * @param action the action
+     * @return the changes, in the order they must be applied, or nothing if the action is a skip
+     */
+    static List<BitstreamChange> fromAction(UUID itemId, ThumbnailAction action) {
+        List<BitstreamChange> changes = new ArrayList<>(2);
+
+        switch (action.getType()) {
+            case REMOVE_FROM_THUMBNAIL:
+            case REMOVE_FROM_ORIGINAL:
+                changes.add(
+                        new BitstreamChange(
+                                Type.REMOVE,
+                                itemId,
+                                action.getBundle().getID(),
+                                action.getBitstream().getBitstream().getID(),
+                                null));
+                break;
+            case REPLACE_THUMBNAIL:
+                // move the original bitstream to the THUMBNAIL bundle, then remove the thumbnail
+                changes.add(
+                        new BitstreamChange(
+                                Type.MOVE,
+                                itemId,
+                                action.getOriginalBundle().getID(),
+                                action.getOriginalBitstream().getBitstream().getID(),
+                                action.getBundle().getID()));
+                changes.add(
+                        new BitstreamChange(
+                                Type.REMOVE,
+                                itemId,
+                                action.getBundle().getID(),
+                                action.getBitstream().getBitstream().getID(),
+                                null));
+                break;
+            default:
+                break;
+        }
+
+        return changes;
+    }
+
+    /**
+     * Apply this change to an item.
+     *
+     * <p>Changes can be applied long after they were planned, so nothing is done unless the
+     * bitstream is still in the bundle and both bundles still belong to the item.
+     *
+     * @param context the DSpace context
+     * @param item the item this change belongs to
+     * @return whether the change was applied
+     */
+    boolean apply(Context context, Item item) throws SQLException, AuthorizeException {
+        Bundle bundle = bundleService.find(context, bundleId);
+        Bitstream bitstream = bitstreamService.find(context, bitstreamId);
+        if (!isInItem(bundle, item)
+                || bitstream == null
+                || !bundle.getBitstreams().contains(bitstream)) {
+            return false;
+        }
+
+        if (type == Type.MOVE) {
+            Bundle targetBundle = bundleService.find(context, targetBundleId);
+            if (!isInItem(targetBundle, item)) {
+                return false;
+            }
+
+            long start = System.nanoTime();
+            bundleService.addBitstream(context, targetBundle, bitstream);
+            ADD_BITSTREAM.stop(start);
+        }
+
+        long start = System.nanoTime();
+        bundle.removeBitstream(bitstream);
+        REMOVE_BITSTREAM.stop(start);
+
+        return true;
+    }
+
+    private static boolean isInItem(Bundle bundle, Item item) {
+        return bundle != null && bundle.getItems().contains(item);
+    }
+
+    Type getType() {
+        return type;
+    }
+
+    UUID getItemId() {
+        return itemId;
+    }
+
+    UUID getBundleId() {
+        return bundleId;
+    }
+
+    UUID getBitstreamId() {
+        return bitstreamId;
+    }
+
+    UUID getTargetBundleId() {
+        return targetBundleId;
+    }
+
+    @Override
+    public String toString() {
+        if (type == Type.MOVE) {
+            return "move bitstream " + bitstreamId + " from " + bundleId + " to " + targetBundleId;
+        }
+        return "remove bitstream " + bitstreamId + " from " + bundleId;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.scripts;
+
+import io.github.ilri.cgspace.metrics.Metrics;
+import io.github.ilri.cgspace.metrics.PhaseTimer;
+
+import org.dspace.content.Bitstream;
+import org.dspace.content.BitstreamFormat;
+import org.dspace.core.Context;
+import org.hibernate.proxy.HibernateProxy;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JVM-wide cache of bitstream format MIME types keyed by format ID.
+ *
+ * <p>A bitstream's format is a lazily-loaded Hibernate proxy, so asking it for its MIME type costs
+ * a database query per bitstream, even though a repository only has about a hundred formats. The
+ * format's ID can be read from the proxy without loading it, so each format is only loaded the
+ * first time we see it. We cache the MIME type rather than the format itself because entities
+ * belong to the context (and thread) that loaded them. Formats without a MIME type are cached too,
+ * because the column is nullable.
+ */
+final class BitstreamFormatCache {
+    private static final Map<Object, Optional<String>> MIME_TYPES = new ConcurrentHashMap<>();
+    // only formats that aren't cached yet are loaded, so this counts the cache misses
+    private static final PhaseTimer LOAD_FORMAT =
+            Metrics.timer("BitstreamFormatCache", "load_format");
+
+    private BitstreamFormatCache() {}
+
+    /**
+     * Get the MIME type of a bitstream's format.
+     *
+     * @param context the DSpace context, used to load the format the first time it is seen
+     * @param bitstream the bitstream
+     * @return the MIME type, for example "application/pdf", or <code>null</code> if the format has
+     *     none
+     */
+    static String getMIMEType(Context context, Bitstream bitstream) throws SQLException {
+        BitstreamFormat format = bitstream.getFormat(context);
+
+        Object formatId;
+        if (format instanceof HibernateProxy) {
+            // doesn't initialize the proxy, unlike format.getID()
+            formatId = ((HibernateProxy) format).getHibernateLazyInitializer().getIdentifier();
+        } else {
+            formatId = format.getID();
+        }
+
+        Optional<String> mimeType = MIME_TYPES.get(formatId);
+        if (mimeType == null) {
+            long start = System.nanoTime();
+            // ConcurrentHashMap can't hold null values
+            mimeType = Optional.ofNullable(format.getMIMEType());
+            LOAD_FORMAT.stop(start);
+            MIME_TYPES.put(formatId, mimeType);
+        }
+
+        return mimeType.orElse(null);
+    }
+}
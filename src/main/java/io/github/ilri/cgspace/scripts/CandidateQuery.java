@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.scripts;
+
+import org.dspace.storage.rdbms.DatabaseUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+
+import javax.sql.DataSource;
+
+/**
+ * Stream the items that might need fixing straight from the database, without loading them.
+ *
+ * <p>The candidates come from a script's {@link ThumbnailFixer#getCandidateQuery()}, and are
+ * limited to archived items like {@link org.dspace.content.service.ItemService#findAll}. They are
+ * sorted by UUID so that positions in the run stay the same for {@link Checkpoint}s, and fetched
+ * {@value #PAGE_SIZE} at a time after the last UUID of the page before, outside of Hibernate. Each
+ * page is a short read-only transaction of its own, so a long run doesn't keep a transaction open
+ * that would hold back vacuuming.
+ */
+class CandidateQuery implements Iterator<FoundItem> {
+    static final int PAGE_SIZE = 1000;
+
+    // UUIDs sort like unsigned numbers, so no item comes before this one
+    private static final UUID NIL_UUID = new UUID(0, 0);
+
+    private final DataSource dataSource;
+    private final int pageSize;
+    private final String sql;
+    private final Date since;
+    private final List<UUID> collectionIds;
+
+    private Iterator<FoundItem> page = Collections.emptyIterator();
+    private UUID lastItemId = NIL_UUID;
+    private boolean lastPage = false;
+
+    private CandidateQuery(
+            DataSource dataSource,
+            int pageSize,
+            String sql,
+            Date since,
+            List<UUID> collectionIds) {
+        this.dataSource = dataSource;
+        this.pageSize = pageSize;
+        this.sql = sql;
+        this.since = since;
+        this.collectionIds = collectionIds;
+    }
+
+    /**
+     * Run a candidate query against DSpace's database.
+     *
+     * @param candidateQuery a query selecting a single column of item UUIDs
+     * @param since only find items modified after this date, or <code>null</code> for all items
+     * @param collectionIds only find items in these collections, or <code>null</code> for all
+     *     items
+     */
+    static CandidateQuery execute(String candidateQuery, Date since, List<UUID> collectionIds) {
+        return execute(
+                DatabaseUtils.getDataSource(), PAGE_SIZE, candidateQuery, since, collectionIds);
+    }
+
+    /** Run a candidate query against any database with DSpace's tables, a page at a time. */
+    static CandidateQuery execute(
+            DataSource dataSource,
+            int pageSize,
+            String candidateQuery,
+            Date since,
+            List<UUID> collectionIds) {
+        StringBuilder sql =
+                new StringBuilder(
+                        "SELECT item.uuid, item.last_modified FROM item"
+                                + " WHERE item.in_archive = TRUE AND item.uuid IN (");
+        sql.append(candidateQuery).append(')');
+        if (since != null) {
+            sql.append(" AND item.last_modified > ?");
+        }
+        if (collectionIds != null) {
+            if (collectionIds.isEmpty()) {
+                sql.append(" AND FALSE");
+            } else {
+                sql.append(
+                        " AND item.uuid IN (SELECT item_id FROM collection2item"
+                                + " WHERE collection_id IN (");
+                for (int i = 0; i < collectionIds.size(); i++) {
+                    sql.append(i == 0 ? "?" : ", ?");
+                }
+                sql.append("))");
+            }
+        }
+        sql.append(" AND item.uuid > ? ORDER BY item.uuid LIMIT ?");
+
+        return new CandidateQuery(dataSource, pageSize, sql.toString(), since, collectionIds);
+    }
+
+    /** Subquery for the ID of an unqualified field in the dc schema. */
+    static String metadataFieldId(String element) {
+        return "(SELECT metadatafieldregistry.metadata_field_id FROM metadatafieldregistry"
+                + " JOIN metadataschemaregistry ON metadataschemaregistry.metadata_schema_id"
+                + " = metadatafieldregistry.metadata_schema_id"
+                + " WHERE metadataschemaregistry.short_id = 'dc'"
+                + " AND metadatafieldregistry.element = '"
+                + element
+                + "' AND metadatafieldregistry.qualifier IS NULL)";
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!page.hasNext() && !lastPage) {
+            try {
+                page = nextPage();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return page.hasNext();
+    }
+
+    @Override
+    public FoundItem next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return page.next();
+    }
+
+    private Iterator<FoundItem> nextPage() throws SQLException {
+        List<FoundItem> items = new ArrayList<>(pageSize);
+        try (Connection connection = dataSource.getConnection()) {
+            // the connection comes from DSpace's pool, which doesn't reset these when it is
+            // returned, and the workers write with the pool's other connections
+            boolean autoCommit = connection.getAutoCommit();
+            boolean readOnly = connection.isReadOnly();
+            // the page is read in a transaction of its own, which ends before we return
+            connection.setAutoCommit(true);
+            connection.setReadOnly(true);
+            try {
+                readPage(connection, items);
+            } finally {
+                // PostgreSQL can't change read-only inside a transaction, so restore it first
+                connection.setReadOnly(readOnly);
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+
+        lastPage = items.size() < pageSize;
+        if (!items.isEmpty()) {
+            lastItemId = items.get(items.size() - 1).getID();
+        }
+        return items.iterator();
+    }
+
+    private void readPage(Connection connection, List<FoundItem> items) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            int parameter = 1;
+            if (since != null) {
+                statement.setTimestamp(parameter++, new Timestamp(since.getTime()));
+            }
+            if (collectionIds != null) {
+                for (UUID collectionId : collectionIds) {
+                    statement.setObject(parameter++, collectionId);
+                }
+            }
+            statement.setObject(parameter++, lastItemId);
+            statement.setInt(parameter, pageSize);
+
+            try (ResultSet results = statement.executeQuery()) {
+                while (results.next()) {
+                    items.add(
+                            new FoundItem(
+                                    results.getObject(1, UUID.class), results.getTimestamp(2)));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.scripts;
+
+import io.github.ilri.cgspace.util.Shard;
+
+import org.apache.commons.lang.StringUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Date;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * How far a run of one of the scripts got, so that <code>--resume</code> can pick up where it left
+ * off.
+ *
+ * <p>Items are numbered by their position in the run, starting at 1. Workers finish items out of
+ * order, so the checkpoint is the highest position up to which <em>every</em> item is done, and it
+ * is saved every {@value #INTERVAL} items. Items that failed count as done: they were logged, and
+ * resuming should not trip over them again.
+ *
+ * <p>Checkpoints are small properties files, replaced atomically so that a crash while saving
+ * never leaves a truncated one behind.
+ */
+class Checkpoint {
+    static final int INTERVAL = 100;
+
+    private final File file;
+    private final String name;
+    private final String handle;
+    // empty if the run isn't split into shards
+    private final String shard;
+    // must be flushed before saving, for example a plan the run is writing to
+    private final Flushable output;
+    // when the run was first started, even if it was resumed since
+    private final Date started;
+
+    private long position;
+    private UUID itemId;
+    // items that are done, but after an item that isn't
+    private final TreeMap<Long, UUID> done = new TreeMap<>();
+    private long savedPosition;
+
+    private Checkpoint(
+            File file,
+            String name,
+            String handle,
+            Shard shard,
+            Flushable output,
+            Date started,
+            long position,
+            UUID itemId) {
+        this.file = file;
+        this.name = name;
+        this.handle = handle == null ? "" : handle;
+        this.shard = shard == null ? "" : shard.toString();
+        this.output = output;
+        this.started = started;
+        this.position = position;
+        this.itemId = itemId;
+        this.savedPosition = position;
+    }
+
+    /** Start a new run, replacing any previous checkpoint when the first one is saved. */
+    static Checkpoint start(
+            File file, String name, String handle, Shard shard, Flushable output) {
+        return new Checkpoint(file, name, handle, shard, output, new Date(), 0, null);
+    }
+
+    /**
+     * Load the checkpoint of a previous run.
+     *
+     * @throws IOException if the checkpoint can't be read or belongs to another script, handle, or
+     *     shard
+     */
+    static Checkpoint resume(
+            File file, String name, String handle, Shard shard, Flushable output)
+            throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            properties.load(in);
+        }
+
+        Checkpoint checkpoint;
+        try {
+            String itemId = properties.getProperty("item");
+            checkpoint =
+                    new Checkpoint(
+                            file,
+                            name,
+                            handle,
+                            shard,
+                            output,
+                            new Date(Long.parseLong(properties.getProperty("started"))),
+                            Long.parseLong(properties.getProperty("position")),
+                            itemId == null ? null : UUID.fromString(itemId));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new IOException("Invalid checkpoint " + file, e);
+        }
+
+        String script = properties.getProperty("script");
+        String scriptHandle = properties.getProperty("handle");
+        // checkpoints from before shards have none
+        String scriptShard = properties.getProperty("shard", "");
+        if (!name.equals(script)
+                || !checkpoint.handle.equals(scriptHandle)
+                || !checkpoint.shard.equals(scriptShard)) {
+            throw new IOException(
+                    "Checkpoint "
+                            + file
+                            + " is for "
+                            + describe(script, scriptHandle, scriptShard)
+                            + ", not "
+                            + describe(name, checkpoint.handle, checkpoint.shard));
+        }
+
+        return checkpoint;
+    }
+
+    private static String describe(String script, String handle, String shard) {
+        return script
+                + " on "
+                + (StringUtils.isEmpty(handle) ? "all items" : handle)
+                + (StringUtils.isEmpty(shard) ? "" : ", shard " + shard);
+    }
+
+    /** When the run was first started, before it was resumed. */
+    Date getStarted() {
+        return started;
+    }
+
+    /** Number of items that are done. */
+    synchronized long getPosition() {
+        return position;
+    }
+
+    /** The last item that is done, or <code>null</code> if none are. */
+    synchronized UUID getItemId() {
+        return itemId;
+    }
+
+    /**
+     * Mark the item at a position as done, saving the checkpoint if enough items were done since
+     * it was last saved.
+     */
+    synchronized void done(long itemPosition, UUID doneItemId) throws IOException {
+        done.put(itemPosition, doneItemId);
+        while (!done.isEmpty() && done.firstKey() == position + 1) {
+            position++;
+            itemId = done.pollFirstEntry().getValue();
+        }
+
+        if (position - savedPosition >= INTERVAL) {
+            save();
+        }
+    }
+
+    synchronized void save() throws IOException {
+        if (output != null) {
+            output.flush();
+        }
+
+        Properties properties = new Properties();
+        properties.setProperty("script", name);
+        properties.setProperty("handle", handle);
+        if (!shard.isEmpty()) {
+            properties.setProperty("shard", shard);
+        }
+        properties.setProperty("started", Long.toString(started.getTime()));
+        properties.setProperty("position", Long.toString(position));
+        if (itemId != null) {
+            properties.setProperty("item", itemId.toString());
+        }
+
+        File temp = new File(file.getPath() + ".tmp");
+        try (OutputStream out = new FileOutputStream(temp)) {
+            properties.store(out, name + " checkpoint");
+        }
+        Files.move(
+                temp.toPath(),
+                file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+
+        savedPosition = position;
+    }
+
+    /** Delete the checkpoint once the run is complete. */
+    void delete() throws IOException {
+        Files.deleteIfExists(file.toPath());
+    }
+
+    File getFile() {
+        return file;
+    }
+}
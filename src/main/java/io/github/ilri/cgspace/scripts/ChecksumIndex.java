@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.scripts;
+
+/**
+ * Counts how many bitstreams have the same checksum, size, and bundle, without keeping any
+ * objects per bitstream.
+ *
+ * <p>Each combination is reduced to a 64-bit fingerprint and kept in a <code>long[]</code> with
+ * open addressing, next to a <code>byte[]</code> that only remembers whether it was seen once or
+ * more than once. That comes to between 12 and 24 bytes per distinct bitstream depending on how
+ * full the arrays are, so millions of bitstreams fit in a modest heap. Different bitstreams can
+ * share a fingerprint, so a count of two or more only means a bitstream <em>might</em> be a
+ * duplicate; {@link FindDuplicateBitstreams} checks the real checksums of those in a second pass.
+ *
+ * <p>The index is not thread-safe.
+ */
+final class ChecksumIndex {
+    private static final int MIN_CAPACITY = 1024;
+
+    // an empty slot, so a fingerprint of 0 is stored as 1
+    private static final long EMPTY = 0;
+    private static final byte ONCE = 1;
+    private static final byte MORE_THAN_ONCE = 2;
+
+    private long[] fingerprints = new long[MIN_CAPACITY];
+    private byte[] counts = new byte[MIN_CAPACITY];
+    private int size;
+
+    /**
+     * The fingerprint of a bitstream's checksum, size, and bundle.
+     *
+     * @param checksum the checksum as stored by DSpace, usually a hexadecimal MD5
+     * @param sizeBytes the size of the bitstream
+     * @param bundle a number for the bundle the bitstream is in
+     */
+    static long fingerprint(String checksum, long sizeBytes, int bundle) {
+        // FNV-1a over the characters, so no bytes have to be decoded
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < checksum.length(); i++) {
+            hash ^= checksum.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= sizeBytes * 0x9E3779B97F4A7C15L;
+        hash ^= (bundle + 1) * 0xC2B2AE3D27D4EB4FL;
+
+        // spread the bits of the size and bundle over the whole fingerprint
+        hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        return hash == EMPTY ? 1 : hash;
+    }
+
+    /** Count a fingerprint. */
+    void add(long fingerprint) {
+        int slot = find(fingerprints, fingerprint);
+        if (fingerprints[slot] == fingerprint) {
+            counts[slot] = MORE_THAN_ONCE;
+            return;
+        }
+
+        fingerprints[slot] = fingerprint;
+        counts[slot] = ONCE;
+        size++;
+
+        // keep the load factor below 3/4 so probe sequences stay short
+        if (size > fingerprints.length / 4 * 3) {
+            grow();
+        }
+    }
+
+    /** Whether a fingerprint was counted more than once. */
+    boolean isRepeated(long fingerprint) {
+        int slot = find(fingerprints, fingerprint);
+        return fingerprints[slot] == fingerprint && counts[slot] == MORE_THAN_ONCE;
+    }
+
+    /** The number of distinct fingerprints. */
+    int size() {
+        return size;
+    }
+
+    /** The index of the slot holding a fingerprint, or of the empty slot where it would go. */
+    private static int find(long[] fingerprints, long fingerprint) {
+        int mask = fingerprints.length - 1;
+        int slot = (int) (fingerprint ^ (fingerprint >>> 32)) & mask;
+        while (fingerprints[slot] != fingerprint && fingerprints[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        long[] newFingerprints = new long[fingerprints.length * 2];
+        byte[] newCounts = new byte[counts.length * 2];
+        for (int slot = 0; slot < fingerprints.length; slot++) {
+            if (fingerprints[slot] != EMPTY) {
+                int newSlot = find(newFingerprints, fingerprints[slot]);
+                newFingerprints[newSlot] = fingerprints[slot];
+                newCounts[newSlot] = counts[slot];
+            }
+        }
+        fingerprints = newFingerprints;
+        counts = newCounts;
+    }
+}
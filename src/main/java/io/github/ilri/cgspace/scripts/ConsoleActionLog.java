@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.scripts;
+
+import io.github.ilri.cgspace.util.AdaptiveThrottle;
+
+import org.dspace.content.Item;
+
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+
+/**
+ * Log actions to the console in a format chosen by each script (see {@link
+ * ThumbnailFixer#printAction}).
+ *
+ * <p>A full run prints several lines for each of hundreds of thousands of items, which is slow
+ * over SSH if every line is flushed on its own, so output is buffered and only flushed when the
+ * buffer is full, before an error is printed, or when the log is closed. The status lines of the
+ * run go through the same buffer so they stay in order with the items.
+ */
+class ConsoleActionLog implements ActionLog {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ThumbnailFixer fixer;
+    private final PrintStream out;
+
+    ConsoleActionLog(ThumbnailFixer fixer) {
+        this.fixer = fixer;
+        // not System.out, which flushes every line
+        this.out =
+                new PrintStream(
+                        new BufferedOutputStream(
+                                new FileOutputStream(FileDescriptor.out), BUFFER_SIZE),
+                        false);
+    }
+
+    @Override
+    public synchronized void item(Item item) {
+        fixer.printItem(out, item);
+    }
+
+    @Override
+    public synchronized void itemSkipped(Item item, String reason) {
+        out.println(item.getHandle() + ": " + reason + ", skipping.");
+    }
+
+    @Override
+    public synchronized void action(Item item, ThumbnailAction action) {
+        fixer.printAction(out, item, action);
+    }
+
+    @Override
+    public synchronized void changeSkipped(Item item, BitstreamChange change) {
+        out.println(item.getHandle() + ": unable to " + change + ", skipping");
+    }
+
+    @Override
+    public synchronized void batchDone(
+            int worker, int items, long peakHeapBytes, AdaptiveThrottle throttle) {
+        out.println(
+                "worker "
+                        + worker
+                        + ": finished a batch of "
+                        + items
+                        + " item(s), peak heap "
+                        + peakHeapBytes / (1024 * 1024)
+                        + " MiB"
+                        + (throttle != null ? ", " + throttle : ""));
+    }
+
+    @Override
+    public synchronized void status(String message) {
+        out.println(message);
+    }
+
+    @Override
+    public synchronized void flush() {
+        out.flush();
+    }
+
+    @Override
+    public synchronized void close() {
+        // only flush, closing would close standard output
+        out.flush();
+    }
+}
@@ -0,0 +1,445 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.scripts;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import io.github.ilri.cgspace.metrics.Metrics;
+import io.github.ilri.cgspace.metrics.PhaseTimer;
+import io.github.ilri.cgspace.util.ItemList;
+import io.github.ilri.cgspace.util.UuidSet;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.dspace.storage.rdbms.DatabaseUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Find bitstreams that are byte-identical to others in the same kind of bundle, for example the
+ * same logo uploaded as a thumbnail to hundreds of items.
+ *
+ * <p>The checksums and sizes that DSpace stores for every bitstream are streamed straight from the
+ * database in two passes, inside one read-only transaction so that both passes see the same
+ * bitstreams:
+ *
+ * <ol>
+ *   <li>count the fingerprint of every bitstream's checksum, size, and bundle in a {@link
+ *       ChecksumIndex}, which doesn't keep any objects per bitstream
+ *   <li>only for the bitstreams whose fingerprint was counted more than once, group them by their
+ *       real checksum, size, and bundle, and load their items, handles, and names
+ * </ol>
+ *
+ * <p>So the heap only has to hold a few bytes per bitstream plus the duplicates themselves, and a
+ * repository with millions of bitstreams can be scanned with a modest heap. Only the ORIGINAL and
+ * THUMBNAIL bundles are scanned by default, because every item's license is the same.
+ *
+ * <p>The UUIDs of the items with duplicates can be written to a file for the thumbnail scripts'
+ * <code>--items</code> option, to clean them up without looking at any other items.
+ */
+public class FindDuplicateBitstreams {
+    private static final String NAME = "FindDuplicateBitstreams";
+
+    static final int FETCH_SIZE = 10000;
+    static final List<String> DEFAULT_BUNDLES = Arrays.asList("ORIGINAL", "THUMBNAIL");
+
+    private static final PhaseTimer COUNT_PASS = Metrics.timer(NAME, "count_pass");
+    private static final PhaseTimer GROUP_PASS = Metrics.timer(NAME, "group_pass");
+
+    private final List<String> bundles;
+    private final ChecksumIndex index = new ChecksumIndex();
+    // only for bitstreams that might be duplicates, keyed by bundle, checksum, and size
+    private final Map<String, DuplicateGroup> groups = new HashMap<>();
+    private long bitstreamsScanned;
+
+    FindDuplicateBitstreams(List<String> bundles) {
+        this.bundles = bundles;
+    }
+
+    public static void main(String[] args) {
+        Options options = new Options();
+        options.addOption(
+                Option.builder("b")
+                        .longOpt("bundle")
+                        .hasArg()
+                        .argName("NAME")
+                        .desc(
+                                "scan bitstreams in bundle NAME, can be repeated (default ORIGINAL"
+                                        + " and THUMBNAIL)")
+                        .build());
+        options.addOption(
+                Option.builder("o")
+                        .longOpt("output")
+                        .hasArg()
+                        .argName("FILE")
+                        .desc("write the duplicates to FILE as JSON lines, one group per line")
+                        .build());
+        options.addOption(
+                Option.builder()
+                        .longOpt("item-list")
+                        .hasArg()
+                        .argName("FILE")
+                        .desc("write the UUIDs of the items with duplicates to FILE, one per line")
+                        .build());
+        options.addOption("q", "quiet", false, "only print the summary");
+        options.addOption(
+                Option.builder("m")
+                        .longOpt("metrics")
+                        .hasArg()
+                        .argName("FILE")
+                        .desc("write timing metrics to FILE in the Prometheus text format")
+                        .build());
+        options.addOption("h", "help", false, "show this help");
+
+        CommandLine line;
+        try {
+            line = new DefaultParser().parse(options, args);
+        } catch (ParseException e) {
+            System.err.println(NAME + ": " + e.getMessage());
+            printHelp(options);
+            return;
+        }
+
+        if (line.hasOption("help")) {
+            printHelp(options);
+            return;
+        }
+
+        List<String> bundles =
+                line.hasOption("bundle")
+                        ? Arrays.asList(line.getOptionValues("bundle"))
+                        : DEFAULT_BUNDLES;
+        FindDuplicateBitstreams finder = new FindDuplicateBitstreams(bundles);
+
+        long startNanos = System.nanoTime();
+        List<DuplicateGroup> duplicates;
+        try {
+            duplicates = finder.find();
+        } catch (SQLException e) {
+            e.printStackTrace(System.err);
+            return;
+        }
+
+        try {
+            if (!line.hasOption("quiet")) {
+                for (DuplicateGroup group : duplicates) {
+                    group.print();
+                }
+            }
+            if (line.hasOption("output")) {
+                writeGroups(new File(line.getOptionValue("output")), duplicates);
+            }
+            if (line.hasOption("item-list")) {
+                writeItemIds(new File(line.getOptionValue("item-list")), duplicates);
+            }
+        } catch (IOException e) {
+            e.printStackTrace(System.err);
+        }
+
+        finder.printSummary(startNanos, duplicates);
+        if (line.hasOption("metrics")) {
+            try {
+                Metrics.writePrometheus(new File(line.getOptionValue("metrics")));
+            } catch (IOException e) {
+                System.err.println(NAME + ": unable to write metrics");
+                e.printStackTrace(System.err);
+            }
+        }
+    }
+
+    /**
+     * Scan all bitstreams in the bundles and find the duplicates.
+     *
+     * @return groups of at least two bitstreams with the same checksum and size in the same
+     *     bundle, the ones wasting the most space first
+     */
+    List<DuplicateGroup> find() throws SQLException {
+        try (Connection connection = DatabaseUtils.getDataSource().getConnection()) {
+            // the connection comes from DSpace's pool, which doesn't reset these when it is
+            // returned
+            int isolation = connection.getTransactionIsolation();
+            boolean autoCommit = connection.getAutoCommit();
+            boolean readOnly = connection.isReadOnly();
+            // PostgreSQL only uses a cursor instead of fetching all rows at once in a transaction,
+            // and repeatable read gives both passes the same snapshot
+            connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            connection.setReadOnly(true);
+            connection.setAutoCommit(false);
+
+            try {
+                long start = System.nanoTime();
+                scan(connection, false, this::count);
+                start = COUNT_PASS.stop(start);
+                scan(connection, true, this::group);
+                GROUP_PASS.stop(start);
+            } finally {
+                connection.rollback();
+                connection.setTransactionIsolation(isolation);
+                connection.setReadOnly(readOnly);
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+
+        List<DuplicateGroup> duplicates = new ArrayList<>();
+        for (DuplicateGroup group : groups.values()) {
+            // different bitstreams can share a fingerprint, so some groups have only one
+            if (group.members.size() > 1) {
+                group.members.sort(Comparator.comparing(member -> member.itemId));
+                duplicates.add(group);
+            }
+        }
+        duplicates.sort(
+                Comparator.comparingLong(DuplicateGroup::getWastedBytes)
+                        .reversed()
+                        .thenComparing(group -> group.checksum));
+        return duplicates;
+    }
+
+    /** First pass: count every bitstream's fingerprint. */
+    private void count(ResultSet results) throws SQLException {
+        bitstreamsScanned++;
+        index.add(fingerprint(results));
+    }
+
+    /** Second pass: group the bitstreams that might be duplicates. */
+    private void group(ResultSet results) throws SQLException {
+        if (!index.isRepeated(fingerprint(results))) {
+            return;
+        }
+
+        String checksum = results.getString(1);
+        long sizeBytes = results.getLong(2);
+        String bundle = results.getString(3);
+        DuplicateGroup group =
+                groups.computeIfAbsent(
+                        bundle + '\0' + checksum + '\0' + sizeBytes,
+                        k -> new DuplicateGroup(bundle, checksum, sizeBytes));
+        group.members.add(
+                new Member(
+                        results.getObject(4, UUID.class),
+                        results.getObject(5, UUID.class),
+                        results.getString(6),
+                        results.getString(7)));
+    }
+
+    private long fingerprint(ResultSet results) throws SQLException {
+        return ChecksumIndex.fingerprint(
+                results.getString(1), results.getLong(2), bundles.indexOf(results.getString(3)));
+    }
+
+    private interface RowHandler {
+        void row(ResultSet results) throws SQLException;
+    }
+
+    /**
+     * Stream the checksum, size, and bundle name of every bitstream in the bundles, and with
+     * <code>details</code> also its UUID, item UUID, item handle, and name.
+     */
+    private void scan(Connection connection, boolean details, RowHandler handler)
+            throws SQLException {
+        StringBuilder sql =
+                new StringBuilder(
+                        "SELECT bitstream.checksum, bitstream.size_bytes, bundle_name.text_value");
+        if (details) {
+            sql.append(
+                    ", bitstream.uuid, item2bundle.item_id, (SELECT handle.handle FROM handle"
+                            + " WHERE handle.resource_id = item2bundle.item_id LIMIT 1),"
+                            + " bitstream_name.text_value");
+        }
+        // bundle and bitstream names are stored as dc.title
+        sql.append(
+                " FROM bitstream"
+                        + " JOIN bundle2bitstream ON bundle2bitstream.bitstream_id = bitstream.uuid"
+                        + " JOIN item2bundle ON item2bundle.bundle_id = bundle2bitstream.bundle_id"
+                        + " JOIN metadatavalue bundle_name"
+                        + " ON bundle_name.dspace_object_id = bundle2bitstream.bundle_id"
+                        + " AND bundle_name.metadata_field_id = "
+                        + CandidateQuery.metadataFieldId("title"));
+        if (details) {
+            sql.append(
+                    " LEFT JOIN metadatavalue bitstream_name"
+                            + " ON bitstream_name.dspace_object_id = bitstream.uuid"
+                            + " AND bitstream_name.metadata_field_id = "
+                            + CandidateQuery.metadataFieldId("title"));
+        }
+        sql.append(
+                " WHERE bitstream.deleted = FALSE AND bitstream.checksum IS NOT NULL"
+                        + " AND bundle_name.text_value IN (");
+        for (int i = 0; i < bundles.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(')');
+
+        try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+            statement.setFetchSize(FETCH_SIZE);
+            for (int i = 0; i < bundles.size(); i++) {
+                statement.setString(i + 1, bundles.get(i));
+            }
+
+            try (ResultSet results = statement.executeQuery()) {
+                while (results.next()) {
+                    handler.row(results);
+                }
+            }
+        }
+    }
+
+    private static void writeGroups(File file, List<DuplicateGroup> duplicates)
+            throws IOException {
+        Gson gson = new Gson();
+        try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            for (DuplicateGroup group : duplicates) {
+                // Gson escapes newlines inside strings, so this is always a single line
+                out.write(gson.toJson(group.toJson()));
+                out.write('\n');
+            }
+        }
+    }
+
+    /** Write the UUIDs of the items with duplicates, sorted, for the scripts' --items option. */
+    private static void writeItemIds(File file, List<DuplicateGroup> duplicates)
+            throws IOException {
+        UuidSet itemIds = new UuidSet();
+        for (DuplicateGroup group : duplicates) {
+            for (Member member : group.members) {
+                itemIds.add(member.itemId);
+            }
+        }
+        ItemList.write(file, itemIds.toSortedArray());
+    }
+
+    private void printSummary(long startNanos, List<DuplicateGroup> duplicates) {
+        long elapsedMillis = Math.max(1, (System.nanoTime() - startNanos) / 1_000_000);
+
+        System.out.println(
+                NAME
+                        + ": scanned "
+                        + bitstreamsScanned
+                        + " bitstream(s) with "
+                        + index.size()
+                        + " distinct checksum(s), found "
+                        + duplicates.size()
+                        + " group(s) of duplicates, in "
+                        + elapsedMillis / 1000
+                        + "s");
+
+        for (String bundle : bundles) {
+            long bundleGroups = 0;
+            long duplicateBitstreams = 0;
+            long wastedBytes = 0;
+            for (DuplicateGroup group : duplicates) {
+                if (bundle.equals(group.bundle)) {
+                    bundleGroups++;
+                    duplicateBitstreams += group.members.size() - 1;
+                    wastedBytes += group.getWastedBytes();
+                }
+            }
+            System.out.println(
+                    "> "
+                            + bundle
+                            + ": "
+                            + bundleGroups
+                            + " group(s), "
+                            + duplicateBitstreams
+                            + " duplicate bitstream(s), "
+                            + wastedBytes / (1024 * 1024)
+                            + " MiB");
+        }
+    }
+
+    private static void printHelp(Options options) {
+        new HelpFormatter()
+                .printHelp("dspace dsrun io.github.ilri.cgspace.scripts." + NAME, options);
+    }
+
+    /** Bitstreams with the same checksum and size in the same bundle. */
+    static class DuplicateGroup {
+        private final String bundle;
+        private final String checksum;
+        private final long sizeBytes;
+        private final List<Member> members = new ArrayList<>(2);
+
+        DuplicateGroup(String bundle, String checksum, long sizeBytes) {
+            this.bundle = bundle;
+            this.checksum = checksum;
+            this.sizeBytes = sizeBytes;
+        }
+
+        /** The space taken up by all copies but one. */
+        long getWastedBytes() {
+            return sizeBytes * (members.size() - 1);
+        }
+
+        void print() {
+            System.out.println(
+                    bundle
+                            + ": "
+                            + members.size()
+                            + " bitstreams with checksum "
+                            + checksum
+                            + " ("
+                            + sizeBytes
+                            + " bytes)");
+            for (Member member : members) {
+                System.out.println("> " + member.handle + ": " + member.name);
+            }
+        }
+
+        JsonObject toJson() {
+            JsonObject json = new JsonObject();
+            json.addProperty("bundle", bundle);
+            json.addProperty("checksum", checksum);
+            json.addProperty("size_bytes", sizeBytes);
+            JsonArray bitstreams = new JsonArray();
+            for (Member member : members) {
+                JsonObject bitstream = new JsonObject();
+                bitstream.addProperty("bitstream", member.bitstreamId.toString());
+                bitstream.addProperty("item", member.itemId.toString());
+                bitstream.addProperty("handle", member.handle);
+                bitstream.addProperty("name", member.name);
+                bitstreams.add(bitstream);
+            }
+            json.add("bitstreams", bitstreams);
+            return json;
+        }
+    }
+
+    private static class Member {
+        private final UUID bitstreamId;
+        private final UUID itemId;
+        private final String handle;
+        private final String name;
+
+        Member(UUID bitstreamId, UUID itemId, String handle, String name) {
+            this.bitstreamId = bitstreamId;
+            this.itemId = itemId;
+            this.handle = handle;
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.scripts;
+
+import java.util.Date;
+import java.util.UUID;
+
+/** An item that was found by {@link ScriptRunner}, before a worker loads it for processing. */
+class FoundItem {
+    private final UUID id;
+    private final Date lastModified;
+
+    FoundItem(UUID id, Date lastModified) {
+        this.id = id;
+        this.lastModified = lastModified;
+    }
+
+    UUID getID() {
+        return id;
+    }
+
+    Date getLastModified() {
+        return lastModified;
+    }
+}
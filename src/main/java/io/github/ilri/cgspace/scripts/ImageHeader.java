@@ -0,0 +1,288 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.scripts;
+
+import io.github.ilri.cgspace.metrics.Metrics;
+import io.github.ilri.cgspace.metrics.PhaseTimer;
+
+import org.dspace.authorize.AuthorizeException;
+import org.dspace.content.Bitstream;
+import org.dspace.content.factory.ContentServiceFactory;
+import org.dspace.content.service.BitstreamService;
+import org.dspace.core.Context;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.sql.SQLException;
+
+/**
+ * The pixel dimensions of a JPEG or PNG image, read from its header without decoding the image.
+ *
+ * <p>A PNG's dimensions are in its first chunk (IHDR). A JPEG's are in its start of frame (SOFn)
+ * segment, which comes after the EXIF, ICC profile, and other segments that can be tens of
+ * kilobytes each, so segments we don't need are skipped without reading them. For bitstreams in a
+ * local assetstore that is a seek, so only a few small reads into a {@value #BUFFER_SIZE} byte
+ * buffer are needed per image, however large it is.
+ */
+final class ImageHeader {
+    private static final PhaseTimer READ_HEADER = Metrics.timer("ImageHeader", "read_header");
+
+    static final int BUFFER_SIZE = 512;
+    // give up on images whose frame header isn't in the first megabyte, which are broken
+    private static final long MAX_HEADER_OFFSET = 1024 * 1024;
+
+    private static final byte[] PNG_SIGNATURE = {
+        (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'
+    };
+
+    private final String format;
+    private final int width;
+    private final int height;
+
+    ImageHeader(String format, int width, int height) {
+        this.format = format;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Read the dimensions of a bitstream's image.
+     *
+     * @return the dimensions, or <code>null</code> if the bitstream isn't a JPEG or PNG image or
+     *     its header is broken
+     */
+    static ImageHeader read(Context context, Bitstream bitstream)
+            throws SQLException, IOException, AuthorizeException {
+        long start = System.nanoTime();
+        try (InputStream in = Services.bitstreamService.retrieve(context, bitstream)) {
+            return read(in);
+        } finally {
+            READ_HEADER.stop(start);
+        }
+    }
+
+    /**
+     * Read the dimensions of an image. The stream is not closed.
+     *
+     * @return the dimensions, or <code>null</code> if the stream isn't a JPEG or PNG image or its
+     *     header is broken
+     */
+    static ImageHeader read(InputStream in) throws IOException {
+        HeaderReader reader = new HeaderReader(in);
+        if (!reader.fill(8)) {
+            return null;
+        }
+
+        ByteBuffer buffer = reader.buffer;
+        if ((buffer.get(0) & 0xff) == 0xff && (buffer.get(1) & 0xff) == 0xd8) {
+            reader.skip(2);
+            return readJpeg(reader);
+        }
+        for (int i = 0; i < PNG_SIGNATURE.length; i++) {
+            if (buffer.get(i) != PNG_SIGNATURE[i]) {
+                return null;
+            }
+        }
+        reader.skip(PNG_SIGNATURE.length);
+        return readPng(reader);
+    }
+
+    private static ImageHeader readPng(HeaderReader reader) throws IOException {
+        // the IHDR chunk always comes first: length, type, width, height
+        if (!reader.fill(16)) {
+            return null;
+        }
+
+        ByteBuffer buffer = reader.buffer;
+        int position = buffer.position();
+        if (buffer.get(position + 4) != 'I'
+                || buffer.get(position + 5) != 'H'
+                || buffer.get(position + 6) != 'D'
+                || buffer.get(position + 7) != 'R') {
+            return null;
+        }
+
+        return dimensions("PNG", buffer.getInt(position + 8), buffer.getInt(position + 12));
+    }
+
+    private static ImageHeader readJpeg(HeaderReader reader) throws IOException {
+        ByteBuffer buffer = reader.buffer;
+        while (reader.offset < MAX_HEADER_OFFSET) {
+            if (!reader.fill(1)) {
+                return null;
+            }
+            if ((reader.get() & 0xff) != 0xff) {
+                // not at a marker, so the file is broken
+                return null;
+            }
+
+            // markers can be padded with any number of 0xff bytes
+            int marker;
+            do {
+                if (!reader.fill(1)) {
+                    return null;
+                }
+                marker = reader.get() & 0xff;
+            } while (marker == 0xff);
+
+            // standalone markers have no length or data
+            if (marker == 0x01 || (marker >= 0xd0 && marker <= 0xd7)) {
+                continue;
+            }
+            // the image data or the end of the image, without a frame header before it
+            if (marker == 0xd9 || marker == 0xda) {
+                return null;
+            }
+
+            if (!reader.fill(2)) {
+                return null;
+            }
+            int length = buffer.getShort(buffer.position()) & 0xffff;
+            if (length < 2) {
+                return null;
+            }
+
+            if (isStartOfFrame(marker)) {
+                // length, sample precision, height, width
+                if (!reader.fill(7)) {
+                    return null;
+                }
+                int position = buffer.position();
+                int height = buffer.getShort(position + 3) & 0xffff;
+                int width = buffer.getShort(position + 5) & 0xffff;
+                return dimensions("JPEG", width, height);
+            }
+
+            reader.skip(length);
+        }
+
+        return null;
+    }
+
+    /** SOF0 to SOF15, except DHT (0xc4), JPG (0xc8), and DAC (0xcc), which share the range. */
+    private static boolean isStartOfFrame(int marker) {
+        return marker >= 0xc0
+                && marker <= 0xcf
+                && marker != 0xc4
+                && marker != 0xc8
+                && marker != 0xcc;
+    }
+
+    private static ImageHeader dimensions(String format, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            return null;
+        }
+        return new ImageHeader(format, width, height);
+    }
+
+    /** "JPEG" or "PNG". */
+    String getFormat() {
+        return format;
+    }
+
+    int getWidth() {
+        return width;
+    }
+
+    int getHeight() {
+        return height;
+    }
+
+    int getLongestSide() {
+        return Math.max(width, height);
+    }
+
+    @Override
+    public String toString() {
+        return width + "x" + height + " " + format;
+    }
+
+    /**
+     * DSpace's services, which are only looked up when the first bitstream is read, so that
+     * images can be read from streams without a running DSpace, like in the tests and benchmarks.
+     */
+    private static class Services {
+        static final BitstreamService bitstreamService =
+                ContentServiceFactory.getInstance().getBitstreamService();
+    }
+
+    /**
+     * Reads the start of a stream into a small buffer, and skips over the parts that aren't
+     * needed without reading them if the stream supports it.
+     */
+    private static class HeaderReader {
+        private final InputStream in;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        // how far into the stream the buffer's position is
+        private long offset = 0;
+
+        HeaderReader(InputStream in) {
+            this.in = in;
+            buffer.limit(0);
+        }
+
+        /**
+         * Make sure at least <code>count</code> bytes are in the buffer after its position.
+         *
+         * @return whether there were enough bytes left in the stream
+         */
+        boolean fill(int count) throws IOException {
+            if (buffer.remaining() >= count) {
+                return true;
+            }
+
+            buffer.compact();
+            try {
+                while (buffer.position() < count) {
+                    int read =
+                            in.read(
+                                    buffer.array(),
+                                    buffer.arrayOffset() + buffer.position(),
+                                    buffer.remaining());
+                    if (read < 0) {
+                        return false;
+                    }
+                    buffer.position(buffer.position() + read);
+                }
+            } finally {
+                buffer.flip();
+            }
+            return true;
+        }
+
+        /** Get the next byte from the buffer, which must have been filled. */
+        byte get() {
+            offset++;
+            return buffer.get();
+        }
+
+        /** Skip <code>count</code> bytes, seeking past them in the stream if needed. */
+        void skip(long count) throws IOException {
+            offset += count;
+
+            if (count <= buffer.remaining()) {
+                buffer.position(buffer.position() + (int) count);
+                return;
+            }
+
+            long toSkip = count - buffer.remaining();
+            buffer.position(buffer.limit());
+            while (toSkip > 0) {
+                long skipped = in.skip(toSkip);
+                if (skipped <= 0) {
+                    // some streams only skip what they have buffered, so read a byte instead
+                    if (in.read() < 0) {
+                        return;
+                    }
+                    skipped = 1;
+                }
+                toSkip -= skipped;
+            }
+        }
+    }
+}
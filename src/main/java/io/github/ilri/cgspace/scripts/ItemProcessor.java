@@ -0,0 +1,322 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.scripts;
+
+import io.github.ilri.cgspace.metrics.Metrics;
+import io.github.ilri.cgspace.metrics.PhaseTimer;
+import io.github.ilri.cgspace.util.AdaptiveThrottle;
+import io.github.ilri.cgspace.util.DeferredIndex;
+
+import org.dspace.authorize.AuthorizeException;
+import org.dspace.content.Bitstream;
+import org.dspace.content.Bundle;
+import org.dspace.content.Item;
+import org.dspace.content.factory.ContentServiceFactory;
+import org.dspace.content.service.ItemService;
+import org.dspace.core.Context;
+import org.hibernate.Hibernate;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Process single items for a {@link ScriptRunner} run: find the {@link ThumbnailAction}s of an
+ * item with its {@link ThumbnailFixer}, then apply them or write them to the plan, and commit the
+ * items in batches.
+ *
+ * <p>One instance is shared by all workers of a {@link WorkerPool}, or used by {@link PlanApplier}
+ * on its own, so it only holds the settings of the run and the objects the workers share. Each
+ * worker brings its own {@link Context} and {@link Batch}.
+ */
+class ItemProcessor {
+    // note: static members belong to the class itself, not any one instance
+    public static ItemService itemService = ContentServiceFactory.getInstance().getItemService();
+
+    private final String name;
+    private final ThumbnailFixer fixer;
+    // number of items each worker commits at once
+    private final int batchSize;
+    // only set when throttling
+    private final AdaptiveThrottle throttle;
+    private final ActionLog log;
+    // only set when indexing is deferred
+    private final DeferredIndex deferredIndex;
+    // only set when writing a plan
+    private PlanFile.Writer plan;
+    // only set when the items have positions
+    private Checkpoint checkpoint;
+
+    private final PhaseTimer itemTimer;
+    private final PhaseTimer loadItemTimer;
+    private final PhaseTimer findActionsTimer;
+    private final PhaseTimer applyChangesTimer;
+    private final PhaseTimer updateItemTimer;
+    private final PhaseTimer commitTimer;
+
+    ItemProcessor(
+            String name,
+            ThumbnailFixer fixer,
+            int batchSize,
+            AdaptiveThrottle throttle,
+            ActionLog log,
+            DeferredIndex deferredIndex) {
+        this.name = name;
+        this.fixer = fixer;
+        this.batchSize = batchSize;
+        this.throttle = throttle;
+        this.log = log;
+        this.deferredIndex = deferredIndex;
+
+        itemTimer = Metrics.timer(name, "item");
+        loadItemTimer = Metrics.timer(name, "load_item");
+        findActionsTimer = Metrics.timer(name, "find_actions");
+        applyChangesTimer = Metrics.timer(name, "apply_changes");
+        updateItemTimer = Metrics.timer(name, "update_item");
+        commitTimer = Metrics.timer(name, "commit");
+    }
+
+    /** Write the changes to a plan instead of making them. Must be set before any work starts. */
+    void setPlan(PlanFile.Writer plan) {
+        this.plan = plan;
+    }
+
+    /** Mark queued items done in a checkpoint once they are committed. */
+    void setCheckpoint(Checkpoint checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    ActionLog getLog() {
+        return log;
+    }
+
+    boolean isPlanning() {
+        return plan != null;
+    }
+
+    /** Create a context for finding or processing items, which is read-only when planning. */
+    Context newContext() {
+        Context context = plan == null ? new Context() : new Context(Context.Mode.READ_ONLY);
+        context.turnOffAuthorisationSystem();
+        if (deferredIndex != null) {
+            DeferredIndex.suppressIndexing(context);
+        }
+        return context;
+    }
+
+    /**
+     * Find and process a queued item, or apply the changes planned for it, and add it to the
+     * worker's batch. Items that no longer exist are added too, so that they count as done.
+     */
+    void processItem(
+            Context context, QueuedItem queuedItem, Batch batch, RunSummary summary, ActionLog log)
+            throws SQLException, AuthorizeException, IOException {
+        long start = System.nanoTime();
+        Item item = findItem(context, queuedItem.getItemId());
+        int applied = 0;
+        if (item == null) {
+            if (queuedItem.getChanges() != null) {
+                status("item " + queuedItem.getItemId() + " no longer exists, skipping");
+            }
+        } else if (queuedItem.getChanges() != null) {
+            // the plan was reviewed, so its changes are applied as they are
+            applied = applyChanges(context, item, queuedItem.getChanges());
+            itemTimer.stop(start);
+        } else {
+            applied = processItem(context, item, summary, log);
+            itemTimer.stop(start);
+        }
+        batch.add(queuedItem, item, applied);
+    }
+
+    /** Find the actions for an item and apply or plan them, returning how many were applied. */
+    private int processItem(Context context, Item item, RunSummary summary, ActionLog log)
+            throws SQLException, AuthorizeException, IOException {
+        log.item(item);
+
+        long start = System.nanoTime();
+        List<ThumbnailAction> actions = fixer.findActions(context, item, log);
+        findActionsTimer.stop(start);
+
+        List<BitstreamChange> changes = new ArrayList<>();
+        for (ThumbnailAction action : actions) {
+            log.action(item, action);
+            summary.action(action);
+            changes.addAll(BitstreamChange.fromAction(item.getID(), action));
+        }
+
+        if (plan != null) {
+            if (!changes.isEmpty()) {
+                plan.write(changes);
+            }
+            return 0;
+        }
+
+        return applyChanges(context, item, changes);
+    }
+
+    private Item findItem(Context context, UUID itemId) throws SQLException {
+        long start = System.nanoTime();
+        Item item = itemService.find(context, itemId);
+        loadItemTimer.stop(start);
+        return item;
+    }
+
+    /** Apply changes to an item and update it, returning how many changes were applied. */
+    private int applyChanges(Context context, Item item, List<BitstreamChange> changes)
+            throws SQLException, AuthorizeException, IOException {
+        long start = System.nanoTime();
+        int applied = 0;
+        for (BitstreamChange change : changes) {
+            if (change.apply(context, item)) {
+                applied++;
+            } else {
+                log.changeSkipped(item, change);
+            }
+        }
+        applyChangesTimer.stop(start);
+
+        start = System.nanoTime();
+        itemService.update(context, item);
+        updateItemTimer.stop(start);
+
+        if (deferredIndex != null && applied > 0) {
+            deferredIndex.add(item.getID());
+        }
+        return applied;
+    }
+
+    private void commit(Context context) throws SQLException {
+        long start = System.nanoTime();
+        context.commit();
+        commitTimer.stop(start);
+        if (throttle != null) {
+            // commits are part of the items' latency, but aren't items themselves
+            throttle.record(0, System.nanoTime() - start);
+        }
+    }
+
+    /** Wait until the throttle lets the next item be processed, if the run is throttled. */
+    void throttle() throws InterruptedException {
+        if (throttle != null) {
+            throttle.acquire();
+        }
+    }
+
+    /** Record the time an item took since <code>start</code>, if the run is throttled. */
+    void itemDone(long start) {
+        if (throttle != null) {
+            throttle.record(1, System.nanoTime() - start);
+        }
+    }
+
+    /** The number of items to commit at once, which is smaller while the run is throttled. */
+    int getBatchSize() {
+        return throttle != null ? throttle.getBatchSize(batchSize) : batchSize;
+    }
+
+    /** A new, empty batch for a worker. */
+    Batch newBatch() {
+        return new Batch(batchSize);
+    }
+
+    /**
+     * Commit a batch of items, unless we are writing a plan, and evict them from the context.
+     *
+     * <p>The batch is only cleared if committing succeeds.
+     */
+    void commitBatch(int worker, Context context, Batch batch, RunSummary summary)
+            throws SQLException {
+        if (batch.size() == 0) {
+            return;
+        }
+
+        if (plan == null) {
+            commit(context);
+        }
+
+        // the batch is committed, so nothing after this may fail it
+        try {
+            for (Item item : batch.getItems()) {
+                uncache(context, item);
+            }
+            log.batchDone(worker, batch.size(), batch.getPeakHeapBytes(), throttle);
+        } catch (SQLException | IOException e) {
+            error(null, e);
+        }
+
+        for (int i = 0; i < batch.getItems().size(); i++) {
+            summary.itemProcessed(worker);
+        }
+        summary.batchDone(batch.getPeakHeapBytes(), batch.getAppliedChanges());
+
+        // only now are the items really done
+        for (QueuedItem queuedItem : batch.getQueuedItems()) {
+            done(queuedItem);
+        }
+        batch.clear();
+    }
+
+    /** Mark an item done in the checkpoint, whether it was committed or failed. */
+    void done(QueuedItem queuedItem) {
+        // items from a plan have no position
+        if (checkpoint == null || queuedItem.getChanges() != null) {
+            return;
+        }
+
+        try {
+            checkpoint.done(queuedItem.getPosition(), queuedItem.getItemId());
+        } catch (IOException e) {
+            error("unable to save checkpoint", e);
+        }
+    }
+
+    /** Print a status line of the run, in order with the items logged to the console. */
+    void status(String message) {
+        log.status(name + ": " + message);
+    }
+
+    /**
+     * Print an error to standard error, after what was logged to the console before it.
+     *
+     * @param message the message, or <code>null</code> to only print the exception
+     * @param e the exception, or <code>null</code> to only print the message
+     */
+    void error(String message, Exception e) {
+        log.flush();
+        if (message != null) {
+            System.err.println(name + ": " + message);
+        }
+        if (e != null) {
+            e.printStackTrace(System.err);
+        }
+    }
+
+    /**
+     * Evict an item from a context together with its bundles and bitstreams, but only if they
+     * were loaded, because getting them would load them.
+     */
+    static void uncache(Context context, Item item) throws SQLException {
+        List<Bundle> bundles = item.getBundles();
+        if (Hibernate.isInitialized(bundles)) {
+            for (Bundle bundle : bundles) {
+                // an item's bitstreams are loaded together with its bundles by ItemSnapshot
+                for (Bitstream bitstream : bundle.getBitstreams()) {
+                    context.uncacheEntity(bitstream);
+                }
+                context.uncacheEntity(bundle);
+            }
+        }
+        context.uncacheEntity(item);
+    }
+}
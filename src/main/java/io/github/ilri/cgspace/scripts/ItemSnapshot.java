@@ -0,0 +1,250 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.scripts;
+
+import io.github.ilri.cgspace.metrics.Metrics;
+import io.github.ilri.cgspace.metrics.PhaseTimer;
+
+import org.dspace.authorize.AuthorizeException;
+import org.dspace.content.Bitstream;
+import org.dspace.content.Bundle;
+import org.dspace.content.Item;
+import org.dspace.core.Context;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * An item's bundles and bitstreams, loaded once.
+ *
+ * <p>Getting a bitstream's name, description, or format goes through its metadata or a lazily
+ * loaded entity every time, so the scripts load everything they need up front and work from this
+ * snapshot instead. Bitstreams are also indexed by their lowercase name so that they can be found
+ * without scanning all of the item's bitstreams.
+ *
+ * <p>The dimensions of JPEG and PNG images in the THUMBNAIL and ORIGINAL bundles are only read
+ * when asked for, because that means opening each of those bitstreams.
+ *
+ * <p>The snapshot is not updated when the item changes.
+ */
+class ItemSnapshot {
+    private static final PhaseTimer GET_BUNDLES = Metrics.timer("ItemSnapshot", "get_bundles");
+    private static final PhaseTimer GET_BITSTREAMS =
+            Metrics.timer("ItemSnapshot", "get_bitstreams");
+
+    private final Item item;
+    private final String handle;
+    private final List<BundleSnapshot> bundles;
+    private final Map<String, List<BitstreamSnapshot>> bitstreamsByName;
+
+    private ItemSnapshot(Item item, List<BundleSnapshot> bundles) {
+        this.item = item;
+        this.handle = item.getHandle();
+        this.bundles = Collections.unmodifiableList(bundles);
+
+        this.bitstreamsByName = new HashMap<>();
+        for (BundleSnapshot bundle : bundles) {
+            for (BitstreamSnapshot bitstream : bundle.getBitstreams()) {
+                bitstreamsByName
+                        .computeIfAbsent(bitstream.getLowerCaseName(), k -> new ArrayList<>(1))
+                        .add(bitstream);
+            }
+        }
+    }
+
+    /**
+     * Load an item's bundles and bitstreams, and optionally the dimensions of its images.
+     *
+     * @param context the DSpace context, used to look up bitstream formats and read bitstreams
+     * @param item the item
+     * @param readImageHeaders whether to read the dimensions of JPEG and PNG images in the
+     *     THUMBNAIL and ORIGINAL bundles
+     * @return a snapshot of the item
+     */
+    static ItemSnapshot load(Context context, Item item, boolean readImageHeaders)
+            throws SQLException, IOException, AuthorizeException {
+        long start = System.nanoTime();
+        List<Bundle> itemBundles = item.getBundles();
+        GET_BUNDLES.stop(start);
+
+        List<BundleSnapshot> bundles = new ArrayList<>();
+        for (Bundle bundle : itemBundles) {
+            List<BitstreamSnapshot> bitstreams = new ArrayList<>();
+            BundleSnapshot bundleSnapshot =
+                    new BundleSnapshot(bundle, bundle.getName(), bitstreams);
+
+            start = System.nanoTime();
+            List<Bitstream> bundleBitstreams = bundle.getBitstreams();
+            GET_BITSTREAMS.stop(start);
+
+            boolean imageBundle =
+                    "THUMBNAIL".equals(bundleSnapshot.getName())
+                            || "ORIGINAL".equals(bundleSnapshot.getName());
+            for (Bitstream bitstream : bundleBitstreams) {
+                String mimeType = BitstreamFormatCache.getMIMEType(context, bitstream);
+                ImageHeader imageHeader = null;
+                if (readImageHeaders
+                        && imageBundle
+                        && (mimeType.contains("image/jpeg") || mimeType.contains("image/png"))) {
+                    imageHeader = ImageHeader.read(context, bitstream);
+                }
+
+                bitstreams.add(
+                        new BitstreamSnapshot(
+                                bundleSnapshot,
+                                bitstream,
+                                bitstream.getName(),
+                                bitstream.getDescription(),
+                                bitstream.getSizeBytes(),
+                                mimeType,
+                                imageHeader));
+            }
+
+            bundles.add(bundleSnapshot);
+        }
+
+        return new ItemSnapshot(item, bundles);
+    }
+
+    Item getItem() {
+        return item;
+    }
+
+    String getHandle() {
+        return handle;
+    }
+
+    /** All bundles with the given name, for example "THUMBNAIL". */
+    List<BundleSnapshot> getBundles(String name) {
+        List<BundleSnapshot> matchingBundles = new ArrayList<>();
+        for (BundleSnapshot bundle : bundles) {
+            if (name.equals(bundle.getName())) {
+                matchingBundles.add(bundle);
+            }
+        }
+        return matchingBundles;
+    }
+
+    /**
+     * Find bitstreams by name, ignoring case.
+     *
+     * @param bundleName only return bitstreams in bundles with this name
+     * @param bitstreamName the name of the bitstream
+     * @return the matching bitstreams, if any
+     */
+    List<BitstreamSnapshot> findBitstreams(String bundleName, String bitstreamName) {
+        List<BitstreamSnapshot> candidates =
+                bitstreamsByName.get(bitstreamName.toLowerCase(Locale.ROOT));
+        if (candidates == null) {
+            return Collections.emptyList();
+        }
+
+        List<BitstreamSnapshot> matchingBitstreams = new ArrayList<>(candidates.size());
+        for (BitstreamSnapshot bitstream : candidates) {
+            if (bundleName.equals(bitstream.getBundle().getName())) {
+                matchingBitstreams.add(bitstream);
+            }
+        }
+        return matchingBitstreams;
+    }
+
+    static class BundleSnapshot {
+        private final Bundle bundle;
+        private final String name;
+        private final List<BitstreamSnapshot> bitstreams;
+
+        private BundleSnapshot(Bundle bundle, String name, List<BitstreamSnapshot> bitstreams) {
+            this.bundle = bundle;
+            this.name = name;
+            this.bitstreams = Collections.unmodifiableList(bitstreams);
+        }
+
+        Bundle getBundle() {
+            return bundle;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        List<BitstreamSnapshot> getBitstreams() {
+            return bitstreams;
+        }
+    }
+
+    static class BitstreamSnapshot {
+        private final BundleSnapshot bundle;
+        private final Bitstream bitstream;
+        private final String name;
+        private final String lowerCaseName;
+        private final String description;
+        private final long sizeBytes;
+        private final String mimeType;
+        private final ImageHeader imageHeader;
+
+        private BitstreamSnapshot(
+                BundleSnapshot bundle,
+                Bitstream bitstream,
+                String name,
+                String description,
+                long sizeBytes,
+                String mimeType,
+                ImageHeader imageHeader) {
+            this.bundle = bundle;
+            this.bitstream = bitstream;
+            this.name = name;
+            this.lowerCaseName = name == null ? "" : name.toLowerCase(Locale.ROOT);
+            this.description = description;
+            this.sizeBytes = sizeBytes;
+            this.mimeType = mimeType;
+            this.imageHeader = imageHeader;
+        }
+
+        /** The bundle this bitstream was in when the snapshot was taken. */
+        BundleSnapshot getBundle() {
+            return bundle;
+        }
+
+        Bitstream getBitstream() {
+            return bitstream;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        String getLowerCaseName() {
+            return lowerCaseName;
+        }
+
+        String getDescription() {
+            return description;
+        }
+
+        long getSizeBytes() {
+            return sizeBytes;
+        }
+
+        String getMIMEType() {
+            return mimeType;
+        }
+
+        /**
+         * The image's dimensions, or <code>null</code> if they weren't read or the bitstream isn't
+         * a JPEG or PNG image.
+         */
+        ImageHeader getImageHeader() {
+            return imageHeader;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.scripts;
+
+import io.github.ilri.cgspace.util.UuidSet;
+
+import org.dspace.content.Collection;
+import org.dspace.content.Community;
+import org.dspace.content.DSpaceObject;
+import org.dspace.content.Item;
+import org.dspace.content.factory.ContentServiceFactory;
+import org.dspace.content.service.ItemService;
+import org.dspace.core.Constants;
+import org.dspace.core.Context;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+
+/**
+ * Visits every item in a site, community tree, collection, or list exactly once.
+ *
+ * <p>A community is searched together with all of its sub-communities, and their collections are
+ * queried one at a time so that only one collection's result set is open at once. Items mapped
+ * into several of those collections are found more than once, so the UUIDs of the items already
+ * visited are kept in a {@link UuidSet}, which takes a few dozen bytes per item.
+ *
+ * <p>Items are loaded in the context they are found in and are not evicted from it, that is up to
+ * the caller, except for the duplicates, which the caller never sees. Like the iterators returned
+ * by DSpace's services a traversal is not thread-safe.
+ */
+final class ItemTraversal implements Iterator<Item> {
+    // note: static members belong to the class itself, not any one instance
+    private static final ItemService itemService =
+            ContentServiceFactory.getInstance().getItemService();
+
+    private final Context context;
+    private final Iterator<Collection> collections;
+    // only set when the source can find the same item twice
+    private final UuidSet visited;
+
+    private Iterator<Item> current;
+    private Item next;
+
+    private ItemTraversal(
+            Context context,
+            Iterator<Item> items,
+            Iterator<Collection> collections,
+            UuidSet visited) {
+        this.context = context;
+        this.current = items;
+        this.collections = collections;
+        this.visited = visited;
+    }
+
+    /**
+     * Visit the items in a site, community tree, or collection, or a single item.
+     *
+     * @param context the context to find and load items in
+     * @param scope where to find the items, or <code>null</code> for the whole site
+     */
+    static ItemTraversal of(Context context, DSpaceObject scope) throws SQLException {
+        if (scope == null || scope.getType() == Constants.SITE) {
+            // every item once, so there is no need to remember which ones we visited
+            return new ItemTraversal(
+                    context, itemService.findAll(context), Collections.emptyIterator(), null);
+        }
+
+        switch (scope.getType()) {
+            case Constants.COMMUNITY:
+                return new ItemTraversal(
+                        context,
+                        Collections.emptyIterator(),
+                        getCollections(scope).iterator(),
+                        new UuidSet());
+            case Constants.COLLECTION:
+                return new ItemTraversal(
+                        context,
+                        itemService.findByCollection(context, (Collection) scope),
+                        Collections.emptyIterator(),
+                        null);
+            case Constants.ITEM:
+                return new ItemTraversal(
+                        context,
+                        Collections.singletonList((Item) scope).iterator(),
+                        Collections.emptyIterator(),
+                        null);
+            default:
+                return new ItemTraversal(
+                        context, Collections.emptyIterator(), Collections.emptyIterator(), null);
+        }
+    }
+
+    /**
+     * Visit the items in a list, for example one read from an {@link
+     * io.github.ilri.cgspace.util.ItemList}. Items are loaded one at a time, UUIDs that are listed
+     * more than once are only visited the first time, and items that were deleted are left out.
+     */
+    static ItemTraversal of(Context context, List<UUID> itemIds) {
+        Iterator<UUID> itemIdIterator = itemIds.iterator();
+
+        Iterator<Item> items =
+                new Iterator<Item>() {
+                    private Item next;
+
+                    @Override
+                    public boolean hasNext() {
+                        while (next == null && itemIdIterator.hasNext()) {
+                            try {
+                                next = itemService.find(context, itemIdIterator.next());
+                            } catch (SQLException e) {
+                                throw new IllegalStateException(e);
+                            }
+                        }
+                        return next != null;
+                    }
+
+                    @Override
+                    public Item next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        Item item = next;
+                        next = null;
+                        return item;
+                    }
+                };
+
+        return new ItemTraversal(
+                context, items, Collections.emptyIterator(), new UuidSet(itemIds.size()));
+    }
+
+    /**
+     * The collections in a community and all of its sub-communities, each of them once, or just
+     * the collection itself.
+     */
+    static List<Collection> getCollections(DSpaceObject scope) {
+        List<Collection> found = new ArrayList<>();
+        if (scope.getType() == Constants.COLLECTION) {
+            found.add((Collection) scope);
+        } else if (scope.getType() == Constants.COMMUNITY) {
+            addCollections((Community) scope, found, new UuidSet(), new UuidSet());
+        }
+        return found;
+    }
+
+    private static void addCollections(
+            Community community,
+            List<Collection> found,
+            UuidSet visitedCommunities,
+            UuidSet foundCollections) {
+        // a community or collection can have more than one parent
+        if (!visitedCommunities.add(community.getID())) {
+            return;
+        }
+
+        for (Collection collection : community.getCollections()) {
+            if (foundCollections.add(collection.getID())) {
+                found.add(collection);
+            }
+        }
+        for (Community subcommunity : community.getSubcommunities()) {
+            addCollections(subcommunity, found, visitedCommunities, foundCollections);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null) {
+            if (!current.hasNext()) {
+                if (!collections.hasNext()) {
+                    return false;
+                }
+                try {
+                    current = itemService.findAllByCollection(context, collections.next());
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+                continue;
+            }
+
+            Item item = current.next();
+            if (visited == null || visited.add(item.getID())) {
+                next = item;
+            } else {
+                uncache(item);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Item next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Item item = next;
+        next = null;
+        return item;
+    }
+
+    private void uncache(Item item) {
+        try {
+            context.uncacheEntity(item);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.scripts;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+import io.github.ilri.cgspace.scripts.ItemSnapshot.BitstreamSnapshot;
+import io.github.ilri.cgspace.util.AdaptiveThrottle;
+
+import org.dspace.content.Item;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Log actions to a file with one JSON object per line (NDJSON), for example:
+ *
+ * <pre>
+ * {"time":"2026-01-31T18:00:00Z","event":"action","item":"…","handle":"10568/1",
+ *  "action":"REMOVE_FROM_THUMBNAIL","message":"remove old thumbnail from THUMBNAIL bundle",
+ *  "bundle":"THUMBNAIL","bitstream":"…","name":"report.pdf.jpg",
+ *  "description":"Generated Thumbnail"}
+ * </pre>
+ *
+ * <p>The <code>event</code> is one of <code>action</code>, <code>item_skipped</code>, <code>
+ * change_skipped</code>, or <code>batch_done</code>, which has no item. Each object is written on a
+ * single line, the example is only wrapped for readability.
+ */
+class JsonActionLog implements ActionLog {
+    private final Gson gson = new Gson();
+    private final Writer writer;
+
+    JsonActionLog(File file) throws IOException {
+        this.writer =
+                new BufferedWriter(
+                        new OutputStreamWriter(
+                                new FileOutputStream(file, true), StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void item(Item item) {
+        // only the outcome of processing an item is logged
+    }
+
+    @Override
+    public void itemSkipped(Item item, String reason) throws IOException {
+        JsonObject event = event("item_skipped", item);
+        event.addProperty("reason", reason);
+        write(event);
+    }
+
+    @Override
+    public void action(Item item, ThumbnailAction action) throws IOException {
+        JsonObject event = event("action", item);
+        event.addProperty("action", action.getType().name());
+        event.addProperty("message", action.getMessage());
+        addBitstream(event, "", action.getBitstream());
+        if (action.getOriginalBitstream() != null) {
+            addBitstream(event, "original_", action.getOriginalBitstream());
+        }
+        write(event);
+    }
+
+    @Override
+    public void changeSkipped(Item item, BitstreamChange change) throws IOException {
+        JsonObject event = event("change_skipped", item);
+        event.addProperty("change", change.getType().name());
+        event.addProperty("bundle", change.getBundleId().toString());
+        event.addProperty("bitstream", change.getBitstreamId().toString());
+        if (change.getTargetBundleId() != null) {
+            event.addProperty("target_bundle", change.getTargetBundleId().toString());
+        }
+        write(event);
+    }
+
+    @Override
+    public void batchDone(int worker, int items, long peakHeapBytes, AdaptiveThrottle throttle)
+            throws IOException {
+        JsonObject event = new JsonObject();
+        event.addProperty("time", Instant.now().toString());
+        event.addProperty("event", "batch_done");
+        event.addProperty("worker", worker);
+        event.addProperty("items", items);
+        event.addProperty("peak_heap_bytes", peakHeapBytes);
+        if (throttle != null) {
+            // no rate means the run isn't held back at the moment
+            if (throttle.isThrottled()) {
+                event.addProperty("throttle_rate", throttle.getRate());
+            }
+            event.addProperty("throttle_latency_ms", throttle.getLatencyMillis());
+            event.addProperty("throttle_target_ms", throttle.getTargetMillis());
+            event.addProperty("throttle_backoffs", throttle.getBackoffs());
+        }
+        write(event);
+    }
+
+    private static JsonObject event(String type, Item item) {
+        JsonObject event = new JsonObject();
+        event.addProperty("time", Instant.now().toString());
+        event.addProperty("event", type);
+        event.addProperty("item", item.getID().toString());
+        event.addProperty("handle", item.getHandle());
+        return event;
+    }
+
+    private static void addBitstream(JsonObject event, String prefix, BitstreamSnapshot bitstream) {
+        event.addProperty(prefix + "bundle", bitstream.getBundle().getName());
+        event.addProperty(prefix + "bitstream", bitstream.getBitstream().getID().toString());
+        event.addProperty(prefix + "name", bitstream.getName());
+        event.addProperty(prefix + "description", bitstream.getDescription());
+    }
+
+    private synchronized void write(JsonObject event) throws IOException {
+        // Gson escapes newlines inside strings, so this is always a single line
+        writer.write(gson.toJson(event));
+        writer.write('\n');
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.scripts;
+
+import io.github.ilri.cgspace.util.SummaryFile;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.lang.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Merge the summaries of the shards of a run into one report, see {@link SummaryFile}. Works for
+ * the summaries of the scripts and of the country code tagger's runner alike, and doesn't need
+ * DSpace.
+ */
+public class MergeSummaries {
+    private static final String NAME = "MergeSummaries";
+
+    public static void main(String[] args) {
+        Options options = new Options();
+        options.addOption(
+                Option.builder("o")
+                        .longOpt("output")
+                        .hasArg()
+                        .argName("FILE")
+                        .desc("also write the merged summary to FILE as JSON")
+                        .build());
+        options.addOption("h", "help", false, "show this help");
+
+        CommandLine line;
+        try {
+            line = new DefaultParser().parse(options, args);
+            if (!line.hasOption("help") && line.getArgs().length == 0) {
+                throw new ParseException("Missing the summaries to merge");
+            }
+        } catch (ParseException e) {
+            System.err.println(NAME + ": " + e.getMessage());
+            printHelp(options);
+            return;
+        }
+
+        if (line.hasOption("help")) {
+            printHelp(options);
+            return;
+        }
+
+        List<SummaryFile> summaries = new ArrayList<>();
+        SummaryFile merged;
+        try {
+            for (String file : line.getArgs()) {
+                summaries.add(SummaryFile.read(new File(file)));
+            }
+            merged = SummaryFile.merge(summaries);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println(NAME + ": " + e.getMessage());
+            return;
+        }
+
+        for (SummaryFile summary : summaries) {
+            // a summary can itself be merged from several shards
+            System.out.println(
+                    "Shard "
+                            + StringUtils.join(summary.getShards(), ", ")
+                            + ": "
+                            + summary.getItems()
+                            + " item(s) in "
+                            + summary.getElapsedMillis() / 1000
+                            + "s");
+        }
+        merged.print(System.out);
+        List<String> missing = merged.getMissingShards();
+        if (!missing.isEmpty()) {
+            System.out.println("> Missing shard(s): " + String.join(", ", missing));
+        }
+
+        if (line.hasOption("output")) {
+            try {
+                merged.write(new File(line.getOptionValue("output")));
+            } catch (IOException e) {
+                e.printStackTrace(System.err);
+            }
+        }
+    }
+
+    private static void printHelp(Options options) {
+        new HelpFormatter()
+                .printHelp(
+                        "dspace dsrun io.github.ilri.cgspace.scripts."
+                                + NAME
+                                + " [options] SUMMARY...",
+                        options);
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.scripts;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Apply the changes in a {@link PlanFile} written by a <code>--plan</code> run, for <code>--apply
+ * FILE</code>.
+ *
+ * <p>Only the items in the plan are loaded, and they are handed to a {@link WorkerPool} with one
+ * worker, so they are committed in batches like the items of any other run and an item that fails
+ * is skipped without losing the rest of its batch. If the plan can't be read to the end, the items
+ * before the error are still applied.
+ */
+class PlanApplier {
+    private final ItemProcessor processor;
+
+    PlanApplier(ItemProcessor processor) {
+        this.processor = processor;
+    }
+
+    void apply(File planFile, RunSummary summary) {
+        long planned = 0;
+
+        try (PlanFile.Reader reader = new PlanFile.Reader(planFile)) {
+            WorkerPool workers = new WorkerPool(processor, 1, summary);
+            workers.start();
+            try {
+                List<BitstreamChange> itemChanges;
+                while ((itemChanges = reader.nextItem()) != null) {
+                    planned += itemChanges.size();
+                    if (!workers.submit(new QueuedItem(itemChanges))) {
+                        break;
+                    }
+                }
+            } finally {
+                workers.finish();
+            }
+            if (workers.isAborted()) {
+                processor.error("aborted, not all planned changes were applied", null);
+            }
+        } catch (IOException e) {
+            processor.error(null, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            processor.error("interrupted", null);
+        }
+
+        processor.status(
+                "applied " + summary.getChangesApplied() + " of " + planned + " planned change(s)");
+    }
+}
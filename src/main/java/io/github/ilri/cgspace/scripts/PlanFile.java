@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.scripts;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A plan of bitstream changes written by <code>--plan</code> and run by <code>--apply</code>.
+ *
+ * <p>Plans are plain text with one {@link BitstreamChange} per line, so they can be inspected and
+ * edited before applying them:
+ *
+ * <pre>
+ * # FixJpgJpgThumbnails plan, 2026-01-01T00:00:00Z
+ * MOVE    &lt;item&gt; &lt;bundle&gt; &lt;bitstream&gt; &lt;target bundle&gt;
+ * REMOVE  &lt;item&gt; &lt;bundle&gt; &lt;bitstream&gt;
+ * </pre>
+ *
+ * <p>Fields are separated by tabs, and lines starting with <code>#</code> are ignored. A plan is
+ * started afresh by each run, unless the run is resumed from a {@link Checkpoint}, and all changes
+ * for an item are written together.
+ */
+final class PlanFile {
+    private PlanFile() {}
+
+    /** Writes changes to a plan. Safe to use from several worker threads. */
+    static class Writer implements Closeable, Flushable {
+        private final BufferedWriter writer;
+        private long changes = 0;
+
+        /**
+         * @param append whether to add to the plan of a run that is resumed rather than truncate
+         *     it, since a plan that is written again would list every change twice
+         */
+        Writer(File file, String name, boolean append) throws IOException {
+            this.writer =
+                    new BufferedWriter(
+                            new OutputStreamWriter(
+                                    new FileOutputStream(file, append), StandardCharsets.UTF_8));
+            writer.write("# " + name + " plan, " + Instant.now());
+            writer.newLine();
+        }
+
+        /** Write all of an item's changes. */
+        synchronized void write(List<BitstreamChange> itemChanges) throws IOException {
+            for (BitstreamChange change : itemChanges) {
+                writer.write(change.getType().name());
+                writer.write('\t');
+                writer.write(change.getItemId().toString());
+                writer.write('\t');
+                writer.write(change.getBundleId().toString());
+                writer.write('\t');
+                writer.write(change.getBitstreamId().toString());
+                if (change.getTargetBundleId() != null) {
+                    writer.write('\t');
+                    writer.write(change.getTargetBundleId().toString());
+                }
+                writer.newLine();
+                changes++;
+            }
+        }
+
+        @Override
+        public synchronized void flush() throws IOException {
+            writer.flush();
+        }
+
+        synchronized long getChanges() {
+            return changes;
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            writer.close();
+        }
+    }
+
+    /** Reads a plan back one item at a time. */
+    static class Reader implements Closeable {
+        private final BufferedReader reader;
+        private long lineNumber = 0;
+        // the first change of the next item, since we only know an item ends when the next begins
+        private BitstreamChange next;
+
+        Reader(File file) throws IOException {
+            this.reader =
+                    new BufferedReader(
+                            new InputStreamReader(
+                                    new FileInputStream(file), StandardCharsets.UTF_8));
+            this.next = readChange();
+        }
+
+        /**
+         * Read the changes for the next item in the plan.
+         *
+         * @return the item's changes, or <code>null</code> at the end of the plan
+         */
+        List<BitstreamChange> nextItem() throws IOException {
+            if (next == null) {
+                return null;
+            }
+
+            List<BitstreamChange> itemChanges = new ArrayList<>();
+            UUID itemId = next.getItemId();
+            while (next != null && itemId.equals(next.getItemId())) {
+                itemChanges.add(next);
+                next = readChange();
+            }
+
+            return itemChanges;
+        }
+
+        private BitstreamChange readChange() throws IOException {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                try {
+                    return parse(line);
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(
+                            "Invalid plan record on line " + lineNumber + ": " + line, e);
+                }
+            }
+
+            return null;
+        }
+
+        private static BitstreamChange parse(String line) {
+            String[] fields = line.split("\t");
+            BitstreamChange.Type type = BitstreamChange.Type.valueOf(fields[0]);
+
+            int expectedFields = type == BitstreamChange.Type.MOVE ? 5 : 4;
+            if (fields.length != expectedFields) {
+                throw new IllegalArgumentException(
+                        "expected " + expectedFields + " fields, found " + fields.length);
+            }
+
+            return new BitstreamChange(
+                    type,
+                    UUID.fromString(fields[1]),
+                    UUID.fromString(fields[2]),
+                    UUID.fromString(fields[3]),
+                    type == BitstreamChange.Type.MOVE ? UUID.fromString(fields[4]) : null);
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.scripts;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * An item and its position in the run, or the changes planned for it, as handed to the workers of
+ * a {@link WorkerPool}.
+ */
+final class QueuedItem {
+    // tells a worker that there are no more items
+    static final QueuedItem NO_MORE_ITEMS = new QueuedItem(0, null);
+
+    private final long position;
+    private final UUID itemId;
+    // only set for the items of a plan
+    private final List<BitstreamChange> changes;
+
+    QueuedItem(long position, UUID itemId) {
+        this.position = position;
+        this.itemId = itemId;
+        this.changes = null;
+    }
+
+    /** An item from a plan, which has no position, with all of its planned changes. */
+    QueuedItem(List<BitstreamChange> changes) {
+        this.position = 0;
+        this.itemId = changes.get(0).getItemId();
+        this.changes = changes;
+    }
+
+    long getPosition() {
+        return position;
+    }
+
+    UUID getItemId() {
+        return itemId;
+    }
+
+    /** The changes planned for the item, or <code>null</code> if its actions are to be found. */
+    List<BitstreamChange> getChanges() {
+        return changes;
+    }
+}
@@ -0,0 +1,816 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.scripts;
+
+import io.github.ilri.cgspace.metrics.Metrics;
+import io.github.ilri.cgspace.metrics.PhaseTimer;
+import io.github.ilri.cgspace.util.ItemList;
+import io.github.ilri.cgspace.util.UuidSet;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.lang.StringUtils;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.dspace.authorize.AuthorizeException;
+import org.dspace.authorize.factory.AuthorizeServiceFactory;
+import org.dspace.authorize.service.AuthorizeService;
+import org.dspace.content.Bitstream;
+import org.dspace.content.Bundle;
+import org.dspace.content.DSpaceObject;
+import org.dspace.content.Item;
+import org.dspace.content.factory.ContentServiceFactory;
+import org.dspace.content.service.BitstreamFormatService;
+import org.dspace.content.service.BitstreamService;
+import org.dspace.content.service.BundleService;
+import org.dspace.content.service.ItemService;
+import org.dspace.core.Context;
+import org.dspace.handle.factory.HandleServiceFactory;
+import org.dspace.handle.service.HandleService;
+import org.dspace.services.ConfigurationService;
+import org.dspace.services.factory.DSpaceServicesFactory;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Regenerate the thumbnails of PDFs in the ORIGINAL bundle from their first page.
+ *
+ * <p>{@link FixLowQualityThumbnails} removes manually uploaded thumbnails on the assumption that
+ * better ones can be generated from the item's PDFs, but DSpace's <code>filter-media</code> does
+ * that one bitstream at a time. This script runs the work as a pipeline of stages instead, each
+ * with its own pool of workers and a bounded queue in front of it:
+ *
+ * <ol>
+ *   <li><b>fetch</b>: find the PDFs that need a thumbnail and copy them to temporary files
+ *   <li><b>render</b>: render the first page of each PDF at the size of a thumbnail with PDFBox,
+ *       and encode it as a JPEG
+ *   <li><b>store</b>: add the JPEG to the item's THUMBNAIL bundle, replacing the old thumbnail
+ * </ol>
+ *
+ * <p>Rendering is CPU-bound and runs on all cores by default, while fetching and storing are
+ * mostly waiting for the assetstore and the database. Each queue holds at most {@value
+ * #QUEUE_SIZE_PER_WORKER} jobs per worker of the stage it feeds, so a slow stage holds up the ones
+ * before it instead of letting jobs pile up. PDFs wait in temporary files rather than in memory,
+ * and PDFBox is told to use temporary files too, so memory use doesn't depend on the size of the
+ * PDFs.
+ *
+ * <p>Thumbnails are named and described like the ones made by DSpace's ImageMagick filters
+ * ("document.pdf.jpg", "IM Thumbnail"), are as large as <code>thumbnail.maxwidth</code> and <code>
+ * thumbnail.maxheight</code> in <code>dspace.cfg</code>, and get the same access policies as their
+ * PDF. PDFs that already have an "IM Thumbnail" are skipped unless <code>--force</code> is used,
+ * and thumbnails that were uploaded manually are never replaced.
+ *
+ * <p>The items can be given as a file with one UUID per line, for example the one written by the
+ * thumbnail scripts' <code>--index-list</code>, to only regenerate the thumbnails of the items
+ * they just changed.
+ */
+public class RegenerateThumbnails {
+    // note: static members belong to the class itself, not any one instance
+    public static ItemService itemService = ContentServiceFactory.getInstance().getItemService();
+    public static HandleService handleService =
+            HandleServiceFactory.getInstance().getHandleService();
+    public static BundleService bundleService =
+            ContentServiceFactory.getInstance().getBundleService();
+    public static BitstreamService bitstreamService =
+            ContentServiceFactory.getInstance().getBitstreamService();
+    public static BitstreamFormatService bitstreamFormatService =
+            ContentServiceFactory.getInstance().getBitstreamFormatService();
+    public static AuthorizeService authorizeService =
+            AuthorizeServiceFactory.getInstance().getAuthorizeService();
+    public static ConfigurationService configurationService =
+            DSpaceServicesFactory.getInstance().getConfigurationService();
+
+    private static final String NAME = "RegenerateThumbnails";
+
+    // the same as DSpace's ImageMagick filters, so the thumbnail scripts treat them the same
+    static final String THUMBNAIL_DESCRIPTION = "IM Thumbnail";
+    static final String THUMBNAIL_FORMAT = "JPEG";
+
+    // jobs each queue can hold for every worker of the stage it feeds
+    static final int QUEUE_SIZE_PER_WORKER = 2;
+
+    // tells a worker that there are no more jobs
+    private static final Job NO_MORE_JOBS = new Job(null);
+
+    // how often a worker waiting for a queue checks whether the run was aborted
+    private static final long WAIT_SECONDS = 1;
+
+    private static final PhaseTimer FETCH = Metrics.timer(NAME, "fetch");
+    private static final PhaseTimer RENDER = Metrics.timer(NAME, "render");
+    private static final PhaseTimer ENCODE = Metrics.timer(NAME, "encode");
+    private static final PhaseTimer STORE = Metrics.timer(NAME, "store");
+
+    private final LongAdder itemsFound = new LongAdder();
+    private final LongAdder thumbnailsGenerated = new LongAdder();
+    private final LongAdder pdfsSkipped = new LongAdder();
+    private final LongAdder pdfsFailed = new LongAdder();
+
+    // set when a worker stops unexpectedly, so that no stage waits for it forever
+    private volatile boolean aborted = false;
+
+    private int maxWidth;
+    private int maxHeight;
+    private boolean force;
+    private boolean quiet;
+
+    public static void main(String[] args) {
+        new RegenerateThumbnails().run(args);
+    }
+
+    void run(String[] args) {
+        Options options = new Options();
+        options.addOption(
+                Option.builder("i")
+                        .longOpt("items")
+                        .hasArg()
+                        .argName("FILE")
+                        .desc("only process the items whose UUIDs are in FILE, one per line")
+                        .build());
+        options.addOption(
+                Option.builder()
+                        .longOpt("fetch-threads")
+                        .hasArg()
+                        .argName("N")
+                        .desc("fetch PDFs with N worker threads (default 2)")
+                        .build());
+        options.addOption(
+                Option.builder()
+                        .longOpt("render-threads")
+                        .hasArg()
+                        .argName("N")
+                        .desc("render thumbnails with N worker threads (default one per core)")
+                        .build());
+        options.addOption(
+                Option.builder()
+                        .longOpt("store-threads")
+                        .hasArg()
+                        .argName("N")
+                        .desc("store thumbnails with N worker threads (default 1)")
+                        .build());
+        options.addOption(
+                "f", "force", false, "also regenerate thumbnails that were made by ImageMagick");
+        options.addOption("q", "quiet", false, "only print the summary");
+        options.addOption(
+                Option.builder("m")
+                        .longOpt("metrics")
+                        .hasArg()
+                        .argName("FILE")
+                        .desc("write timing metrics to FILE in the Prometheus text format")
+                        .build());
+        options.addOption("h", "help", false, "show this help");
+
+        CommandLine line;
+        int fetchThreads;
+        int renderThreads;
+        int storeThreads;
+        try {
+            line = new DefaultParser().parse(options, args);
+            fetchThreads = parseThreads(line, "fetch-threads", 2);
+            int cores = Runtime.getRuntime().availableProcessors();
+            renderThreads = parseThreads(line, "render-threads", cores);
+            storeThreads = parseThreads(line, "store-threads", 1);
+            if (line.hasOption("items") && line.getArgs().length > 0) {
+                throw new ParseException("--items can't be used with a handle");
+            }
+        } catch (ParseException | NumberFormatException e) {
+            System.err.println(NAME + ": " + e.getMessage());
+            printHelp(options);
+            return;
+        }
+
+        if (line.hasOption("help")) {
+            printHelp(options);
+            return;
+        }
+
+        force = line.hasOption("force");
+        quiet = line.hasOption("quiet");
+        maxWidth = configurationService.getIntProperty("thumbnail.maxwidth", 80);
+        maxHeight = configurationService.getIntProperty("thumbnail.maxheight", 80);
+
+        long startNanos = System.nanoTime();
+        Context context = null;
+        try {
+            Iterator<UUID> itemIds;
+            if (line.hasOption("items")) {
+                itemIds = distinct(ItemList.read(new File(line.getOptionValue("items"))));
+            } else {
+                // only used to find items, which the workers process in their own contexts
+                context = new Context(Context.Mode.READ_ONLY);
+                context.turnOffAuthorisationSystem();
+
+                DSpaceObject parent = null;
+                if (line.getArgs().length >= 1) {
+                    parent = handleService.resolveToObject(context, line.getArgs()[0]);
+                    if (parent == null) {
+                        System.err.println(
+                                NAME + ": unable to resolve handle " + line.getArgs()[0]);
+                        return;
+                    }
+                }
+                itemIds = itemIds(context, ScriptRunner.findItems(context, parent));
+            }
+
+            runPipeline(itemIds, fetchThreads, renderThreads, storeThreads);
+            if (aborted) {
+                System.err.println(NAME + ": aborted, not all items were processed");
+            }
+        } catch (SQLException | IOException e) {
+            e.printStackTrace(System.err);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println(NAME + ": interrupted");
+        } finally {
+            if (context != null && context.isValid()) {
+                context.abort();
+            }
+        }
+
+        printSummary(startNanos, fetchThreads, renderThreads, storeThreads);
+        if (line.hasOption("metrics")) {
+            try {
+                Metrics.writePrometheus(new File(line.getOptionValue("metrics")));
+            } catch (IOException e) {
+                System.err.println(NAME + ": unable to write metrics");
+                e.printStackTrace(System.err);
+            }
+        }
+    }
+
+    /**
+     * Start the workers of every stage, feed them the items, and wait until they are done.
+     *
+     * <p>Stages are shut down in order, so every job that gets into a queue is taken out of it
+     * again and no temporary files are left behind. If a worker stops unexpectedly, or the main
+     * thread is interrupted, the run is aborted: the workers of every stage stop once they are done
+     * with their current job, and the temporary files of the jobs left in the queues are deleted.
+     */
+    private void runPipeline(
+            Iterator<UUID> itemIds, int fetchThreads, int renderThreads, int storeThreads)
+            throws InterruptedException {
+        BlockingQueue<Job> items = new ArrayBlockingQueue<>(fetchThreads * QUEUE_SIZE_PER_WORKER);
+        BlockingQueue<Job> pdfs = new ArrayBlockingQueue<>(renderThreads * QUEUE_SIZE_PER_WORKER);
+        BlockingQueue<Job> thumbnails =
+                new ArrayBlockingQueue<>(storeThreads * QUEUE_SIZE_PER_WORKER);
+
+        ExecutorService fetchers = Executors.newFixedThreadPool(fetchThreads);
+        for (int worker = 0; worker < fetchThreads; worker++) {
+            startWorker(fetchers, "fetch", () -> fetch(items, pdfs));
+        }
+        ExecutorService renderers = Executors.newFixedThreadPool(renderThreads);
+        for (int worker = 0; worker < renderThreads; worker++) {
+            startWorker(renderers, "render", () -> render(pdfs, thumbnails));
+        }
+        ExecutorService storers = Executors.newFixedThreadPool(storeThreads);
+        for (int worker = 0; worker < storeThreads; worker++) {
+            startWorker(storers, "store", () -> store(thumbnails));
+        }
+
+        try {
+            while (itemIds.hasNext()) {
+                if (!put(items, new Job(itemIds.next()))) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            // otherwise the workers would wait for the rest of the items
+            aborted = true;
+            throw e;
+        } finally {
+            endStage(items, fetchThreads, fetchers);
+            endStage(pdfs, renderThreads, renderers);
+            endStage(thumbnails, storeThreads, storers);
+        }
+    }
+
+    /**
+     * Tell a stage's workers that there are no more jobs and wait for them to finish, then delete
+     * the temporary files of the jobs an aborted run left in the queue.
+     */
+    private void endStage(BlockingQueue<Job> queue, int workers, ExecutorService executor)
+            throws InterruptedException {
+        for (int worker = 0; worker < workers; worker++) {
+            if (!put(queue, NO_MORE_JOBS)) {
+                break;
+            }
+        }
+        executor.shutdown();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+
+        for (Job job : queue) {
+            deleteTempFile(job);
+        }
+    }
+
+    /** Start a stage's worker, which aborts the run if it stops unexpectedly. */
+    private void startWorker(ExecutorService executor, String stage, Runnable worker) {
+        executor.execute(
+                () -> {
+                    try {
+                        worker.run();
+                    } catch (RuntimeException | Error e) {
+                        System.err.println(NAME + ": a " + stage + " worker stopped, aborting");
+                        e.printStackTrace(System.err);
+                        aborted = true;
+                    }
+                });
+    }
+
+    /**
+     * Put a job in a queue, waiting while it is full.
+     *
+     * @return whether the job was queued, <code>false</code> if the run was aborted
+     */
+    private boolean put(BlockingQueue<Job> queue, Job job) throws InterruptedException {
+        while (!queue.offer(job, WAIT_SECONDS, TimeUnit.SECONDS)) {
+            if (aborted) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Put jobs with temporary files in a queue, deleting the files of those that couldn't be queued
+     * because the run was aborted or the worker interrupted.
+     *
+     * @return whether all jobs were queued
+     */
+    private boolean putAll(BlockingQueue<Job> queue, List<Job> jobs) throws InterruptedException {
+        int queued = 0;
+        try {
+            for (Job job : jobs) {
+                if (!put(queue, job)) {
+                    break;
+                }
+                queued++;
+            }
+        } finally {
+            for (Job job : jobs.subList(queued, jobs.size())) {
+                deleteTempFile(job);
+            }
+        }
+        return queued == jobs.size();
+    }
+
+    /** Take the next job from a queue, waiting while it is empty, or end if the run was aborted. */
+    private Job take(BlockingQueue<Job> queue) throws InterruptedException {
+        while (!aborted) {
+            Job job = queue.poll(WAIT_SECONDS, TimeUnit.SECONDS);
+            if (job != null) {
+                return job;
+            }
+        }
+        return NO_MORE_JOBS;
+    }
+
+    /** Fetch stage: copy the PDFs of each item that need a thumbnail to temporary files. */
+    private void fetch(BlockingQueue<Job> items, BlockingQueue<Job> pdfs) {
+        Context context = newContext(Context.Mode.READ_ONLY);
+
+        try {
+            Job item;
+            while ((item = take(items)) != NO_MORE_JOBS) {
+                List<Job> jobs;
+                try {
+                    jobs = fetchPdfs(context, item.itemId);
+                } catch (SQLException | AuthorizeException | IOException | RuntimeException e) {
+                    System.err.println(
+                            NAME
+                                    + ": unable to fetch the PDFs of item "
+                                    + item.itemId
+                                    + ", skipping");
+                    e.printStackTrace(System.err);
+                    pdfsFailed.increment();
+
+                    context.abort();
+                    context = newContext(Context.Mode.READ_ONLY);
+                    continue;
+                }
+
+                if (!putAll(pdfs, jobs)) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (context.isValid()) {
+                context.abort();
+            }
+        }
+    }
+
+    /**
+     * Find an item's PDFs that need a thumbnail and copy them to temporary files.
+     *
+     * @return a job for each PDF, if any
+     */
+    private List<Job> fetchPdfs(Context context, UUID itemId)
+            throws SQLException, AuthorizeException, IOException {
+        Item item = itemService.find(context, itemId);
+        if (item == null) {
+            return Collections.emptyList();
+        }
+        itemsFound.increment();
+
+        List<Job> jobs = new ArrayList<>();
+        try {
+            for (Bundle originalBundle : item.getBundles("ORIGINAL")) {
+                for (Bitstream pdf : originalBundle.getBitstreams()) {
+                    String mimeType = BitstreamFormatCache.getMIMEType(context, pdf);
+                    if (!StringUtils.contains(mimeType, "application/pdf")
+                            || StringUtils.isEmpty(pdf.getName())) {
+                        continue;
+                    }
+
+                    Bitstream thumbnail = findThumbnail(item, thumbnailName(pdf.getName()));
+                    if (thumbnail != null && !isReplaceable(thumbnail)) {
+                        print(item, "skipping " + pdf.getName() + ", its thumbnail was uploaded");
+                        pdfsSkipped.increment();
+                        continue;
+                    }
+                    if (thumbnail != null
+                            && !force
+                            && THUMBNAIL_DESCRIPTION.equals(thumbnail.getDescription())) {
+                        pdfsSkipped.increment();
+                        continue;
+                    }
+
+                    long start = System.nanoTime();
+                    File pdfFile = File.createTempFile(NAME, ".pdf");
+                    jobs.add(new Job(itemId, pdf.getID(), pdf.getName(), pdfFile));
+                    try (InputStream in = bitstreamService.retrieve(context, pdf)) {
+                        Files.copy(in, pdfFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                    }
+                    FETCH.stop(start);
+                }
+            }
+        } catch (SQLException | AuthorizeException | IOException | RuntimeException e) {
+            for (Job job : jobs) {
+                deleteTempFile(job);
+            }
+            throw e;
+        } finally {
+            ItemProcessor.uncache(context, item);
+        }
+
+        return jobs;
+    }
+
+    /** Render stage: render the first page of each PDF and encode it as a JPEG. */
+    private void render(BlockingQueue<Job> pdfs, BlockingQueue<Job> thumbnails) {
+        try {
+            Job job;
+            while ((job = take(pdfs)) != NO_MORE_JOBS) {
+                try {
+                    job.jpeg = renderThumbnail(job.pdfFile);
+                } catch (IOException | RuntimeException e) {
+                    // PDFBox throws unchecked exceptions for some broken PDFs too
+                    System.err.println(
+                            NAME
+                                    + ": unable to render "
+                                    + job.pdfName
+                                    + " of item "
+                                    + job.itemId
+                                    + ", skipping");
+                    e.printStackTrace(System.err);
+                    pdfsFailed.increment();
+                    continue;
+                } finally {
+                    deleteTempFile(job);
+                }
+
+                if (!put(thumbnails, job)) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Render the first page of a PDF so that it fits in a thumbnail, as a JPEG. */
+    private byte[] renderThumbnail(File pdfFile) throws IOException {
+        long start = System.nanoTime();
+        BufferedImage image;
+        try (PDDocument document =
+                PDDocument.load(pdfFile, MemoryUsageSetting.setupTempFileOnly())) {
+            if (document.getNumberOfPages() == 0) {
+                throw new IOException("PDF has no pages");
+            }
+
+            PDPage page = document.getPage(0);
+            PDRectangle cropBox = page.getCropBox();
+            float width = cropBox.getWidth();
+            float height = cropBox.getHeight();
+            if (page.getRotation() % 180 != 0) {
+                width = cropBox.getHeight();
+                height = cropBox.getWidth();
+            }
+
+            // render straight to the size of the thumbnail rather than scaling a large image down
+            float scale = Math.min(maxWidth / width, maxHeight / height);
+            image = new PDFRenderer(document).renderImage(0, scale, ImageType.RGB);
+        }
+        start = RENDER.stop(start);
+
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        if (!ImageIO.write(image, "jpeg", jpeg)) {
+            throw new IOException("no JPEG writer available");
+        }
+        ENCODE.stop(start);
+
+        return jpeg.toByteArray();
+    }
+
+    /** Store stage: add each thumbnail to its item and commit it. */
+    private void store(BlockingQueue<Job> thumbnails) {
+        Context context = newContext(Context.Mode.READ_WRITE);
+
+        try {
+            Job job;
+            while ((job = take(thumbnails)) != NO_MORE_JOBS) {
+                try {
+                    long start = System.nanoTime();
+                    if (storeThumbnail(context, job)) {
+                        STORE.stop(start);
+                        thumbnailsGenerated.increment();
+                    } else {
+                        pdfsSkipped.increment();
+                    }
+                } catch (SQLException | AuthorizeException | IOException | RuntimeException e) {
+                    System.err.println(
+                            NAME
+                                    + ": unable to store the thumbnail of "
+                                    + job.pdfName
+                                    + " in item "
+                                    + job.itemId
+                                    + ", skipping");
+                    e.printStackTrace(System.err);
+                    pdfsFailed.increment();
+
+                    // throw the changes away together with the entities that still have them
+                    context.abort();
+                    context = newContext(Context.Mode.READ_WRITE);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (context.isValid()) {
+                context.abort();
+            }
+        }
+    }
+
+    /**
+     * Add a thumbnail to the THUMBNAIL bundle of its item, replacing the old one, and commit it.
+     *
+     * <p>Like DSpace's media filters the thumbnail gets the same access policies as its PDF.
+     *
+     * @return whether the thumbnail was stored, <code>false</code> if the item or PDF was deleted
+     *     or a thumbnail was uploaded since the PDF was fetched
+     */
+    private boolean storeThumbnail(Context context, Job job)
+            throws SQLException, AuthorizeException, IOException {
+        Item item = itemService.find(context, job.itemId);
+        Bitstream pdf = bitstreamService.find(context, job.pdfBitstreamId);
+        if (item == null || pdf == null) {
+            return false;
+        }
+
+        try {
+            String thumbnailName = thumbnailName(job.pdfName);
+            Bitstream oldThumbnail = findThumbnail(item, thumbnailName);
+            if (oldThumbnail != null && !isReplaceable(oldThumbnail)) {
+                return false;
+            }
+
+            List<Bundle> thumbnailBundles = item.getBundles("THUMBNAIL");
+            Bundle thumbnailBundle =
+                    thumbnailBundles.isEmpty()
+                            ? bundleService.create(context, item, "THUMBNAIL")
+                            : thumbnailBundles.get(0);
+
+            Bitstream thumbnail =
+                    bitstreamService.create(
+                            context, thumbnailBundle, new ByteArrayInputStream(job.jpeg));
+            thumbnail.setName(context, thumbnailName);
+            thumbnail.setDescription(context, THUMBNAIL_DESCRIPTION);
+            thumbnail.setSource(context, "Written by " + NAME + " on " + Instant.now());
+            bitstreamService.setFormat(
+                    context,
+                    thumbnail,
+                    bitstreamFormatService.findByShortDescription(context, THUMBNAIL_FORMAT));
+            bitstreamService.update(context, thumbnail);
+
+            authorizeService.removeAllPolicies(context, thumbnail);
+            authorizeService.inheritPolicies(context, pdf, thumbnail);
+
+            if (oldThumbnail != null) {
+                for (Bundle bundle : new ArrayList<>(oldThumbnail.getBundles())) {
+                    bundleService.removeBitstream(context, bundle, oldThumbnail);
+                }
+            }
+
+            itemService.update(context, item);
+            context.commit();
+        } finally {
+            ItemProcessor.uncache(context, item);
+        }
+
+        print(item, "generated thumbnail for " + job.pdfName);
+        return true;
+    }
+
+    /** The name DSpace's media filters give the thumbnail of a bitstream. */
+    private static String thumbnailName(String pdfName) {
+        return pdfName + ".jpg";
+    }
+
+    /** Find a bitstream in an item's THUMBNAIL bundles by name. */
+    private static Bitstream findThumbnail(Item item, String thumbnailName) {
+        for (Bundle thumbnailBundle : item.getBundles("THUMBNAIL")) {
+            for (Bitstream thumbnail : thumbnailBundle.getBitstreams()) {
+                if (thumbnailName.equals(thumbnail.getName())) {
+                    return thumbnail;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Whether a thumbnail was made by one of DSpace's media filters. Anything else was uploaded
+     * manually, for example a journal cover, and is never replaced.
+     */
+    private static boolean isReplaceable(Bitstream thumbnail) {
+        return THUMBNAIL_DESCRIPTION.equals(thumbnail.getDescription())
+                || "Generated Thumbnail".equals(thumbnail.getDescription());
+    }
+
+    private static void deleteTempFile(Job job) {
+        if (job.pdfFile != null && !job.pdfFile.delete() && job.pdfFile.exists()) {
+            System.err.println(NAME + ": unable to delete temporary file " + job.pdfFile);
+        }
+    }
+
+    private static Context newContext(Context.Mode mode) {
+        Context context = new Context(mode);
+        context.turnOffAuthorisationSystem();
+        return context;
+    }
+
+    private void print(Item item, String message) {
+        if (!quiet) {
+            System.out.println(item.getHandle() + ": " + message);
+        }
+    }
+
+    /**
+     * Leave out the UUIDs that are listed more than once. Items found by handle are already
+     * distinct, see {@link ItemTraversal}.
+     */
+    private static Iterator<UUID> distinct(List<UUID> itemIds) {
+        UuidSet seen = new UuidSet(itemIds.size());
+        List<UUID> distinct = new ArrayList<>(itemIds.size());
+        for (UUID itemId : itemIds) {
+            if (seen.add(itemId)) {
+                distinct.add(itemId);
+            }
+        }
+        return distinct.iterator();
+    }
+
+    /**
+     * Only keep the UUIDs of items found with DSpace's services, evicting the items from the main
+     * thread's context straight away.
+     */
+    private static Iterator<UUID> itemIds(Context context, Iterator<Item> items) {
+        return new Iterator<UUID>() {
+            @Override
+            public boolean hasNext() {
+                return items.hasNext();
+            }
+
+            @Override
+            public UUID next() {
+                Item item = items.next();
+                try {
+                    context.uncacheEntity(item);
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+                return item.getID();
+            }
+        };
+    }
+
+    private static int parseThreads(CommandLine line, String option, int defaultThreads)
+            throws ParseException {
+        int threads = Integer.parseInt(line.getOptionValue(option, String.valueOf(defaultThreads)));
+        if (threads < 1) {
+            throw new ParseException("Number of " + option + " must be at least 1");
+        }
+        return threads;
+    }
+
+    private void printSummary(
+            long startNanos, int fetchThreads, int renderThreads, int storeThreads) {
+        long elapsedMillis = Math.max(1, (System.nanoTime() - startNanos) / 1_000_000);
+        long generated = thumbnailsGenerated.sum();
+
+        System.out.println(
+                NAME
+                        + ": generated "
+                        + generated
+                        + " thumbnail(s) for "
+                        + itemsFound.sum()
+                        + " item(s), "
+                        + pdfsSkipped.sum()
+                        + " skipped, "
+                        + pdfsFailed.sum()
+                        + " failed, in "
+                        + elapsedMillis / 1000
+                        + "s ("
+                        + generated * 1000 / elapsedMillis
+                        + " thumbnails/s)");
+        System.out.println(
+                "> Workers: "
+                        + fetchThreads
+                        + " fetch, "
+                        + renderThreads
+                        + " render, "
+                        + storeThreads
+                        + " store");
+    }
+
+    private static void printHelp(Options options) {
+        new HelpFormatter()
+                .printHelp(
+                        "dspace dsrun io.github.ilri.cgspace.scripts."
+                                + NAME
+                                + " [options] [handle]",
+                        options);
+    }
+
+    /**
+     * One PDF going through the pipeline. The main thread only sets the item's UUID, and the fetch
+     * stage turns it into a job for each of the item's PDFs.
+     */
+    private static class Job {
+        private final UUID itemId;
+        private final UUID pdfBitstreamId;
+        private final String pdfName;
+        // deleted by the render stage
+        private final File pdfFile;
+        // set by the render stage
+        private byte[] jpeg;
+
+        Job(UUID itemId) {
+            this(itemId, null, null, null);
+        }
+
+        Job(UUID itemId, UUID pdfBitstreamId, String pdfName, File pdfFile) {
+            this.itemId = itemId;
+            this.pdfBitstreamId = pdfBitstreamId;
+            this.pdfName = pdfName;
+            this.pdfFile = pdfFile;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.scripts;
+
+import io.github.ilri.cgspace.util.AdaptiveThrottle;
+import io.github.ilri.cgspace.util.Shard;
+import io.github.ilri.cgspace.util.SummaryFile;
+
+import java.io.PrintStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for a run of one of the scripts, shared by all of its worker threads.
+ *
+ * <p>Each worker counts its own items, and the summary at the end of the run merges them. The
+ * summary can also be written to a {@link SummaryFile}, to merge the summaries of several shards.
+ */
+class RunSummary {
+    private final String name;
+    private final long startMillis = System.currentTimeMillis();
+    private final long startNanos = System.nanoTime();
+    private final LongAdder itemsProcessed = new LongAdder();
+    private final LongAdder itemsFailed = new LongAdder();
+    private final LongAdder changesApplied = new LongAdder();
+    private final AtomicLongArray itemsPerWorker;
+    private final LongAccumulator peakHeapBytes = new LongAccumulator(Math::max, 0);
+    private final Map<ThumbnailAction.Type, LongAdder> actions =
+            new EnumMap<>(ThumbnailAction.Type.class);
+    // only set when the run is throttled
+    private final AdaptiveThrottle throttle;
+
+    RunSummary(String name, int workers, AdaptiveThrottle throttle) {
+        this.name = name;
+        this.itemsPerWorker = new AtomicLongArray(workers);
+        this.throttle = throttle;
+
+        // filled once so that workers never modify the map
+        for (ThumbnailAction.Type type : ThumbnailAction.Type.values()) {
+            actions.put(type, new LongAdder());
+        }
+    }
+
+    void itemProcessed(int worker) {
+        itemsProcessed.increment();
+        itemsPerWorker.incrementAndGet(worker);
+    }
+
+    void itemFailed(int worker) {
+        itemsFailed.increment();
+    }
+
+    void batchDone(long batchPeakHeapBytes, int batchChangesApplied) {
+        peakHeapBytes.accumulate(batchPeakHeapBytes);
+        changesApplied.add(batchChangesApplied);
+    }
+
+    /** Count an action, whether it was applied or written to a plan. */
+    void action(ThumbnailAction action) {
+        actions.get(action.getType()).increment();
+    }
+
+    long getItemsProcessed() {
+        return itemsProcessed.sum();
+    }
+
+    long getItemsFailed() {
+        return itemsFailed.sum();
+    }
+
+    /** The number of bitstream changes that were applied and committed. */
+    long getChangesApplied() {
+        return changesApplied.sum();
+    }
+
+    /**
+     * @param handle what the run was on, or <code>null</code> for all items
+     * @param shard the shard of the run, or <code>null</code> if it wasn't split
+     */
+    SummaryFile toSummaryFile(String handle, Shard shard) {
+        SummaryFile summary =
+                new SummaryFile(
+                        name,
+                        handle,
+                        shard,
+                        startMillis,
+                        (System.nanoTime() - startNanos) / 1_000_000,
+                        itemsProcessed.sum());
+        summary.count("failed", itemsFailed.sum());
+        summary.count(
+                "removed from THUMBNAIL",
+                actions.get(ThumbnailAction.Type.REMOVE_FROM_THUMBNAIL).sum());
+        summary.count(
+                "removed from ORIGINAL",
+                actions.get(ThumbnailAction.Type.REMOVE_FROM_ORIGINAL).sum());
+        summary.count("swapped", actions.get(ThumbnailAction.Type.REPLACE_THUMBNAIL).sum());
+        summary.count("skipped", actions.get(ThumbnailAction.Type.SKIP).sum());
+        summary.setPeakHeapBytes(peakHeapBytes.get());
+        return summary;
+    }
+
+    void print(PrintStream out) {
+        long elapsedMillis = Math.max(1, (System.nanoTime() - startNanos) / 1_000_000);
+        long processed = itemsProcessed.sum();
+
+        out.println(
+                name
+                        + ": processed "
+                        + processed
+                        + " item(s), "
+                        + itemsFailed.sum()
+                        + " failed, in "
+                        + elapsedMillis / 1000
+                        + "s ("
+                        + processed * 1000 / elapsedMillis
+                        + " items/s)");
+        out.println(
+                "> Removed from THUMBNAIL: "
+                        + actions.get(ThumbnailAction.Type.REMOVE_FROM_THUMBNAIL).sum()
+                        + ", removed from ORIGINAL: "
+                        + actions.get(ThumbnailAction.Type.REMOVE_FROM_ORIGINAL).sum()
+                        + ", swapped: "
+                        + actions.get(ThumbnailAction.Type.REPLACE_THUMBNAIL).sum()
+                        + ", skipped: "
+                        + actions.get(ThumbnailAction.Type.SKIP).sum());
+        out.println("> Peak heap: " + peakHeapBytes.get() / (1024 * 1024) + " MiB");
+        if (throttle != null) {
+            out.println("> Throttle: " + throttle);
+        }
+
+        if (itemsPerWorker.length() > 1) {
+            for (int worker = 0; worker < itemsPerWorker.length(); worker++) {
+                out.println("> Worker " + worker + ": " + itemsPerWorker.get(worker) + " item(s)");
+            }
+        }
+    }
+}
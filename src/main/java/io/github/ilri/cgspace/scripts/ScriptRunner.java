@@ -0,0 +1,810 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.scripts;
+
+import io.github.ilri.cgspace.metrics.Metrics;
+import io.github.ilri.cgspace.metrics.PhaseTimer;
+import io.github.ilri.cgspace.util.AdaptiveThrottle;
+import io.github.ilri.cgspace.util.DeferredIndex;
+import io.github.ilri.cgspace.util.ItemList;
+import io.github.ilri.cgspace.util.Shard;
+import io.github.ilri.cgspace.util.SummaryFile;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.OptionGroup;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.lang.StringUtils;
+import org.dspace.content.Collection;
+import org.dspace.content.DSpaceObject;
+import org.dspace.content.Item;
+import org.dspace.content.factory.ContentServiceFactory;
+import org.dspace.content.service.ItemService;
+import org.dspace.core.Constants;
+import org.dspace.core.Context;
+import org.dspace.discovery.SearchServiceException;
+import org.dspace.handle.factory.HandleServiceFactory;
+import org.dspace.handle.service.HandleService;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+/**
+ * Run one of the scripts on all items in a site, community, collection, or on a single item.
+ *
+ * <p>The main thread only finds the items, in a read-only {@link Context}, and hands their UUIDs
+ * to one worker thread, or N with <code>--threads N</code> (see {@link WorkerPool}). Each worker
+ * has its own context and commits every item independently, or every N items with <code>
+ * --batch-size N</code>, so an item that fails is logged and skipped without affecting the others.
+ * Every item is handed out exactly once, so an item that is mapped into several collections is
+ * never processed by two workers at the same time.
+ *
+ * <p>After each commit the items are evicted from the worker's context together with their
+ * bundles and bitstreams, so memory use stays flat no matter how many items are processed (see
+ * {@link ItemProcessor}).
+ *
+ * <p>With <code>--items FILE</code> only the items in an {@link ItemList} are processed, for
+ * example the ones with duplicate thumbnails found by {@link FindDuplicateBitstreams}.
+ *
+ * <p>With <code>--since TIMESTAMP</code> only items that were modified after it are processed, and
+ * with <code>--watermark FILE</code> only items that were modified since the last successful run
+ * (see {@link Watermark}).
+ *
+ * <p>Progress is saved to a {@link Checkpoint} file while the run goes on, and <code>--resume
+ * </code> skips the items that were already done if a run fails or is interrupted.
+ *
+ * <p>With <code>--plan FILE</code> nothing is changed. Items are read in read-only contexts and the
+ * changes that would have been made are appended to a {@link PlanFile} instead, which <code>
+ * --apply FILE</code> later applies in batches of {@value #APPLY_BATCH_SIZE} items (see {@link
+ * PlanApplier}).
+ *
+ * <p>With <code>--index-list FILE</code> or <code>--reindex</code> changed items are not reindexed
+ * one by one when they are committed, but listed or reindexed together at the end (see {@link
+ * DeferredIndex}).
+ *
+ * <p>With <code>--max-thumbnail-pixels N</code> the scripts decide whether an image is a thumbnail
+ * by its actual dimensions, read from its header (see {@link ImageHeader}).
+ *
+ * <p>With <code>--target-latency MS</code> the workers share an {@link AdaptiveThrottle}, which
+ * slows them down and shrinks their batches while items take longer than MS milliseconds on
+ * average, including their share of the commits, so that a run on a busy database doesn't slow
+ * down the site for its users.
+ *
+ * <p>With <code>--shard I/N</code> the run only processes its own slice of the items (see {@link
+ * Shard}), so that N runs on different hosts, each with their own database connections, process
+ * every item once between them. Each shard keeps its own checkpoint and writes its summary to a
+ * {@link SummaryFile}, like any run with <code>--summary FILE</code>, and {@link MergeSummaries}
+ * merges the summaries of the shards into one for the whole run.
+ *
+ * <p>The time spent in each phase of processing an item is recorded by {@link PhaseTimer}s, which
+ * can be watched over JMX during the run and are written to a Prometheus text file with <code>
+ * --metrics FILE</code> at the end.
+ */
+class ScriptRunner {
+    // note: static members belong to the class itself, not any one instance
+    public static ItemService itemService = ContentServiceFactory.getInstance().getItemService();
+    public static HandleService handleService =
+            HandleServiceFactory.getInstance().getHandleService();
+
+    // number of items to apply from a plan before committing
+    static final int APPLY_BATCH_SIZE = 100;
+
+    private final String name;
+    private final ThumbnailFixer fixer;
+
+    // number of items each worker commits at once
+    private int batchSize = 1;
+    // processes the items, once the options are parsed
+    private ItemProcessor processor;
+    // only set when writing a plan
+    private PlanFile.Writer plan;
+    private Checkpoint checkpoint;
+    private ActionLog log = ActionLog.QUIET;
+    // only set when indexing is deferred
+    private DeferredIndex deferredIndex;
+    // the most recent modification date of all items found, only used by the main thread
+    private Date latestModified;
+    // only set when throttling
+    private AdaptiveThrottle throttle;
+    // only set when the run is split into shards
+    private Shard shard;
+
+    ScriptRunner(String name, ThumbnailFixer fixer) {
+        this.name = name;
+        this.fixer = fixer;
+    }
+
+    void run(String[] args) {
+        Options options = new Options();
+        options.addOption(
+                Option.builder("t")
+                        .longOpt("threads")
+                        .hasArg()
+                        .argName("N")
+                        .desc("number of worker threads, each with its own context (default 1)")
+                        .build());
+        options.addOption(
+                Option.builder("b")
+                        .longOpt("batch-size")
+                        .hasArg()
+                        .argName("N")
+                        .desc(
+                                "number of items each worker commits at once (default 1, or "
+                                        + APPLY_BATCH_SIZE
+                                        + " with --apply)")
+                        .build());
+        OptionGroup modes = new OptionGroup();
+        modes.addOption(
+                Option.builder("p")
+                        .longOpt("plan")
+                        .hasArg()
+                        .argName("FILE")
+                        .desc("don't change anything, append the changes to make to a plan file")
+                        .build());
+        modes.addOption(
+                Option.builder("a")
+                        .longOpt("apply")
+                        .hasArg()
+                        .argName("FILE")
+                        .desc("apply the changes in a plan file instead of searching for items")
+                        .build());
+        options.addOptionGroup(modes);
+        options.addOption(
+                Option.builder("c")
+                        .longOpt("checkpoint")
+                        .hasArg()
+                        .argName("FILE")
+                        .desc("where to save progress (default " + name + ".checkpoint)")
+                        .build());
+        options.addOption("r", "resume", false, "skip the items done before the checkpoint");
+        OptionGroup incremental = new OptionGroup();
+        incremental.addOption(
+                Option.builder("s")
+                        .longOpt("since")
+                        .hasArg()
+                        .argName("TIMESTAMP")
+                        .desc(
+                                "only process items modified after TIMESTAMP, for example"
+                                        + " 2026-01-31 or 2026-01-31T18:00:00Z")
+                        .build());
+        incremental.addOption(
+                Option.builder("w")
+                        .longOpt("watermark")
+                        .hasArg()
+                        .argName("FILE")
+                        .desc(
+                                "only process items modified since the last successful run, and"
+                                        + " save the new watermark to FILE")
+                        .build());
+        options.addOptionGroup(incremental);
+        options.addOption(
+                Option.builder("i")
+                        .longOpt("items")
+                        .hasArg()
+                        .argName("FILE")
+                        .desc("only process the items whose UUIDs are in FILE, one per line")
+                        .build());
+        OptionGroup output = new OptionGroup();
+        output.addOption(
+                Option.builder("l")
+                        .longOpt("log")
+                        .hasArg()
+                        .argName("FILE")
+                        .desc("append actions to FILE as JSON lines instead of the console")
+                        .build());
+        output.addOption(
+                Option.builder("q").longOpt("quiet").desc("only print the summary").build());
+        options.addOptionGroup(output);
+        options.addOption(
+                Option.builder("m")
+                        .longOpt("metrics")
+                        .hasArg()
+                        .argName("FILE")
+                        .desc("write timing metrics to FILE in the Prometheus text format")
+                        .build());
+        options.addOption(
+                Option.builder()
+                        .longOpt("index-list")
+                        .hasArg()
+                        .argName("FILE")
+                        .desc(
+                                "don't reindex changed items one by one, write their UUIDs to FILE"
+                                        + " for index-discovery at the end")
+                        .build());
+        options.addOption(
+                Option.builder()
+                        .longOpt("reindex")
+                        .desc("don't reindex changed items one by one, reindex them all at the end")
+                        .build());
+        options.addOption(
+                Option.builder()
+                        .longOpt("max-thumbnail-pixels")
+                        .hasArg()
+                        .argName("N")
+                        .desc(
+                                "treat JPEG and PNG images as thumbnails if their longest side is"
+                                        + " at most N pixels, reading it from their headers")
+                        .build());
+        options.addOption(
+                Option.builder()
+                        .longOpt("target-latency")
+                        .hasArg()
+                        .argName("MS")
+                        .desc(
+                                "slow down and commit smaller batches while items take longer than"
+                                        + " MS milliseconds on average, to spare the database")
+                        .build());
+        options.addOption(
+                Option.builder()
+                        .longOpt("shard")
+                        .hasArg()
+                        .argName("I/N")
+                        .desc(
+                                "only process the I-th of N slices of the items, by a hash of their"
+                                        + " UUIDs, to split a run across processes or hosts")
+                        .build());
+        options.addOption(
+                Option.builder()
+                        .longOpt("summary")
+                        .hasArg()
+                        .argName("FILE")
+                        .desc(
+                                "write the summary to FILE as JSON for MergeSummaries (default "
+                                        + name
+                                        + ".shard-I-of-N.json with --shard)")
+                        .build());
+        options.addOption("h", "help", false, "show this help");
+
+        CommandLine line;
+        int threads;
+        Date since = null;
+        try {
+            line = new DefaultParser().parse(options, args);
+            threads = Integer.parseInt(line.getOptionValue("threads", "1"));
+            if (threads < 1) {
+                throw new ParseException("Number of threads must be at least 1");
+            }
+            batchSize =
+                    Integer.parseInt(
+                            line.getOptionValue(
+                                    "batch-size",
+                                    String.valueOf(
+                                            line.hasOption("apply") ? APPLY_BATCH_SIZE : 1)));
+            if (batchSize < 1) {
+                throw new ParseException("Batch size must be at least 1");
+            }
+            if (line.hasOption("max-thumbnail-pixels")) {
+                int maxThumbnailPixels =
+                        Integer.parseInt(line.getOptionValue("max-thumbnail-pixels"));
+                if (maxThumbnailPixels < 1) {
+                    throw new ParseException("Maximum thumbnail pixels must be at least 1");
+                }
+                fixer.setMaxThumbnailPixels(maxThumbnailPixels);
+            }
+            if (line.hasOption("target-latency")) {
+                long targetLatency = Long.parseLong(line.getOptionValue("target-latency"));
+                if (targetLatency < 1) {
+                    throw new ParseException("Target latency must be at least 1 ms");
+                }
+                throttle = new AdaptiveThrottle(targetLatency);
+            }
+            if (line.hasOption("shard")) {
+                try {
+                    shard = Shard.parse(line.getOptionValue("shard"));
+                } catch (IllegalArgumentException e) {
+                    throw new ParseException(e.getMessage());
+                }
+            }
+            if (line.hasOption("apply")
+                    && (threads != 1
+                            || line.hasOption("resume")
+                            || line.hasOption("since")
+                            || line.hasOption("watermark")
+                            || line.hasOption("shard")
+                            || line.getArgs().length > 0)) {
+                throw new ParseException(
+                        "--apply can't be used with --threads, --resume, --since, --watermark,"
+                                + " --shard, or a handle");
+            }
+            if (line.hasOption("items")
+                    && (line.hasOption("apply")
+                            || line.hasOption("resume")
+                            || line.hasOption("since")
+                            || line.hasOption("watermark")
+                            || line.getArgs().length > 0)) {
+                throw new ParseException(
+                        "--items can't be used with --apply, --resume, --since, --watermark, or a"
+                                + " handle");
+            }
+            if (line.hasOption("plan")
+                    && (line.hasOption("index-list") || line.hasOption("reindex"))) {
+                throw new ParseException(
+                        "--plan doesn't change anything, so it can't be used with --index-list or"
+                                + " --reindex");
+            }
+            if (line.hasOption("since")) {
+                since = parseTimestamp(line.getOptionValue("since"));
+            }
+        } catch (ParseException | NumberFormatException e) {
+            System.err.println(name + ": " + e.getMessage());
+            printHelp(options);
+            return;
+        }
+
+        if (line.hasOption("help")) {
+            printHelp(options);
+            return;
+        }
+
+        String parentHandle = null;
+        if (line.getArgs().length >= 1) {
+            parentHandle = line.getArgs()[0];
+        }
+
+        RunSummary summary = new RunSummary(name, threads, throttle);
+        if (line.hasOption("index-list") || line.hasOption("reindex")) {
+            deferredIndex = new DeferredIndex();
+        }
+
+        try {
+            if (line.hasOption("log")) {
+                log = new JsonActionLog(new File(line.getOptionValue("log")));
+            } else if (!line.hasOption("quiet")) {
+                log = new ConsoleActionLog(fixer);
+            }
+        } catch (IOException e) {
+            e.printStackTrace(System.err);
+            return;
+        }
+        processor = new ItemProcessor(name, fixer, batchSize, throttle, log, deferredIndex);
+
+        if (line.hasOption("apply")) {
+            new PlanApplier(processor).apply(new File(line.getOptionValue("apply")), summary);
+            closeLog();
+            finishDeferredIndex(line);
+            summary.print(System.out);
+            writeSummary(line, null, summary);
+            writeMetrics(line.getOptionValue("metrics"));
+            return;
+        }
+
+        Context context = null;
+        File watermarkFile = null;
+        boolean complete = false;
+        try {
+            if (line.hasOption("plan")) {
+                plan =
+                        new PlanFile.Writer(
+                                new File(line.getOptionValue("plan")),
+                                name,
+                                line.hasOption("resume"));
+                processor.setPlan(plan);
+            }
+
+            // shards may run in the same directory, so each has its own checkpoint
+            File checkpointFile =
+                    new File(
+                            line.getOptionValue(
+                                    "checkpoint",
+                                    name
+                                            + (shard != null ? "." + shard.getName() : "")
+                                            + ".checkpoint"));
+            if (line.hasOption("resume")) {
+                checkpoint = Checkpoint.resume(checkpointFile, name, parentHandle, shard, plan);
+                processor.status(
+                        "resuming after item "
+                                + checkpoint.getPosition()
+                                + " ("
+                                + checkpoint.getItemId()
+                                + ")");
+            } else {
+                checkpoint = Checkpoint.start(checkpointFile, name, parentHandle, shard, plan);
+            }
+            processor.setCheckpoint(checkpoint);
+
+            if (line.hasOption("watermark")) {
+                watermarkFile = new File(line.getOptionValue("watermark"));
+                since = Watermark.read(watermarkFile);
+                if (since == null) {
+                    processor.status("no watermark yet, processing all items");
+                }
+            }
+            if (since != null) {
+                processor.status("processing items modified after " + since.toInstant());
+            }
+            if (shard != null) {
+                processor.status("processing shard " + shard + " of the items");
+            }
+
+            // only used to find items, which the workers process in their own contexts
+            context = new Context(Context.Mode.READ_ONLY);
+            context.turnOffAuthorisationSystem();
+
+            DSpaceObject parent = null;
+            if (StringUtils.isNotBlank(parentHandle)) {
+                parent = handleService.resolveToObject(context, parentHandle);
+                if (parent == null) {
+                    processor.error("unable to resolve handle " + parentHandle, null);
+                    return;
+                }
+            }
+
+            String candidateQuery = fixer.getCandidateQuery();
+            if (line.hasOption("items")) {
+                List<UUID> itemIds = ItemList.read(new File(line.getOptionValue("items")));
+                processItems(found(context, ItemTraversal.of(context, itemIds)), threads, summary);
+            } else if (candidateQuery != null
+                    && (parent == null || parent.getType() != Constants.ITEM)) {
+                processItems(
+                        CandidateQuery.execute(candidateQuery, since, getCollectionIds(parent)),
+                        threads,
+                        summary);
+            } else {
+                processItems(found(context, findItems(context, parent, since)), threads, summary);
+            }
+            complete = true;
+            checkpoint.delete();
+        } catch (SQLException | IOException e) {
+            processor.error(null, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            processor.error("interrupted", null);
+        } finally {
+            if (context != null && context.isValid()) {
+                context.abort();
+            }
+            // flush the log before printing anything else to the console
+            closeLog();
+            // the checkpoint flushes the plan, so save it first
+            if (!complete) {
+                saveCheckpoint();
+            }
+            closePlan();
+        }
+
+        if (complete && watermarkFile != null) {
+            saveWatermark(watermarkFile, summary);
+        }
+
+        // items that were committed before a failure must be reindexed too
+        finishDeferredIndex(line);
+        summary.print(System.out);
+        writeSummary(line, parentHandle, summary);
+        writeMetrics(line.getOptionValue("metrics"));
+    }
+
+    /**
+     * Save the watermark for the next incremental run, unless any items failed.
+     *
+     * <p>The watermark is the most recent modification date of all items found, but never later
+     * than when the run was first started. Items that are modified while a run is going on may
+     * already have been found with their old modification date, and must not be missed by the
+     * next run.
+     */
+    private void saveWatermark(File watermarkFile, RunSummary summary) {
+        if (summary.getItemsFailed() > 0) {
+            System.err.println(
+                    name
+                            + ": not saving watermark because "
+                            + summary.getItemsFailed()
+                            + " item(s) failed");
+            return;
+        }
+
+        // nothing was modified, so the previous watermark still holds
+        if (latestModified == null) {
+            return;
+        }
+
+        Date watermark =
+                latestModified.before(checkpoint.getStarted())
+                        ? latestModified
+                        : checkpoint.getStarted();
+        try {
+            Watermark.write(watermarkFile, watermark);
+            System.out.println(
+                    name + ": saved watermark " + watermark.toInstant() + " to " + watermarkFile);
+        } catch (IOException e) {
+            e.printStackTrace(System.err);
+        }
+    }
+
+    /**
+     * Parse a <code>--since</code> timestamp, which is an ISO 8601 date or date and time. Dates
+     * and times without a time zone are in the system's time zone.
+     */
+    private static Date parseTimestamp(String timestamp) throws ParseException {
+        try {
+            return Date.from(Instant.parse(timestamp));
+        } catch (DateTimeParseException e) {
+            // not an instant, so try a local date and time or just a date
+        }
+        try {
+            return Date.from(
+                    LocalDateTime.parse(timestamp).atZone(ZoneId.systemDefault()).toInstant());
+        } catch (DateTimeParseException e) {
+            // not a date and time either
+        }
+        try {
+            return Date.from(
+                    LocalDate.parse(timestamp).atStartOfDay(ZoneId.systemDefault()).toInstant());
+        } catch (DateTimeParseException e) {
+            throw new ParseException("Invalid timestamp " + timestamp);
+        }
+    }
+
+    private void saveCheckpoint() {
+        // nothing to resume from if no items were done
+        if (checkpoint == null || checkpoint.getPosition() == 0) {
+            return;
+        }
+
+        try {
+            checkpoint.save();
+            System.err.println(
+                    name
+                            + ": saved checkpoint to "
+                            + checkpoint.getFile()
+                            + ", continue with --resume");
+        } catch (IOException e) {
+            e.printStackTrace(System.err);
+        }
+    }
+
+    /** Write out or reindex the items changed by this run, if indexing was deferred. */
+    private void finishDeferredIndex(CommandLine line) {
+        if (deferredIndex == null) {
+            return;
+        }
+
+        if (line.hasOption("index-list")) {
+            File indexList = new File(line.getOptionValue("index-list"));
+            try {
+                deferredIndex.write(indexList);
+                System.out.println(
+                        name
+                                + ": wrote "
+                                + deferredIndex.size()
+                                + " changed item(s) to reindex to "
+                                + indexList);
+            } catch (IOException e) {
+                e.printStackTrace(System.err);
+            }
+        }
+
+        if (line.hasOption("reindex")) {
+            Context context = new Context(Context.Mode.READ_ONLY);
+            try {
+                context.turnOffAuthorisationSystem();
+                int reindexed = deferredIndex.reindex(context);
+                System.out.println(name + ": reindexed " + reindexed + " changed item(s)");
+            } catch (SQLException | SearchServiceException e) {
+                e.printStackTrace(System.err);
+            } finally {
+                context.abort();
+            }
+        }
+    }
+
+    /** Write the summary to a file if asked to, or if this is a shard of a run. */
+    private void writeSummary(CommandLine line, String parentHandle, RunSummary summary) {
+        String summaryFile =
+                line.getOptionValue(
+                        "summary", shard != null ? name + "." + shard.getName() + ".json" : null);
+        if (summaryFile == null) {
+            return;
+        }
+
+        try {
+            summary.toSummaryFile(parentHandle, shard).write(new File(summaryFile));
+            System.out.println(name + ": wrote summary to " + summaryFile);
+        } catch (IOException e) {
+            e.printStackTrace(System.err);
+        }
+    }
+
+    private void writeMetrics(String metricsFile) {
+        if (metricsFile == null) {
+            return;
+        }
+
+        try {
+            Metrics.writePrometheus(new File(metricsFile));
+        } catch (IOException e) {
+            e.printStackTrace(System.err);
+        }
+    }
+
+    private void closeLog() {
+        try {
+            log.close();
+        } catch (IOException e) {
+            e.printStackTrace(System.err);
+        }
+    }
+
+    private void closePlan() {
+        if (plan == null) {
+            return;
+        }
+
+        try {
+            plan.close();
+            System.out.println(name + ": planned " + plan.getChanges() + " change(s)");
+        } catch (IOException e) {
+            e.printStackTrace(System.err);
+        }
+    }
+
+    /** Hand the UUIDs of all items to the workers, except those done before the checkpoint. */
+    private void processItems(Iterator<FoundItem> items, int threads, RunSummary summary)
+            throws IOException, InterruptedException {
+        WorkerPool workers = new WorkerPool(processor, threads, summary);
+        workers.start();
+
+        try {
+            long resumePosition = checkpoint.getPosition();
+            long position = 0;
+
+            // every source of items finds each of them once, see ItemTraversal
+            while (items.hasNext()) {
+                FoundItem item = items.next();
+                UUID itemId = item.getID();
+                // positions only count this shard's items, which are the same in every run
+                if (shard != null && !shard.contains(itemId)) {
+                    continue;
+                }
+                if (latestModified == null || item.getLastModified().after(latestModified)) {
+                    latestModified = item.getLastModified();
+                }
+                position++;
+
+                if (position <= resumePosition) {
+                    if (position == resumePosition && !itemId.equals(checkpoint.getItemId())) {
+                        processor.error(
+                                "item "
+                                        + position
+                                        + " is "
+                                        + itemId
+                                        + ", not "
+                                        + checkpoint.getItemId()
+                                        + " as in the checkpoint, items were added or removed",
+                                null);
+                    }
+                } else if (!workers.submit(new QueuedItem(position, itemId))) {
+                    break;
+                }
+            }
+        } finally {
+            workers.finish();
+        }
+
+        if (workers.isAborted()) {
+            processor.error("aborted, not all items were processed", null);
+        }
+    }
+
+    /**
+     * Only keep the UUIDs and modification dates of items found with DSpace's services.
+     *
+     * <p>Items are only loaded in the main thread's context to get their UUIDs, so they are
+     * evicted from it straight away.
+     */
+    private static Iterator<FoundItem> found(Context context, Iterator<Item> items) {
+        return new Iterator<FoundItem>() {
+            @Override
+            public boolean hasNext() {
+                return items.hasNext();
+            }
+
+            @Override
+            public FoundItem next() {
+                Item item = items.next();
+                try {
+                    context.uncacheEntity(item);
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+                return new FoundItem(item.getID(), item.getLastModified());
+            }
+        };
+    }
+
+    /**
+     * The collections to limit a {@link CandidateQuery} to, or null for everything. Like {@link
+     * #findItems(Context, DSpaceObject)} this includes the collections in sub-communities.
+     */
+    private static List<UUID> getCollectionIds(DSpaceObject parent) {
+        if (parent == null || parent.getType() == Constants.SITE) {
+            return null;
+        }
+
+        List<UUID> collectionIds = new ArrayList<>();
+        for (Collection collection : ItemTraversal.getCollections(parent)) {
+            collectionIds.add(collection.getID());
+        }
+        return collectionIds;
+    }
+
+    /**
+     * Find the items in a site, community, or collection, or everything if parent is null, that
+     * were modified after a date, or all of them if since is null.
+     */
+    private static Iterator<Item> findItems(Context context, DSpaceObject parent, Date since)
+            throws SQLException {
+        if (since == null) {
+            return findItems(context, parent);
+        }
+
+        if (parent == null || parent.getType() == Constants.SITE) {
+            // unlike findAll this also finds items that are in the workspace or workflow
+            return filter(itemService.findByLastModifiedSince(context, since), Item::isArchived);
+        }
+
+        // there is no query for the modified items in a community or collection
+        return filter(findItems(context, parent), item -> item.getLastModified().after(since));
+    }
+
+    /**
+     * Find all items in a site, community tree, or collection, or everything if parent is null.
+     * Each item is only found once, even if it is mapped into several of the collections.
+     */
+    static Iterator<Item> findItems(Context context, DSpaceObject parent) throws SQLException {
+        return ItemTraversal.of(context, parent);
+    }
+
+    /** Only iterate over the items that match a predicate. */
+    private static Iterator<Item> filter(Iterator<Item> items, Predicate<Item> predicate) {
+        return new Iterator<Item>() {
+            private Item next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && items.hasNext()) {
+                    Item item = items.next();
+                    if (predicate.test(item)) {
+                        next = item;
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public Item next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Item item = next;
+                next = null;
+                return item;
+            }
+        };
+    }
+
+    private void printHelp(Options options) {
+        new HelpFormatter()
+                .printHelp(
+                        "dspace dsrun io.github.ilri.cgspace.scripts." + name + " [options] [handle]",
+                        options);
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.scripts;
+
+import io.github.ilri.cgspace.scripts.ItemSnapshot.BitstreamSnapshot;
+
+import org.dspace.content.Bundle;
+
+/**
+ * Something one of the thumbnail scripts decided to do with a bitstream.
+ *
+ * <p>Actions are produced by {@link ThumbnailRules} without changing anything, so the scripts can
+ * report them and then apply them to the repository.
+ */
+class ThumbnailAction {
+    enum Type {
+        /** Remove a bitstream from the THUMBNAIL bundle. */
+        REMOVE_FROM_THUMBNAIL,
+        /** Remove a bitstream from the ORIGINAL bundle. */
+        REMOVE_FROM_ORIGINAL,
+        /** Replace a thumbnail with an original bitstream, which is moved to THUMBNAIL. */
+        REPLACE_THUMBNAIL,
+        /** Leave a bitstream alone. */
+        SKIP
+    }
+
+    private final Type type;
+    private final String message;
+    private final BitstreamSnapshot bitstream;
+    // only used when replacing a thumbnail with an original bitstream
+    private final BitstreamSnapshot originalBitstream;
+
+    private ThumbnailAction(
+            Type type,
+            String message,
+            BitstreamSnapshot bitstream,
+            BitstreamSnapshot originalBitstream) {
+        this.type = type;
+        this.message = message;
+        this.bitstream = bitstream;
+        this.originalBitstream = originalBitstream;
+    }
+
+    static ThumbnailAction removeFromThumbnail(String message, BitstreamSnapshot bitstream) {
+        return new ThumbnailAction(Type.REMOVE_FROM_THUMBNAIL, message, bitstream, null);
+    }
+
+    static ThumbnailAction removeFromOriginal(String message, BitstreamSnapshot bitstream) {
+        return new ThumbnailAction(Type.REMOVE_FROM_ORIGINAL, message, bitstream, null);
+    }
+
+    static ThumbnailAction replaceThumbnail(
+            BitstreamSnapshot thumbnailBitstream, BitstreamSnapshot originalBitstream) {
+        return new ThumbnailAction(
+                Type.REPLACE_THUMBNAIL,
+                "replace thumbnail with original",
+                thumbnailBitstream,
+                originalBitstream);
+    }
+
+    static ThumbnailAction skip(String message, BitstreamSnapshot bitstream) {
+        return new ThumbnailAction(Type.SKIP, message, bitstream, null);
+    }
+
+    Type getType() {
+        return type;
+    }
+
+    /** Human readable description of the action, for example "remove old thumbnail". */
+    String getMessage() {
+        return message;
+    }
+
+    /** The bundle containing {@link #getBitstream()}. */
+    Bundle getBundle() {
+        return bitstream.getBundle().getBundle();
+    }
+
+    /** The bitstream to remove or skip, or the thumbnail to replace. */
+    BitstreamSnapshot getBitstream() {
+        return bitstream;
+    }
+
+    /** The bundle containing {@link #getOriginalBitstream()}. */
+    Bundle getOriginalBundle() {
+        return originalBitstream.getBundle().getBundle();
+    }
+
+    BitstreamSnapshot getOriginalBitstream() {
+        return originalBitstream;
+    }
+}
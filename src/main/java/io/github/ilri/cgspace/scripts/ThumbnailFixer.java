@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.scripts;
+
+import org.dspace.authorize.AuthorizeException;
+import org.dspace.content.Item;
+import org.dspace.core.Context;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * What one of the thumbnail scripts does with each item, independently of how {@link ScriptRunner}
+ * applies it.
+ */
+interface ThumbnailFixer {
+    /**
+     * Decide what to do with an item's bitstreams. This must not change anything.
+     *
+     * @param context the DSpace context
+     * @param item the item to check
+     * @param log where to report items that are skipped as a whole
+     * @return the actions to take, if any
+     */
+    List<ThumbnailAction> findActions(Context context, Item item, ActionLog log)
+            throws SQLException, IOException, AuthorizeException;
+
+    /**
+     * Decide whether JPEG and PNG images are thumbnails by their dimensions, read from their
+     * headers (see {@link ImageHeader}), instead of by their file size or description.
+     *
+     * @param maxThumbnailPixels the longest side in pixels of an image that is small enough to be a
+     *     thumbnail, or 0 to not read any image headers
+     */
+    void setMaxThumbnailPixels(int maxThumbnailPixels);
+
+    /** Print an item before its actions when logging to the console. */
+    default void printItem(PrintStream out, Item item) {}
+
+    /** Print an action when logging to the console. */
+    void printAction(PrintStream out, Item item, ThumbnailAction action);
+
+    /**
+     * An SQL query for the items that might need fixing, so that only those are loaded instead of
+     * every item (see {@link CandidateQuery}). The query may find too many items, but never too
+     * few.
+     *
+     * @return a query selecting a single column of item UUIDs, or <code>null</code> to process
+     *     all items
+     */
+    default String getCandidateQuery() {
+        return null;
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.scripts;
+
+import io.github.ilri.cgspace.scripts.ItemSnapshot.BitstreamSnapshot;
+import io.github.ilri.cgspace.scripts.ItemSnapshot.BundleSnapshot;
+
+import org.apache.commons.lang.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The rules used by {@link FixJpgJpgThumbnails} and {@link FixLowQualityThumbnails} to decide what
+ * to do with an item's bitstreams.
+ *
+ * <p>Evaluating the rules doesn't change anything and doesn't use any DSpace services, so they can
+ * be evaluated (and benchmarked) independently of applying the resulting actions. They work from an
+ * {@link ItemSnapshot} so they don't hit the database either.
+ *
+ * <p>By default the rules go by file sizes and descriptions to decide whether an image is a
+ * thumbnail. Given a maximum number of pixels they go by the image's dimensions instead, which
+ * have to have been read into the snapshot (see {@link ItemSnapshot#load(org.dspace.core.Context,
+ * org.dspace.content.Item, boolean)}).
+ */
+final class ThumbnailRules {
+    /**
+     * Items with a ".jpg.jpg" bitstream in the THUMBNAIL bundle that was generated by DSpace or
+     * ImageMagick, the only ones {@link #jpgJpgThumbnailActions(ItemSnapshot, int)} can act on.
+     * Bundle and bitstream names are stored as dc.title and descriptions as dc.description.
+     *
+     * @see ThumbnailFixer#getCandidateQuery()
+     */
+    static final String JPG_JPG_CANDIDATE_QUERY =
+            "SELECT item2bundle.item_id FROM item2bundle"
+                    + " JOIN metadatavalue bundle_name"
+                    + " ON bundle_name.dspace_object_id = item2bundle.bundle_id"
+                    + " AND bundle_name.metadata_field_id = "
+                    + CandidateQuery.metadataFieldId("title")
+                    + " JOIN bundle2bitstream ON bundle2bitstream.bundle_id = item2bundle.bundle_id"
+                    + " JOIN bitstream ON bitstream.uuid = bundle2bitstream.bitstream_id"
+                    + " JOIN metadatavalue bitstream_name"
+                    + " ON bitstream_name.dspace_object_id = bitstream.uuid"
+                    + " AND bitstream_name.metadata_field_id = "
+                    + CandidateQuery.metadataFieldId("title")
+                    + " JOIN metadatavalue bitstream_description"
+                    + " ON bitstream_description.dspace_object_id = bitstream.uuid"
+                    + " AND bitstream_description.metadata_field_id = "
+                    + CandidateQuery.metadataFieldId("description")
+                    + " WHERE bundle_name.text_value = 'THUMBNAIL'"
+                    + " AND bitstream.deleted = FALSE"
+                    + " AND LOWER(bitstream_name.text_value) LIKE '%.jpg.jpg%'"
+                    + " AND bitstream_description.text_value IN"
+                    + " ('Generated Thumbnail', 'IM Thumbnail')";
+
+    private ThumbnailRules() {}
+
+    /**
+     * Find ".jpg.jpg" thumbnails that should be replaced by their original bitstream.
+     *
+     * @param item the item to check
+     * @param maxThumbnailPixels the longest side of an original that is small enough to replace its
+     *     thumbnail, or 0 to only replace thumbnails of originals smaller than ~100KiB
+     * @return the thumbnails to replace
+     * @see FixJpgJpgThumbnails
+     */
+    static List<ThumbnailAction> jpgJpgThumbnailActions(
+            ItemSnapshot item, int maxThumbnailPixels) {
+        List<ThumbnailAction> actions = new ArrayList<>();
+
+        List<BundleSnapshot> thumbnailBundles = item.getBundles("THUMBNAIL");
+        for (BundleSnapshot thumbnailBundle : thumbnailBundles) {
+            for (BitstreamSnapshot thumbnailBitstream : thumbnailBundle.getBitstreams()) {
+                String thumbnailName = thumbnailBitstream.getName();
+                String thumbnailDescription = thumbnailBitstream.getDescription();
+
+                // There is no point continuing if the thumbnail's description is empty or null
+                if (StringUtils.isEmpty(thumbnailDescription)) {
+                    continue;
+                }
+
+                if (thumbnailBitstream.getLowerCaseName().contains(".jpg.jpg")) {
+                    /*
+                    - check if the original file name is the same as the thumbnail name minus the extra ".jpg"
+                    - check if the thumbnail description indicates it was automatically generated
+                    - check if the original bitstream is less than ~100KiB
+                        - Note: in my tests there were 4022 items with ".jpg.jpg" thumbnails totaling 394549249
+                          bytes for an average of about 98KiB so ~100KiB seems like a good cut off
+                        - Or, if we were given a maximum number of pixels, check the original's
+                          actual dimensions instead, since a compressed JPEG can be small but huge
+                    */
+                    if (!"Generated Thumbnail".equals(thumbnailDescription)
+                            && !"IM Thumbnail".equals(thumbnailDescription)) {
+                        continue;
+                    }
+
+                    // look the original up by name rather than comparing it to every bitstream
+                    String originalName = StringUtils.removeEndIgnoreCase(thumbnailName, ".jpg");
+                    for (BitstreamSnapshot originalBitstream :
+                            item.findBitstreams("ORIGINAL", originalName)) {
+                        boolean smallEnough =
+                                maxThumbnailPixels > 0
+                                        ? hasThumbnailDimensions(
+                                                originalBitstream, maxThumbnailPixels)
+                                        : originalBitstream.getSizeBytes() < 100000;
+                        if (smallEnough) {
+                            actions.add(
+                                    ThumbnailAction.replaceThumbnail(
+                                            thumbnailBitstream, originalBitstream));
+                        }
+                    }
+                }
+            }
+        }
+
+        return actions;
+    }
+
+    /**
+     * Find low-quality thumbnails in the THUMBNAIL and ORIGINAL bundles.
+     *
+     * @param item the item to check
+     * @param maxThumbnailPixels the longest side of a JPEG labeled "thumbnail" in the ORIGINAL
+     *     bundle that is small enough to really be one, or 0 to go by the label alone
+     * @return the bitstreams to remove or skip
+     * @see FixLowQualityThumbnails
+     */
+    static List<ThumbnailAction> lowQualityThumbnailActions(
+            ItemSnapshot item, int maxThumbnailPixels) {
+        List<ThumbnailAction> actions = new ArrayList<>();
+
+        // Set some state for the item before we iterate over the THUMBNAIL bundle
+        boolean itemHasImThumbnail = false;
+
+        // Iterate over the THUMBNAIL bundle to first identify if this item has an "IM Thumbnail"
+        List<BundleSnapshot> thumbnailBundles = item.getBundles("THUMBNAIL");
+        for (BundleSnapshot thumbnailBundle : thumbnailBundles) {
+            List<BitstreamSnapshot> thumbnailBundleBitstreams = thumbnailBundle.getBitstreams();
+            for (BitstreamSnapshot thumbnailBitstream : thumbnailBundleBitstreams) {
+                String thumbnailDescription = thumbnailBitstream.getDescription();
+
+                if (StringUtils.isEmpty(thumbnailDescription)) {
+                    continue;
+                }
+
+                // Check if this item has a bitstream in the THUMBNAIL bundle with description "IM
+                // Thumbnail", but only if we haven't already seen one in another iteration for this
+                // bundle.
+                if (!itemHasImThumbnail && "IM Thumbnail".equals(thumbnailDescription)) {
+                    itemHasImThumbnail = true;
+                }
+            }
+
+            // If this item has an IM Thumbnail we can be reasonably sure that there is a PDF
+            // in the ORIGINAL bundle and we don't need any other thumbnails.
+            if (itemHasImThumbnail) {
+                // Iterate over the bitstreams in the THUMBNAIL bundle again.
+                for (BitstreamSnapshot thumbnailBitstream : thumbnailBundleBitstreams) {
+                    String thumbnailDescription = thumbnailBitstream.getDescription();
+
+                    if (StringUtils.isEmpty(thumbnailDescription)) {
+                        continue;
+                    }
+
+                    // If this item has a "Generated Thumbnail" we can remove it, because those
+                    // typically come from other JPEGs in the ORIGINAL bundle and we would prefer
+                    // the IM Thumbnail generated from a PDF anyway. The DSpace-generated descri-
+                    // ption will *always* be "Generated Thumbnail".
+                    if ("Generated Thumbnail".equals(thumbnailDescription)) {
+                        actions.add(
+                                ThumbnailAction.removeFromThumbnail(
+                                        "remove old thumbnail from THUMBNAIL bundle",
+                                        thumbnailBitstream));
+
+                        // If this item has a bitstream with the word "thumbnail" in it then we can
+                        // remove it because we already know this item has an IM Thumbnail and we
+                        // prefer that one.
+                    } else if (thumbnailDescription.toLowerCase().contains("thumbnail")
+                            && !"IM Thumbnail".equals(thumbnailDescription)) {
+                        actions.add(
+                                ThumbnailAction.removeFromThumbnail(
+                                        "remove manually uploaded thumbnail from THUMBNAIL bundle",
+                                        thumbnailBitstream));
+
+                        // Otherwise skip it because it might be something uploaded manually, like
+                        // a thumbnail for a journal or a limited access item.
+                    } else {
+                        actions.add(
+                                ThumbnailAction.skip(
+                                        "skip other thumbnail in THUMBNAIL bundle",
+                                        thumbnailBitstream));
+                    }
+                }
+            }
+        }
+
+        // Set some state before we iterate over the ORIGINAL bundle
+        boolean itemHasOriginalPdfBitstream = false;
+        boolean itemHasOriginalJpegBitstream = false;
+
+        // Iterate over the ORIGINAL bundle to delete manually-uploaded JPEG
+        // bitstreams labeled "Thumbnail" whenever we have a PDF because they
+        // don't belong in the ORIGINAL bundle and DSpace will automatically
+        // create a better thumbnail from the PDF anyway.
+        List<BundleSnapshot> originalBundles = item.getBundles("ORIGINAL");
+        for (BundleSnapshot originalBundle : originalBundles) {
+            List<BitstreamSnapshot> originalBundleBitstreams = originalBundle.getBitstreams();
+            for (BitstreamSnapshot originalBitstream : originalBundleBitstreams) {
+                String originalFormat = originalBitstream.getMIMEType();
+
+                // Check if this item has a PDF bitstream in the ORIGINAL bundle,
+                // but only if we haven't already seen one in another iteration
+                // for this bundle. DSpace will return "format application/pdf"
+                // for the MIME type.
+                if (!itemHasOriginalPdfBitstream && originalFormat.contains("application/pdf")) {
+                    itemHasOriginalPdfBitstream = true;
+                }
+
+                // Check if this item has a JPEG bitstream in the ORIGINAL bundle,
+                // but only if we haven't already seen one in another iteration
+                // for this bundle. DSpace will return "format image/jpeg" for
+                // the MIME type.
+                if (!itemHasOriginalJpegBitstream && originalFormat.contains("image/jpeg")) {
+                    itemHasOriginalJpegBitstream = true;
+                }
+            }
+
+            // Check if we found a PDF *and* a JPEG in this item's ORIGINAL
+            // bundle.
+            if (itemHasOriginalPdfBitstream && itemHasOriginalJpegBitstream) {
+                // Yes! Now iterate over the bitstreams in the ORIGINAL bundle
+                // again to see if the JPEG is a manually uploaded "Thumbnail"
+                for (BitstreamSnapshot originalBitstream : originalBundleBitstreams) {
+                    String originalDescription = originalBitstream.getDescription();
+                    String originalFormat = originalBitstream.getMIMEType();
+
+                    if (StringUtils.isEmpty(originalDescription)) {
+                        continue;
+                    }
+
+                    /*
+                    - check if the bitstream is a JPEG based on its MIME Type
+                    - check if the bitstream's name or description is "Thumbnail"
+                    - if we were given a maximum number of pixels, check that it really is the size
+                      of a thumbnail, and not for example a poster that happens to mention one
+                    */
+                    if (originalFormat.toLowerCase().contains("image/jpeg")
+                            && (originalBitstream.getLowerCaseName().contains("thumbnail")
+                                    || originalDescription.toLowerCase().contains("thumbnail"))) {
+                        if (maxThumbnailPixels > 0
+                                && !hasThumbnailDimensions(originalBitstream, maxThumbnailPixels)) {
+                            actions.add(
+                                    ThumbnailAction.skip(
+                                            "skip image in ORIGINAL bundle that is too large to be"
+                                                    + " a thumbnail",
+                                            originalBitstream));
+                            continue;
+                        }
+
+                        actions.add(
+                                ThumbnailAction.removeFromOriginal(
+                                        "remove thumbnail from ORIGINAL bundle",
+                                        originalBitstream));
+                    } else {
+                        actions.add(
+                                ThumbnailAction.skip(
+                                        "skip other bitstream in ORIGINAL bundle",
+                                        originalBitstream));
+                    }
+                }
+            }
+        }
+
+        return actions;
+    }
+
+    /**
+     * Whether an image's longest side is at most <code>maxThumbnailPixels</code>. Images whose
+     * dimensions are unknown are never thumbnails, so nothing is changed when in doubt.
+     */
+    private static boolean hasThumbnailDimensions(
+            BitstreamSnapshot bitstream, int maxThumbnailPixels) {
+        ImageHeader imageHeader = bitstream.getImageHeader();
+        return imageHeader != null && imageHeader.getLongestSide() <= maxThumbnailPixels;
+    }
+}
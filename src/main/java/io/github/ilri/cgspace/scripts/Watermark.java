@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.scripts;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+
+/**
+ * The last modification date up to which a script has processed every item, for incremental runs
+ * with <code>--watermark FILE</code>.
+ *
+ * <p>The file only contains the date as an ISO 8601 instant, for example <code>
+ * 2026-01-31T18:00:00Z</code>, so it is easy to inspect or reset by hand.
+ */
+final class Watermark {
+    private Watermark() {}
+
+    /**
+     * Read a watermark.
+     *
+     * @return the watermark, or <code>null</code> if there is no watermark file yet
+     */
+    static Date read(File file) throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+
+        String watermark = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        try {
+            return Date.from(Instant.parse(watermark.trim()));
+        } catch (DateTimeParseException e) {
+            throw new IOException("Invalid watermark in " + file + ": " + watermark, e);
+        }
+    }
+
+    /** Replace a watermark atomically, so it is never left half-written. */
+    static void write(File file, Date watermark) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        Files.write(
+                temp.toPath(),
+                (watermark.toInstant() + "\n").getBytes(StandardCharsets.UTF_8));
+        Files.move(
+                temp.toPath(),
+                file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.scripts;
+
+import org.dspace.authorize.AuthorizeException;
+import org.dspace.core.Context;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The worker threads of a {@link ScriptRunner} run, which process the items the main thread hands
+ * them with an {@link ItemProcessor}, each in its own {@link Context}.
+ *
+ * <p>The queue between the main thread and the workers is bounded so we never hold more than a few
+ * UUIDs per worker in memory. Each worker commits its items in batches. If an item fails, the rest
+ * of its batch is rolled back with it and the other items are processed again one at a time, so
+ * only the item that failed is lost.
+ *
+ * <p>If a worker stops anyway, for example with an {@link Error}, the run is aborted: the other
+ * workers commit their batches and stop, and the main thread stops handing out items instead of
+ * waiting forever for a free worker.
+ */
+class WorkerPool {
+    // how often a thread waiting for the queue checks whether the run was aborted
+    private static final long WAIT_SECONDS = 1;
+
+    private final ItemProcessor processor;
+    private final int threads;
+    private final RunSummary summary;
+    private final BlockingQueue<QueuedItem> queue;
+    private final ExecutorService executor;
+    private volatile boolean aborted = false;
+
+    WorkerPool(ItemProcessor processor, int threads, RunSummary summary) {
+        this.processor = processor;
+        this.threads = threads;
+        this.summary = summary;
+        this.queue = new ArrayBlockingQueue<>(threads * 100);
+        this.executor = Executors.newFixedThreadPool(threads);
+    }
+
+    /** Start the workers. */
+    void start() {
+        for (int worker = 0; worker < threads; worker++) {
+            final int workerNumber = worker;
+            executor.execute(
+                    () -> {
+                        try {
+                            work(workerNumber);
+                        } catch (RuntimeException | Error e) {
+                            processor.error("worker " + workerNumber + " stopped, aborting", null);
+                            e.printStackTrace(System.err);
+                            aborted = true;
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Hand an item to the next free worker, waiting while all of them are busy.
+     *
+     * @return whether the item was queued, <code>false</code> if the run was aborted
+     */
+    boolean submit(QueuedItem queuedItem) throws InterruptedException {
+        while (!queue.offer(queuedItem, WAIT_SECONDS, TimeUnit.SECONDS)) {
+            if (aborted) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Whether a worker stopped unexpectedly, so that not all items were processed. */
+    boolean isAborted() {
+        return aborted;
+    }
+
+    /** Tell the workers that there are no more items and wait until they are done. */
+    void finish() throws InterruptedException {
+        try {
+            for (int worker = 0; worker < threads; worker++) {
+                if (!submit(QueuedItem.NO_MORE_ITEMS)) {
+                    break;
+                }
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        }
+    }
+
+    /** Process items from the queue in this worker's own context, committing them in batches. */
+    private void work(int worker) {
+        Context context = processor.newContext();
+        Batch batch = processor.newBatch();
+
+        try {
+            QueuedItem queuedItem;
+            while ((queuedItem = take()) != QueuedItem.NO_MORE_ITEMS) {
+                processor.throttle();
+                long start = System.nanoTime();
+                try {
+                    processor.processItem(context, queuedItem, batch, summary, processor.getLog());
+                    processor.itemDone(start);
+                } catch (SQLException | AuthorizeException | IOException | RuntimeException e) {
+                    // the rest of the batch is rolled back together with this item
+                    context = itemFailed(worker, context, queuedItem, e);
+                    context = replay(worker, context, batch);
+                    continue;
+                }
+
+                if (batch.size() >= processor.getBatchSize()) {
+                    context = endBatch(worker, context, batch);
+                }
+            }
+
+            context = endBatch(worker, context, batch);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (context.isValid()) {
+                context.abort();
+            }
+        }
+    }
+
+    /** Take the next item from the queue, waiting while it is empty, or end if the run aborted. */
+    private QueuedItem take() throws InterruptedException {
+        while (!aborted) {
+            QueuedItem queuedItem = queue.poll(WAIT_SECONDS, TimeUnit.SECONDS);
+            if (queuedItem != null) {
+                return queuedItem;
+            }
+        }
+        return QueuedItem.NO_MORE_ITEMS;
+    }
+
+    /**
+     * Process the items of a batch that was rolled back again, committing each one on its own.
+     *
+     * <p>The items were already logged and counted, so they are replayed quietly.
+     *
+     * @return the context to carry on with
+     */
+    private Context replay(int worker, Context context, Batch batch) {
+        // nothing was changed when planning, so there is nothing to replay
+        if (processor.isPlanning()) {
+            return context;
+        }
+
+        List<QueuedItem> queuedItems = new ArrayList<>(batch.getQueuedItems());
+        batch.clear();
+
+        RunSummary ignored = new RunSummary(processor.getName(), 1, null);
+        for (QueuedItem queuedItem : queuedItems) {
+            try {
+                processor.processItem(context, queuedItem, batch, ignored, ActionLog.QUIET);
+                processor.commitBatch(worker, context, batch, summary);
+            } catch (SQLException | AuthorizeException | IOException | RuntimeException e) {
+                batch.clear();
+                context = itemFailed(worker, context, queuedItem, e);
+            }
+        }
+        return context;
+    }
+
+    /**
+     * Report an item that failed and roll back the worker's batch, which is lost unless it is
+     * replayed.
+     *
+     * @return the context to carry on with
+     */
+    private Context itemFailed(int worker, Context context, QueuedItem queuedItem, Exception e) {
+        processor.error("unable to process item " + queuedItem.getItemId() + ", skipping", e);
+        summary.itemFailed(worker);
+        processor.done(queuedItem);
+
+        return rollback(context);
+    }
+
+    /**
+     * Commit a worker's batch, or replay its items one at a time if that fails.
+     *
+     * @return the context to carry on with
+     */
+    private Context endBatch(int worker, Context context, Batch batch) {
+        try {
+            processor.commitBatch(worker, context, batch, summary);
+            return context;
+        } catch (SQLException | RuntimeException e) {
+            processor.error(
+                    "unable to commit " + batch.size() + " item(s), trying them one at a time", e);
+
+            return replay(worker, rollback(context), batch);
+        }
+    }
+
+    /**
+     * Roll back a worker's batch by throwing its context away.
+     *
+     * <p>The entities in the context would still have the changes that were rolled back, so the
+     * worker carries on with a fresh context. Aborting also can't fail like rolling back can, and
+     * we must keep taking items from the queue or the main thread would block forever.
+     */
+    private Context rollback(Context context) {
+        context.abort();
+        return processor.newContext();
+    }
+}
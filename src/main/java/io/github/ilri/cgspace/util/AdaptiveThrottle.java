@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.util;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Slows a bulk run down when the database gets slow, so that it doesn't drive up the latency of
+ * the pages users are waiting for.
+ *
+ * <p>The tool records how long each item takes it, including its share of the commits, and every
+ * {@value #WINDOW_MILLIS} ms the throttle compares the average to the target latency. Above the
+ * target it halves the rate the tool may process items at, starting from the rate it was actually
+ * going at, and below the target it raises the rate again by a twentieth of that starting rate at
+ * a time until it is no longer throttled (additive increase, multiplicative decrease, like TCP).
+ * A throttled tool should also commit smaller batches, see {@link #getBatchSize(int)}, so that its
+ * transactions hold locks for less time.
+ *
+ * <p>The throttle is thread-safe, so the workers of a run share one.
+ */
+public final class AdaptiveThrottle {
+    static final long WINDOW_MILLIS = 250;
+    // never slower than this, or a single slow item could stall a run for minutes
+    private static final double MIN_RATE = 1;
+
+    private final long targetNanos;
+
+    // items per second, or infinite when not throttled
+    private double rate = Double.POSITIVE_INFINITY;
+    // the rate the tool was going at when it was throttled
+    private double unthrottledRate;
+    private long nextPermitNanos;
+    private int backoffs;
+
+    private long windowStartNanos = System.nanoTime();
+    private long windowItems;
+    private long windowBusyNanos;
+    private long latencyNanos;
+
+    /** @param targetLatencyMillis the highest average time per item that is tolerated */
+    public AdaptiveThrottle(long targetLatencyMillis) {
+        this.targetNanos = TimeUnit.MILLISECONDS.toNanos(targetLatencyMillis);
+    }
+
+    /** Wait until the next item may be processed. */
+    public void acquire() throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            if (rate == Double.POSITIVE_INFINITY) {
+                return;
+            }
+            long now = System.nanoTime();
+            long permitNanos = Math.max(now, nextPermitNanos);
+            nextPermitNanos = permitNanos + (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+            waitNanos = permitNanos - now;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Record the time spent on items, not counting the time spent waiting in {@link #acquire()}.
+     *
+     * @param items number of items, or 0 for time spent on items already recorded, like commits
+     * @param busyNanos time spent on them
+     * @return whether the rate changed
+     */
+    public synchronized boolean record(int items, long busyNanos) {
+        windowItems += items;
+        windowBusyNanos += busyNanos;
+
+        long now = System.nanoTime();
+        long windowNanos = now - windowStartNanos;
+        if (windowNanos < TimeUnit.MILLISECONDS.toNanos(WINDOW_MILLIS) || windowItems == 0) {
+            return false;
+        }
+
+        latencyNanos = windowBusyNanos / windowItems;
+        double windowRate = windowItems * (double) TimeUnit.SECONDS.toNanos(1) / windowNanos;
+        windowStartNanos = now;
+        windowItems = 0;
+        windowBusyNanos = 0;
+
+        if (latencyNanos > targetNanos) {
+            if (rate == Double.POSITIVE_INFINITY) {
+                unthrottledRate = Math.max(MIN_RATE, windowRate);
+            }
+            rate = Math.max(MIN_RATE, Math.min(rate, windowRate) / 2);
+            backoffs++;
+            return true;
+        }
+        if (rate != Double.POSITIVE_INFINITY) {
+            rate += Math.max(MIN_RATE, unthrottledRate / 20);
+            if (rate >= unthrottledRate) {
+                rate = Double.POSITIVE_INFINITY;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Scale a batch size down by as much as the rate is throttled.
+     *
+     * @param batchSize the configured batch size
+     * @return the batch size to use for the next batch, at least 1
+     */
+    public synchronized int getBatchSize(int batchSize) {
+        if (rate == Double.POSITIVE_INFINITY) {
+            return batchSize;
+        }
+        return (int) Math.max(1, batchSize * rate / unthrottledRate);
+    }
+
+    public synchronized boolean isThrottled() {
+        return rate != Double.POSITIVE_INFINITY;
+    }
+
+    /** The number of items per second the tool may process, or infinite when not throttled. */
+    public synchronized double getRate() {
+        return rate;
+    }
+
+    /** The average time per item in the last window. */
+    public synchronized long getLatencyMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(latencyNanos);
+    }
+
+    public long getTargetMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(targetNanos);
+    }
+
+    /** The number of times the rate was lowered. */
+    public synchronized int getBackoffs() {
+        return backoffs;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return (rate == Double.POSITIVE_INFINITY
+                        ? "unthrottled"
+                        : String.format(Locale.ROOT, "throttled to %.1f items/s", rate))
+                + " (latency "
+                + getLatencyMillis()
+                + " ms, target "
+                + getTargetMillis()
+                + " ms, backed off "
+                + backoffs
+                + " time(s))";
+    }
+}
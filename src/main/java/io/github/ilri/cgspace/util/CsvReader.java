@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Read a CSV file one record at a time, like the ones written by DSpace's
+ * <code>metadata-export</code>.
+ *
+ * <p>Fields are separated by commas and can be quoted with double quotes, which are doubled inside
+ * a quoted field, so quoted fields can contain commas and line breaks (RFC 4180). Records end with
+ * LF or CRLF, and a byte order mark at the start is skipped.
+ *
+ * <p>Only one record is held in memory at a time, and the caller can pick the columns it needs
+ * with {@link #setColumns(boolean[])} so that no strings are made for the others, which matters
+ * for exports with long abstracts and citations in every row. The file must be UTF-8, which lets
+ * the reader look for quotes, commas, and line breaks in the raw bytes and only decode the fields
+ * it returns, because no other character's encoding contains their bytes.
+ */
+public final class CsvReader implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    // the bytes of the current field
+    private byte[] field = new byte[256];
+    private int fieldLength;
+    // the columns to read, or null for all of them
+    private boolean[] columns;
+    private long records;
+
+    /** @param in a UTF-8 file, which doesn't need to be buffered */
+    public CsvReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Only read the fields of some columns from now on. The fields of the other columns are still
+     * parsed, but returned as <code>null</code>.
+     *
+     * @param columns whether to read each column, or <code>null</code> to read all of them
+     */
+    public void setColumns(boolean[] columns) {
+        this.columns = columns;
+    }
+
+    /**
+     * Read the next record.
+     *
+     * @param fields cleared and filled with the record's fields
+     * @return <code>false</code> at the end of the file
+     */
+    public boolean next(List<String> fields) throws IOException {
+        fields.clear();
+        if (limit == 0 && fill() && startsWithByteOrderMark()) {
+            position = 3;
+        }
+        int c = read();
+        if (c == -1) {
+            return false;
+        }
+        records++;
+
+        while (true) {
+            int column = fields.size();
+            boolean keep = columns == null || (column < columns.length && columns[column]);
+            fieldLength = 0;
+
+            if (c == '"') {
+                while (true) {
+                    // copy or skip everything up to the next quote in the buffer at once, since
+                    // the long fields of an export are the quoted ones
+                    int start = position;
+                    while (position < limit && buffer[position] != '"') {
+                        position++;
+                    }
+                    if (keep) {
+                        append(buffer, start, position - start);
+                    }
+                    if (position == limit || limit < 0) {
+                        if (!fill()) {
+                            throw new IOException(
+                                    "unterminated quoted field in record " + records);
+                        }
+                        continue;
+                    }
+
+                    position++;
+                    c = read();
+                    if (c != '"') {
+                        break;
+                    }
+                    if (keep) {
+                        append((byte) '"');
+                    }
+                }
+            }
+            // an unquoted field, or anything after the closing quote, is taken as it is
+            while (c != ',' && c != '\n' && c != '\r' && c != -1) {
+                if (keep) {
+                    append((byte) c);
+                }
+                c = read();
+            }
+            fields.add(
+                    keep ? new String(field, 0, fieldLength, StandardCharsets.UTF_8) : null);
+
+            if (c == ',') {
+                c = read();
+                continue;
+            }
+            if (c == '\r') {
+                if (read() != '\n' && limit != -1) {
+                    // a lone CR ends the record too
+                    position--;
+                }
+            }
+            return true;
+        }
+    }
+
+    /** The number of records read so far, including the header. */
+    public long getRecords() {
+        return records;
+    }
+
+    private int read() throws IOException {
+        if (position >= limit && !fill()) {
+            return -1;
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    private boolean startsWithByteOrderMark() {
+        return limit >= 3
+                && buffer[0] == (byte) 0xEF
+                && buffer[1] == (byte) 0xBB
+                && buffer[2] == (byte) 0xBF;
+    }
+
+    private void append(byte b) {
+        if (fieldLength == field.length) {
+            field = Arrays.copyOf(field, field.length * 2);
+        }
+        field[fieldLength++] = b;
+    }
+
+    private void append(byte[] bytes, int offset, int length) {
+        if (fieldLength + length > field.length) {
+            field = Arrays.copyOf(field, Math.max(field.length * 2, fieldLength + length));
+        }
+        System.arraycopy(bytes, offset, field, fieldLength, length);
+        fieldLength += length;
+    }
+
+    /** Read more of the file into the buffer, or return <code>false</code> at its end. */
+    private boolean fill() throws IOException {
+        if (limit < 0) {
+            return false;
+        }
+        limit = in.read(buffer, 0, buffer.length);
+        position = 0;
+        if (limit <= 0) {
+            limit = -1;
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.util;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Write a CSV file one record at a time, for example for DSpace's <code>metadata-import</code>.
+ * Fields are only quoted if they contain a comma, a double quote, or a line break, and records end
+ * with LF. See {@link CsvReader}.
+ */
+public final class CsvWriter implements Closeable, Flushable {
+    private final Writer out;
+
+    /** @param out where to write to, which should be buffered */
+    public CsvWriter(Writer out) {
+        this.out = out;
+    }
+
+    public void write(String... fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            writeField(fields[i] != null ? fields[i] : "");
+        }
+        out.write('\n');
+    }
+
+    private void writeField(String field) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < field.length() && !quote; i++) {
+            char c = field.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(field);
+            return;
+        }
+
+        out.write('"');
+        out.write(field.replace("\"", "\"\""));
+        out.write('"');
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
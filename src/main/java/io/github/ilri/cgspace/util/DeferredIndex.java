@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.util;
+
+import org.dspace.content.Item;
+import org.dspace.content.factory.ContentServiceFactory;
+import org.dspace.content.service.ItemService;
+import org.dspace.core.Context;
+import org.dspace.discovery.IndexingService;
+import org.dspace.discovery.SearchServiceException;
+import org.dspace.discovery.indexobject.IndexableItem;
+import org.dspace.services.factory.DSpaceServicesFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.sql.SQLException;
+import java.util.UUID;
+
+/**
+ * Items changed during a run whose search index is only updated at the end of it.
+ *
+ * <p>Every <code>itemService.update()</code> adds a content event to the context, and when the
+ * context is committed DSpace's default event dispatcher has Discovery reindex each of those
+ * items. For a run over the whole repository that is one Solr update per item while the run is
+ * going on. Instead the tools switch their contexts to the <code>noindex</code> dispatcher from
+ * <code>dspace.cfg</code>, which leaves out the Discovery consumer, and remember the UUIDs of the
+ * items they change here. At the end the UUIDs are written to a file, one per line, for <code>
+ * dspace index-discovery -i</code>, or the items are reindexed in one pass with a single Solr
+ * commit.
+ *
+ * <p>The <code>noindex</code> dispatcher only runs the consumers listed in <code>
+ * event.dispatcher.noindex.consumers</code>, which is just <code>eperson</code> by default. Any
+ * other consumer of the default dispatcher, like <code>versioning</code> or a DOI or RDF consumer,
+ * is skipped for the changed items too.
+ *
+ * <p>Items can be added from several threads at once.
+ */
+public final class DeferredIndex {
+    // note: static members belong to the class itself, not any one instance
+    public static ItemService itemService = ContentServiceFactory.getInstance().getItemService();
+
+    /** The event dispatcher that doesn't update the search index. */
+    public static final String NO_INDEX_DISPATCHER = "noindex";
+
+    private final UuidSet items = new UuidSet();
+
+    /**
+     * Stop a context from updating the search index when it is committed.
+     *
+     * @return the context's dispatcher before, to give to {@link #restoreIndexing} for a context
+     *     that is used for more than our own changes
+     */
+    public static String suppressIndexing(Context context) {
+        String dispatcher = getDispatcher(context);
+        context.setDispatcher(NO_INDEX_DISPATCHER);
+        return dispatcher;
+    }
+
+    /** Switch a context back to the dispatcher it used before {@link #suppressIndexing}. */
+    public static void restoreIndexing(Context context, String dispatcher) {
+        context.setDispatcher(dispatcher);
+    }
+
+    /**
+     * The name of a context's dispatcher, or <code>null</code> for the default one. Context has no
+     * getter for it, so we read its field and assume the default if that isn't possible.
+     */
+    private static String getDispatcher(Context context) {
+        try {
+            Field dispName = Context.class.getDeclaredField("dispName");
+            dispName.setAccessible(true);
+            return (String) dispName.get(context);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /** Remember that an item was changed and needs to be reindexed. */
+    public synchronized void add(UUID itemId) {
+        items.add(itemId);
+    }
+
+    public synchronized int size() {
+        return items.size();
+    }
+
+    /** Write the UUIDs of the changed items to a file, one per line (see {@link ItemList}). */
+    public void write(File file) throws IOException {
+        UUID[] itemIds;
+        synchronized (this) {
+            itemIds = items.toSortedArray();
+        }
+        ItemList.write(file, itemIds);
+    }
+
+    /**
+     * Reindex the changed items and commit the search index once.
+     *
+     * <p>The changes must already be committed to the database, otherwise the index would have
+     * changes that may still be rolled back.
+     *
+     * @param context the DSpace context to load the items in
+     * @return the number of items reindexed, which doesn't include items that were deleted since
+     */
+    public int reindex(Context context) throws SQLException, SearchServiceException {
+        UUID[] itemIds;
+        synchronized (this) {
+            itemIds = items.toSortedArray();
+        }
+
+        IndexingService indexingService =
+                DSpaceServicesFactory.getInstance()
+                        .getServiceManager()
+                        .getServiceByName(IndexingService.class.getName(), IndexingService.class);
+
+        int reindexed = 0;
+        for (UUID itemId : itemIds) {
+            Item item = itemService.find(context, itemId);
+            if (item == null) {
+                continue;
+            }
+
+            // the index is only committed once at the end
+            indexingService.indexContent(context, new IndexableItem(item), true, false);
+            context.uncacheEntity(item);
+            reindexed++;
+        }
+        indexingService.commit();
+
+        return reindexed;
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * A file of 64-bit fingerprints keyed by item UUID, used to skip items that haven't changed since
+ * the last run.
+ *
+ * <p>The file holds fixed-size records sorted by UUID, so it is memory-mapped and searched in
+ * place instead of being read into the heap, and looking up an item is a binary search that only
+ * touches a few pages. Fingerprints added during a run are kept in primitive arrays and merged
+ * into a new file by {@link #save()}, which replaces the old one atomically so an interrupted run
+ * never leaves a broken index behind. A fingerprint of 0 means "none".
+ *
+ * <p>The index is not thread-safe.
+ */
+public final class FingerprintIndex {
+    // identifies the file format, bump it when the format changes
+    private static final int MAGIC = 0x43434631; // "CCF1"
+    private static final int HEADER_BYTES = 8;
+    // most and least significant bits of the UUID, then the fingerprint
+    private static final int RECORD_BYTES = 24;
+
+    /** The initial value for {@link #hash(long, String)}. */
+    public static final long HASH_SEED = 0xcbf29ce484222325L;
+
+    private final File file;
+    // the records in the file, or an empty buffer if there is no file yet
+    private ByteBuffer records;
+    private int savedSize;
+
+    // fingerprints added since the index was opened or saved, the last one for a UUID wins
+    private long[] added = new long[3 * 64];
+    private int addedSize;
+
+    private FingerprintIndex(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Open an index, or start a new one if the file doesn't exist yet.
+     *
+     * @param file where the index is kept
+     */
+    public static FingerprintIndex open(File file) throws IOException {
+        FingerprintIndex index = new FingerprintIndex(file);
+        index.map();
+        return index;
+    }
+
+    /**
+     * Hash a string into a fingerprint, for example the values an item's fingerprint depends on
+     * one after the other. The string's length is hashed too, so "ab" and "c" don't hash the same
+     * as "a" and "bc".
+     *
+     * @param hash the hash so far, or {@link #HASH_SEED}
+     * @param value the string to add, <code>null</code> hashes differently from ""
+     * @return the new hash
+     */
+    public static long hash(long hash, String value) {
+        // FNV-1a over the characters, so nothing has to be encoded
+        if (value == null) {
+            return (hash ^ 0xff) * 0x100000001b3L;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= value.length();
+        hash *= 0x100000001b3L;
+        return hash;
+    }
+
+    /**
+     * Get the fingerprint of an item as of the last time the index was saved.
+     *
+     * @return the fingerprint, or 0 if the item is not in the index
+     */
+    public long get(UUID itemId) {
+        long msb = itemId.getMostSignificantBits();
+        long lsb = itemId.getLeastSignificantBits();
+
+        int low = 0;
+        int high = savedSize - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int offset = HEADER_BYTES + middle * RECORD_BYTES;
+            int comparison =
+                    compare(records.getLong(offset), records.getLong(offset + 8), msb, lsb);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return records.getLong(offset + 16);
+            }
+        }
+        return 0;
+    }
+
+    /** Set the fingerprint of an item, which is written to the file by the next {@link #save()}. */
+    public void put(UUID itemId, long fingerprint) {
+        if (addedSize + 3 > added.length) {
+            added = Arrays.copyOf(added, added.length * 2);
+        }
+        added[addedSize++] = itemId.getMostSignificantBits();
+        added[addedSize++] = itemId.getLeastSignificantBits();
+        added[addedSize++] = fingerprint;
+    }
+
+    /** Number of items in the index as of the last time it was saved. */
+    public int size() {
+        return savedSize;
+    }
+
+    /** Number of fingerprints set since the index was opened or saved. */
+    public int getAdded() {
+        return addedSize / 3;
+    }
+
+    /**
+     * Merge the fingerprints set since the last save into the file. The new file is written next
+     * to the old one and then moved over it.
+     */
+    public void save() throws IOException {
+        if (addedSize == 0) {
+            return;
+        }
+
+        // sort the added records by UUID, keeping the order they were added in for each UUID
+        int[] order = new int[addedSize / 3];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i * 3;
+        }
+        sortByUuid(added, order);
+
+        File parent = file.getAbsoluteFile().getParentFile();
+        File temporary = File.createTempFile(file.getName(), ".tmp", parent);
+        int size = 0;
+        try {
+            try (DataOutputStream out =
+                    new DataOutputStream(
+                            new BufferedOutputStream(Files.newOutputStream(temporary.toPath())))) {
+                out.writeInt(MAGIC);
+                out.writeInt(0); // the number of records, which we only know at the end
+
+                int saved = 0;
+                int next = 0;
+                while (saved < savedSize || next < order.length) {
+                    int savedOffset = HEADER_BYTES + saved * RECORD_BYTES;
+                    int comparison;
+                    if (saved == savedSize) {
+                        comparison = 1;
+                    } else if (next == order.length) {
+                        comparison = -1;
+                    } else {
+                        int a = order[next];
+                        comparison =
+                                compare(
+                                        records.getLong(savedOffset),
+                                        records.getLong(savedOffset + 8),
+                                        added[a],
+                                        added[a + 1]);
+                    }
+
+                    if (comparison < 0) {
+                        out.writeLong(records.getLong(savedOffset));
+                        out.writeLong(records.getLong(savedOffset + 8));
+                        out.writeLong(records.getLong(savedOffset + 16));
+                        saved++;
+                    } else {
+                        // skip over all but the last fingerprint added for this UUID
+                        int a = order[next++];
+                        while (next < order.length
+                                && compare(
+                                                added[a],
+                                                added[a + 1],
+                                                added[order[next]],
+                                                added[order[next] + 1])
+                                        == 0) {
+                            a = order[next++];
+                        }
+                        out.writeLong(added[a]);
+                        out.writeLong(added[a + 1]);
+                        out.writeLong(added[a + 2]);
+
+                        // the added fingerprint replaces the saved one
+                        if (comparison == 0) {
+                            saved++;
+                        }
+                    }
+                    size++;
+                }
+            }
+
+            try (FileChannel channel =
+                    FileChannel.open(temporary.toPath(), StandardOpenOption.WRITE)) {
+                ByteBuffer count = ByteBuffer.allocate(4);
+                count.putInt(0, size);
+                channel.write(count, 4);
+            }
+
+            Files.move(
+                    temporary.toPath(),
+                    file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary.toPath());
+        }
+
+        addedSize = 0;
+        map();
+    }
+
+    /** Map the file, which stays valid after the channel is closed. */
+    private void map() throws IOException {
+        if (!file.exists()) {
+            records = ByteBuffer.allocate(HEADER_BYTES);
+            savedSize = 0;
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (mapped.capacity() < HEADER_BYTES || mapped.getInt(0) != MAGIC) {
+                throw new IOException(file + ": not a fingerprint index");
+            }
+            int size = mapped.getInt(4);
+            if (size < 0 || (long) HEADER_BYTES + (long) size * RECORD_BYTES != mapped.capacity()) {
+                throw new IOException(file + ": truncated fingerprint index");
+            }
+            records = mapped;
+            savedSize = size;
+        }
+    }
+
+    /**
+     * Sort the offsets of records by their UUIDs with a bottom-up merge sort, which is stable and
+     * doesn't box the offsets to sort them with a comparator.
+     */
+    static void sortByUuid(long[] records, int[] offsets) {
+        int length = offsets.length;
+        int[] source = offsets;
+        int[] target = new int[length];
+        for (int width = 1; width < length; width *= 2) {
+            // merge each pair of sorted runs of this width from the source into the target
+            for (int low = 0; low < length; low += 2 * width) {
+                int middle = Math.min(low + width, length);
+                int high = Math.min(low + 2 * width, length);
+                int left = low;
+                int right = middle;
+                for (int i = low; i < high; i++) {
+                    if (left < middle
+                            && (right == high
+                                    || compare(
+                                                    records[source[left]],
+                                                    records[source[left] + 1],
+                                                    records[source[right]],
+                                                    records[source[right] + 1])
+                                            <= 0)) {
+                        target[i] = source[left++];
+                    } else {
+                        target[i] = source[right++];
+                    }
+                }
+            }
+            int[] merged = target;
+            target = source;
+            source = merged;
+        }
+        if (source != offsets) {
+            System.arraycopy(source, 0, offsets, 0, length);
+        }
+    }
+
+    /** Compare two UUIDs given as their most and least significant bits, like UUID does. */
+    private static int compare(long msb1, long lsb1, long msb2, long lsb2) {
+        int comparison = Long.compare(msb1, msb2);
+        return comparison != 0 ? comparison : Long.compare(lsb1, lsb2);
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.util;
+
+import org.apache.commons.lang.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A file with one item UUID per line, which is how the tools pass lists of items to each other and
+ * to <code>dspace index-discovery -i</code>.
+ */
+public final class ItemList {
+    private ItemList() {}
+
+    /** Read a list of items. Blank lines and whitespace around UUIDs are ignored. */
+    public static List<UUID> read(File file) throws IOException {
+        List<UUID> itemIds = new ArrayList<>();
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            lineNumber++;
+            if (StringUtils.isBlank(line)) {
+                continue;
+            }
+            try {
+                itemIds.add(UUID.fromString(line.trim()));
+            } catch (IllegalArgumentException e) {
+                throw new IOException(file + ":" + lineNumber + ": not a UUID: " + line, e);
+            }
+        }
+        return itemIds;
+    }
+
+    /** Write a list of items, replacing the file if it exists. */
+    public static void write(File file, UUID[] itemIds) throws IOException {
+        try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            for (UUID itemId : itemIds) {
+                out.write(itemId.toString());
+                out.write('\n');
+            }
+        }
+    }
+}
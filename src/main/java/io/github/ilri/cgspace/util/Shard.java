@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.util;
+
+import java.util.UUID;
+
+/**
+ * One of N disjoint slices of the items of a run, so that a run can be split across several
+ * processes or hosts, each with its own database connections.
+ *
+ * <p>Items are assigned to shards by a hash of their UUID, so every process decides on its own
+ * and in the same way which items are its own, no matter in which order it finds them or whether
+ * items were added in the meantime. Shards are numbered from 1 to N and written as "i/N".
+ */
+public final class Shard {
+    private final int index;
+    private final int count;
+
+    private Shard(int index, int count) {
+        this.index = index;
+        this.count = count;
+    }
+
+    /**
+     * Parse a shard like "2/4".
+     *
+     * @throws IllegalArgumentException if it isn't a shard
+     */
+    public static Shard parse(String shard) {
+        int slash = shard.indexOf('/');
+        try {
+            if (slash != -1) {
+                int index = Integer.parseInt(shard.substring(0, slash).trim());
+                int count = Integer.parseInt(shard.substring(slash + 1).trim());
+                if (count >= 1 && index >= 1 && index <= count) {
+                    return new Shard(index, count);
+                }
+            }
+        } catch (NumberFormatException e) {
+            // not a number, which is reported below
+        }
+        throw new IllegalArgumentException(
+                "Invalid shard " + shard + ", expected i/N with i from 1 to N");
+    }
+
+    /** Whether an item belongs to this shard. */
+    public boolean contains(UUID itemId) {
+        return Long.remainderUnsigned(hash(itemId), count) == index - 1;
+    }
+
+    static long hash(UUID itemId) {
+        // DSpace's UUIDs are random, but mix the bits anyway so that sequential ones (like those
+        // of the load test) are spread evenly too
+        long h = itemId.getMostSignificantBits() ^ itemId.getLeastSignificantBits();
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+
+    /** The number of this shard, from 1 to {@link #getCount()}. */
+    public int getIndex() {
+        return index;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /** A name for the files of this shard, like "shard-2-of-4". */
+    public String getName() {
+        return "shard-" + index + "-of-" + count;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Shard)) {
+            return false;
+        }
+        Shard other = (Shard) o;
+        return index == other.index && count == other.count;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * index + count;
+    }
+
+    @Override
+    public String toString() {
+        return index + "/" + count;
+    }
+}
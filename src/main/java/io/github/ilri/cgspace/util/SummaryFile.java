@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.util;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The summary of a run as a small JSON file, so that the summaries of the shards of a run (see
+ * {@link Shard}) can be merged into one for the whole run, for example:
+ *
+ * <pre>
+ * {"tool":"FixLowQualityThumbnails","handle":"10568/1","shards":["2/4"],
+ *  "started":"2026-01-31T18:00:00Z","elapsed_ms":5000,"items":1000,"peak_heap_bytes":1048576,
+ *  "counts":{"failed":0,"removed from THUMBNAIL":12}}
+ * </pre>
+ *
+ * <p>Besides the number of items, each tool has its own counts, which are added up when merging.
+ * The merged run took from the start of the first shard to the end of the last one.
+ */
+public final class SummaryFile {
+    private final String tool;
+    // empty for all items
+    private final String handle;
+    // empty if the run wasn't split
+    private final List<Shard> shards = new ArrayList<>();
+    private long startedMillis;
+    private long elapsedMillis;
+    private long items;
+    private long peakHeapBytes;
+    private final Map<String, Long> counts = new LinkedHashMap<>();
+
+    /**
+     * @param tool the name of the script or task
+     * @param handle what it ran on, or <code>null</code> for all items
+     * @param shard the shard of the run, or <code>null</code> if it wasn't split
+     * @param startedMillis when the run started
+     * @param elapsedMillis how long it took
+     * @param items number of items it processed
+     */
+    public SummaryFile(
+            String tool,
+            String handle,
+            Shard shard,
+            long startedMillis,
+            long elapsedMillis,
+            long items) {
+        this.tool = tool;
+        this.handle = handle == null ? "" : handle;
+        if (shard != null) {
+            shards.add(shard);
+        }
+        this.startedMillis = startedMillis;
+        this.elapsedMillis = elapsedMillis;
+        this.items = items;
+    }
+
+    /** Add to one of the tool's counts, in the order they should be printed in. */
+    public void count(String name, long value) {
+        counts.merge(name, value, Long::sum);
+    }
+
+    public void setPeakHeapBytes(long peakHeapBytes) {
+        this.peakHeapBytes = peakHeapBytes;
+    }
+
+    public String getTool() {
+        return tool;
+    }
+
+    public List<Shard> getShards() {
+        return shards;
+    }
+
+    public long getItems() {
+        return items;
+    }
+
+    public long getStartedMillis() {
+        return startedMillis;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * Merge the summaries of the shards of a run.
+     *
+     * @throws IllegalArgumentException if they aren't different shards of the same run
+     */
+    public static SummaryFile merge(List<SummaryFile> summaries) {
+        if (summaries.isEmpty()) {
+            throw new IllegalArgumentException("No summaries to merge");
+        }
+        for (SummaryFile summary : summaries) {
+            if (summary.shards.isEmpty()) {
+                throw new IllegalArgumentException(
+                        summary.describe() + " wasn't split into shards");
+            }
+        }
+
+        SummaryFile first = summaries.get(0);
+        SummaryFile merged =
+                new SummaryFile(
+                        first.tool, first.handle, null, first.startedMillis, 0, first.items);
+        long endMillis = first.startedMillis + first.elapsedMillis;
+        merged.shards.addAll(first.shards);
+        merged.peakHeapBytes = first.peakHeapBytes;
+        merged.counts.putAll(first.counts);
+
+        for (SummaryFile summary : summaries.subList(1, summaries.size())) {
+            if (!summary.tool.equals(first.tool) || !summary.handle.equals(first.handle)) {
+                throw new IllegalArgumentException(
+                        "Can't merge the summaries of "
+                                + first.describe()
+                                + " and "
+                                + summary.describe());
+            }
+            for (Shard shard : summary.shards) {
+                if (merged.shards.contains(shard)) {
+                    throw new IllegalArgumentException("Shard " + shard + " is there twice");
+                }
+                if (shard.getCount() != merged.shards.get(0).getCount()) {
+                    throw new IllegalArgumentException(
+                            "Can't merge shards of "
+                                    + merged.shards.get(0).getCount()
+                                    + " and "
+                                    + shard.getCount());
+                }
+                merged.shards.add(shard);
+            }
+
+            merged.startedMillis = Math.min(merged.startedMillis, summary.startedMillis);
+            endMillis = Math.max(endMillis, summary.startedMillis + summary.elapsedMillis);
+            merged.items += summary.items;
+            merged.peakHeapBytes = Math.max(merged.peakHeapBytes, summary.peakHeapBytes);
+            summary.counts.forEach(merged::count);
+        }
+
+        merged.elapsedMillis = endMillis - merged.startedMillis;
+        merged.shards.sort((a, b) -> Integer.compare(a.getIndex(), b.getIndex()));
+        return merged;
+    }
+
+    /** The shards of the run that are not in this summary. */
+    public List<String> getMissingShards() {
+        List<String> missing = new ArrayList<>();
+        if (shards.isEmpty()) {
+            return missing;
+        }
+
+        int count = shards.get(0).getCount();
+        for (int index = 1; index <= count; index++) {
+            Shard shard = Shard.parse(index + "/" + count);
+            if (!shards.contains(shard)) {
+                missing.add(shard.toString());
+            }
+        }
+        return missing;
+    }
+
+    public void print(PrintStream out) {
+        long elapsedMillis = Math.max(1, this.elapsedMillis);
+
+        out.println(
+                describe()
+                        + ": processed "
+                        + items
+                        + " item(s) in "
+                        + elapsedMillis / 1000
+                        + "s ("
+                        + items * 1000 / elapsedMillis
+                        + " items/s)");
+        if (!counts.isEmpty()) {
+            StringBuilder line = new StringBuilder(">");
+            counts.forEach(
+                    (name, value) ->
+                            line.append(line.length() > 1 ? ", " : " ")
+                                    .append(name)
+                                    .append(": ")
+                                    .append(value));
+            out.println(line);
+        }
+        if (peakHeapBytes > 0) {
+            out.println("> Peak heap: " + peakHeapBytes / (1024 * 1024) + " MiB");
+        }
+    }
+
+    private String describe() {
+        StringBuilder description = new StringBuilder(tool);
+        description.append(" on ").append(handle.isEmpty() ? "all items" : handle);
+        if (shards.size() == 1) {
+            description.append(", shard ").append(shards.get(0));
+        } else if (shards.size() > 1) {
+            description
+                    .append(", ")
+                    .append(shards.size())
+                    .append(" of ")
+                    .append(shards.get(0).getCount())
+                    .append(" shards");
+        }
+        return description.toString();
+    }
+
+    /** Write the summary, replacing the file if it exists. */
+    public void write(File file) throws IOException {
+        JsonObject json = new JsonObject();
+        json.addProperty("tool", tool);
+        json.addProperty("handle", handle);
+        JsonArray shardArray = new JsonArray();
+        for (Shard shard : shards) {
+            shardArray.add(shard.toString());
+        }
+        json.add("shards", shardArray);
+        json.addProperty("started", Instant.ofEpochMilli(startedMillis).toString());
+        json.addProperty("elapsed_ms", elapsedMillis);
+        json.addProperty("items", items);
+        json.addProperty("peak_heap_bytes", peakHeapBytes);
+        JsonObject countObject = new JsonObject();
+        counts.forEach(countObject::addProperty);
+        json.add("counts", countObject);
+
+        try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            out.write(new Gson().toJson(json));
+            out.write('\n');
+        }
+    }
+
+    /** Read a summary written by {@link #write(File)}. */
+    public static SummaryFile read(File file) throws IOException {
+        try (Reader in = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            JsonObject json = JsonParser.parseReader(in).getAsJsonObject();
+            SummaryFile summary =
+                    new SummaryFile(
+                            json.get("tool").getAsString(),
+                            json.get("handle").getAsString(),
+                            null,
+                            Instant.parse(json.get("started").getAsString()).toEpochMilli(),
+                            json.get("elapsed_ms").getAsLong(),
+                            json.get("items").getAsLong());
+            for (JsonElement shard : json.getAsJsonArray("shards")) {
+                summary.shards.add(Shard.parse(shard.getAsString()));
+            }
+            summary.peakHeapBytes = json.get("peak_heap_bytes").getAsLong();
+            for (Map.Entry<String, JsonElement> count :
+                    json.getAsJsonObject("counts").entrySet()) {
+                summary.counts.put(count.getKey(), count.getValue().getAsLong());
+            }
+            return summary;
+        } catch (JsonParseException
+                | IllegalStateException
+                | NullPointerException
+                | UnsupportedOperationException
+                | IllegalArgumentException
+                | DateTimeException e) {
+            throw new IOException("Invalid summary " + file, e);
+        }
+    }
+}
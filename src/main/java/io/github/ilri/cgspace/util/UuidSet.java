@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.util;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * A set of UUIDs stored as pairs of longs in a single array.
+ *
+ * <p>A {@link java.util.HashSet} of UUIDs needs a UUID object and a map entry for every element,
+ * which is about 80 bytes. This set uses open addressing with linear probing over a <code>long[]
+ * </code> instead, which comes to between 21 and 43 bytes per UUID depending on how full the array
+ * is, and doesn't create any garbage when adding. UUIDs that DSpace generates are random, so their
+ * bits hash well.
+ *
+ * <p>The set is not thread-safe.
+ */
+public final class UuidSet {
+    private static final int MIN_CAPACITY = 16;
+
+    // two longs per slot, the most and least significant bits of the UUID
+    private long[] slots;
+    // the nil UUID has the same bits as an empty slot, so it is kept track of separately
+    private boolean containsNil;
+    private int size;
+
+    public UuidSet() {
+        this(MIN_CAPACITY);
+    }
+
+    /** Create a set that can hold <code>expectedSize</code> UUIDs without growing. */
+    public UuidSet(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3 / 4 < expectedSize) {
+            capacity *= 2;
+        }
+        slots = new long[capacity * 2];
+    }
+
+    /**
+     * Add a UUID to the set.
+     *
+     * @return whether the UUID was added, <code>false</code> if it was already in the set
+     */
+    public boolean add(UUID uuid) {
+        return add(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+
+    public boolean add(long msb, long lsb) {
+        if (msb == 0 && lsb == 0) {
+            if (containsNil) {
+                return false;
+            }
+            containsNil = true;
+            size++;
+            return true;
+        }
+
+        int slot = find(slots, msb, lsb);
+        if (slots[slot] != 0 || slots[slot + 1] != 0) {
+            return false;
+        }
+
+        slots[slot] = msb;
+        slots[slot + 1] = lsb;
+        size++;
+
+        // keep the load factor below 3/4 so probe sequences stay short
+        if (size > slots.length / 2 * 3 / 4) {
+            grow();
+        }
+        return true;
+    }
+
+    public boolean contains(UUID uuid) {
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        if (msb == 0 && lsb == 0) {
+            return containsNil;
+        }
+
+        int slot = find(slots, msb, lsb);
+        return slots[slot] != 0 || slots[slot + 1] != 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** All UUIDs in the set, sorted like {@link UUID#compareTo(UUID)}. */
+    public UUID[] toSortedArray() {
+        UUID[] uuids = new UUID[size];
+        int i = 0;
+        if (containsNil) {
+            uuids[i++] = new UUID(0, 0);
+        }
+        for (int slot = 0; slot < slots.length; slot += 2) {
+            if (slots[slot] != 0 || slots[slot + 1] != 0) {
+                uuids[i++] = new UUID(slots[slot], slots[slot + 1]);
+            }
+        }
+        Arrays.sort(uuids);
+        return uuids;
+    }
+
+    /** The index of the slot holding a UUID, or of the empty slot where it would go. */
+    private static int find(long[] slots, long msb, long lsb) {
+        int mask = slots.length / 2 - 1;
+        int index = hash(msb, lsb) & mask;
+        while (true) {
+            int slot = index * 2;
+            if ((slots[slot] == msb && slots[slot + 1] == lsb)
+                    || (slots[slot] == 0 && slots[slot + 1] == 0)) {
+                return slot;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    private static int hash(long msb, long lsb) {
+        // spread the bits so that UUIDs which only differ in a few bits don't cluster
+        long h = (msb ^ lsb) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private void grow() {
+        long[] oldSlots = slots;
+        long[] newSlots = new long[oldSlots.length * 2];
+        for (int slot = 0; slot < oldSlots.length; slot += 2) {
+            long msb = oldSlots[slot];
+            long lsb = oldSlots[slot + 1];
+            if (msb != 0 || lsb != 0) {
+                int newSlot = find(newSlots, msb, lsb);
+                newSlots[newSlot] = msb;
+                newSlots[newSlot + 1] = lsb;
+            }
+        }
+        slots = newSlots;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.ctasks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.github.ilri.cgspace.util.CsvReader;
+import io.github.ilri.cgspace.util.CsvWriter;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class CountryCodeCsvTaggerTest {
+    private static final String COUNTRY = CountryCodeCsvTagger.DEFAULT_COUNTRY_FIELD;
+    private static final String ALPHA2 = CountryCodeCsvTagger.DEFAULT_ALPHA2_FIELD;
+
+    @Test
+    public void splitsValuesWithoutAuthorities() {
+        assertEquals(Arrays.asList("Kenya"), split("Kenya"));
+        assertEquals(Arrays.asList("Kenya", "Uganda"), split("Kenya||Uganda"));
+        assertEquals(
+                Arrays.asList("Kenya", "Uganda", "Tanzania"),
+                split("Kenya::a1||Uganda||Tanzania::b2::600"));
+        // the authority of a later value doesn't cut an earlier one short
+        assertEquals(Arrays.asList("Kenya", "Uganda"), split("Kenya||Uganda::a1"));
+    }
+
+    @Test
+    public void skipsEmptyValues() {
+        assertEquals(Collections.emptyList(), split(""));
+        assertEquals(Collections.emptyList(), split("||"));
+        assertEquals(Collections.emptyList(), split("::a1"));
+        assertEquals(Arrays.asList("Kenya", "Uganda"), split("||Kenya||||Uganda||"));
+    }
+
+    @Test
+    public void splitAddsToTheValues() {
+        List<String> values = new ArrayList<>(Arrays.asList("Kenya"));
+        CountryCodeCsvTagger.split("Uganda||Kenya", values);
+        assertEquals(Arrays.asList("Kenya", "Uganda", "Kenya"), values);
+    }
+
+    @Test
+    public void matchesFieldsWithAnyLanguage() {
+        assertTrue(CountryCodeCsvTagger.isField(COUNTRY, COUNTRY));
+        assertTrue(CountryCodeCsvTagger.isField(COUNTRY + "[en_US]", COUNTRY));
+        assertTrue(CountryCodeCsvTagger.isField(COUNTRY + "[]", COUNTRY));
+        assertTrue(CountryCodeCsvTagger.isField(COUNTRY + "[es]", COUNTRY));
+    }
+
+    @Test
+    public void doesNotMatchOtherFields() {
+        assertFalse(CountryCodeCsvTagger.isField("cg.coverage", COUNTRY));
+        assertFalse(CountryCodeCsvTagger.isField(COUNTRY + ".code", COUNTRY));
+        assertFalse(CountryCodeCsvTagger.isField(COUNTRY + "code[en_US]", COUNTRY));
+        assertFalse(CountryCodeCsvTagger.isField("dc." + COUNTRY, COUNTRY));
+        assertFalse(CountryCodeCsvTagger.isField("", COUNTRY));
+    }
+
+    @Test
+    public void writesChangedItemsOfExport() throws IOException {
+        assertEquals(
+                resource("metadata-import.csv"),
+                tag(resource("metadata-export.csv"), false));
+    }
+
+    @Test
+    public void replacesChangedCodesWithForce() throws IOException {
+        assertEquals(
+                resource("metadata-import-force.csv"),
+                tag(resource("metadata-export.csv"), true));
+    }
+
+    @Test
+    public void addsCodeColumnIfExportHasNone() throws IOException {
+        assertEquals(
+                "id," + ALPHA2 + "[en_US]\n" + "1,KE\n",
+                tag("dc.title,id," + COUNTRY + "\n" + "Maize,1,Kenya\r\n", false));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsExportWithoutIds() throws IOException {
+        tag("dc.title," + COUNTRY + "\n" + "Maize,Kenya\n", false);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsExportWithoutCountries() throws IOException {
+        tag("id,dc.title\n" + "1,Maize\n", false);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsEmptyExport() throws IOException {
+        tag("", false);
+    }
+
+    private static List<String> split(String field) {
+        List<String> values = new ArrayList<>();
+        CountryCodeCsvTagger.split(field, values);
+        return values;
+    }
+
+    private static String tag(String export, boolean force) throws IOException {
+        CountryCodeCsvTagger tagger = new CountryCodeCsvTagger(COUNTRY, ALPHA2, force, 100);
+        StringWriter delta = new StringWriter();
+        try (CsvReader reader =
+                        new CsvReader(
+                                new ByteArrayInputStream(
+                                        export.getBytes(StandardCharsets.UTF_8)));
+                CsvWriter writer = new CsvWriter(delta)) {
+            tagger.tag(reader, writer);
+        }
+        return delta.toString();
+    }
+
+    private static String resource(String name) throws IOException {
+        try (InputStream in = CountryCodeCsvTaggerTest.class.getResourceAsStream(name)) {
+            if (in == null) {
+                throw new IOException("no such resource: " + name);
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int length;
+            while ((length = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, length);
+            }
+            return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
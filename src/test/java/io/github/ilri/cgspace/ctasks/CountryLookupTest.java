@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.ctasks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+public class CountryLookupTest {
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void normalizeDropsAccentsPunctuationAndCase() {
+        assertEquals("cote d ivoire", CountryLookup.normalize("Côte d'Ivoire"));
+        assertEquals("cote d ivoire", CountryLookup.normalize("COTE D'IVOIRE."));
+        assertEquals("cote d ivoire", CountryLookup.normalize("  Cote  d’Ivoire "));
+        assertEquals("turkiye", CountryLookup.normalize("Türkiye"));
+    }
+
+    @Test
+    public void normalizeDropsLeadingOrTrailingThe() {
+        assertEquals("gambia", CountryLookup.normalize("The Gambia"));
+        assertEquals("gambia", CountryLookup.normalize("Gambia, The"));
+        assertEquals("gambia", CountryLookup.normalize("the gambia"));
+        // only a whole word at either end
+        assertEquals("thailand", CountryLookup.normalize("Thailand"));
+        assertEquals(
+                "congo the democratic republic of",
+                CountryLookup.normalize("Congo, The Democratic Republic of the"));
+    }
+
+    @Test
+    public void getCodesMatchesVariantsOfNames() {
+        CountryLookup lookup = CountryLookup.getInstance();
+
+        assertEquals("GM", lookup.getAlpha2("The Gambia"));
+        assertEquals("GM", lookup.getAlpha2("Republic of the Gambia"));
+        assertEquals("CI", lookup.getAlpha2("COTE D'IVOIRE"));
+        assertEquals("TR", lookup.getAlpha2("Turkiye"));
+        assertEquals("TH", lookup.getAlpha2("Thailand"));
+        // CGSpace names
+        assertEquals("CD", lookup.getAlpha2("Congo, Democratic Republic of"));
+        assertEquals("ZR", lookup.getAlpha2("Zaire"));
+
+        CountryLookup.CountryCodes afghanistan = lookup.getCodes("Afghanistan");
+        assertEquals("AFG", afghanistan.getAlpha3());
+        assertEquals("004", afghanistan.getNumeric());
+
+        assertNull(lookup.getCodes("Atlantis"));
+        assertNull(lookup.getCodes(""));
+        assertNull(lookup.getCodes(null));
+    }
+
+    @Test
+    public void compiledVocabularyMatchesJsonSources() throws IOException {
+        CountryLookup lookup = CountryLookup.getInstance();
+
+        ISO3166CountriesVocabulary isocodes =
+                CountryVocabularyCompiler.readJson(
+                        CountryVocabularyCompiler.ISOCODES_JSON_PATH,
+                        ISO3166CountriesVocabulary.class);
+        for (CountriesVocabulary.Country country : isocodes.countries) {
+            assertMatches(lookup, country.getName(), country);
+            assertMatches(lookup, country.get_official_name(), country);
+            assertMatches(lookup, country.get_common_name(), country);
+        }
+
+        CGSpaceCountriesVocabulary cgspace =
+                CountryVocabularyCompiler.readJson(
+                        CountryVocabularyCompiler.CGSPACE_COUNTRIES_JSON_PATH,
+                        CGSpaceCountriesVocabulary.class);
+        for (CountriesVocabulary.Country country : cgspace.countries) {
+            assertMatches(lookup, country.getCgspace_name(), country);
+        }
+
+        assertEquals(CountryVocabularyCompiler.readVocabularies().size(), lookup.size());
+    }
+
+    @Test
+    public void compiledVocabularyIsUpToDate() throws IOException {
+        File output = new File(folder.getRoot(), "countries.bin");
+        CountryVocabularyCompiler.main(new String[] {output.getPath()});
+
+        CountryLookup compiled;
+        try (InputStream in = new FileInputStream(output)) {
+            compiled = CountryLookup.read(in);
+        }
+        assertEquals(CountryLookup.getInstance().getVersion(), compiled.getVersion());
+    }
+
+    private static void assertMatches(
+            CountryLookup lookup, String name, CountriesVocabulary.Country expected) {
+        // optional names like official_name are null for many countries
+        if (name == null) {
+            return;
+        }
+
+        // this also catches two different countries whose names normalize to the same key
+        CountryLookup.CountryCodes actual = lookup.getCodes(name);
+        assertNotNull(name, actual);
+        assertEquals(
+                name,
+                Arrays.asList(expected.getAlpha_2(), expected.getAlpha_3(), expected.getNumeric()),
+                Arrays.asList(actual.getAlpha2(), actual.getAlpha3(), actual.getNumeric()));
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.ctasks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class CountryMatcherTest {
+    private final CountryLookup lookup = CountryLookup.getInstance();
+
+    @Test
+    public void cachesMatches() {
+        CountryMatcher matcher = new CountryMatcher(lookup, 10);
+
+        assertSame(lookup.getCodes("Kenya"), matcher.getCodes("Kenya"));
+        assertEquals("KE", matcher.getAlpha2("Kenya"));
+        assertEquals(1, matcher.getCacheHits());
+        assertEquals(1, matcher.getCacheMisses());
+    }
+
+    @Test
+    public void cachesNamesWithoutMatch() {
+        CountryMatcher matcher = new CountryMatcher(lookup, 10);
+
+        // the cached "no match" has empty codes, which must never be returned
+        assertNull(matcher.getCodes("Atlantis"));
+        assertNull(matcher.getCodes("Atlantis"));
+        assertNull(matcher.getAlpha2("Atlantis"));
+        assertNull(matcher.getCodes(""));
+        assertNull(matcher.getAlpha2(""));
+        assertEquals(3, matcher.getCacheHits());
+        assertEquals(2, matcher.getCacheMisses());
+    }
+
+    @Test
+    public void ignoresNull() {
+        CountryMatcher matcher = new CountryMatcher(lookup, 10);
+
+        assertNull(matcher.getCodes(null));
+        assertEquals(0, matcher.getCacheHits() + matcher.getCacheMisses());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        CountryMatcher matcher = new CountryMatcher(lookup, 2);
+
+        matcher.getCodes("Kenya");
+        matcher.getCodes("Uganda");
+        matcher.getCodes("Kenya");
+        // evicts Uganda, which was used longer ago than Kenya
+        matcher.getCodes("Tanzania");
+        assertEquals(3, matcher.getCacheMisses());
+
+        matcher.getCodes("Kenya");
+        assertEquals(2, matcher.getCacheHits());
+        matcher.getCodes("Uganda");
+        assertEquals(4, matcher.getCacheMisses());
+    }
+}
@@ -0,0 +1,302 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.scripts;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+/** Runs candidate queries against the parts of DSpace's schema they use, in H2. */
+public class CandidateQueryTest {
+    private static final int TITLE = 64;
+    private static final int DESCRIPTION = 27;
+
+    private JdbcDataSource dataSource;
+    // keeps the in-memory database alive between connections
+    private Connection connection;
+    private long nextId = 1;
+
+    @Before
+    public void createSchema() throws SQLException {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=PostgreSQL");
+        connection = dataSource.getConnection();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(
+                    "CREATE TABLE metadataschemaregistry"
+                            + " (metadata_schema_id INT PRIMARY KEY, short_id VARCHAR)");
+            statement.execute(
+                    "CREATE TABLE metadatafieldregistry (metadata_field_id INT PRIMARY KEY,"
+                            + " metadata_schema_id INT, element VARCHAR, qualifier VARCHAR)");
+            statement.execute(
+                    "CREATE TABLE item (uuid UUID PRIMARY KEY, in_archive BOOLEAN,"
+                            + " last_modified TIMESTAMP)");
+            statement.execute("CREATE TABLE item2bundle (item_id UUID, bundle_id UUID)");
+            statement.execute("CREATE TABLE bundle2bitstream (bundle_id UUID, bitstream_id UUID)");
+            statement.execute("CREATE TABLE bitstream (uuid UUID PRIMARY KEY, deleted BOOLEAN)");
+            statement.execute(
+                    "CREATE TABLE metadatavalue (dspace_object_id UUID, metadata_field_id INT,"
+                            + " text_value VARCHAR)");
+            statement.execute("CREATE TABLE collection2item (collection_id UUID, item_id UUID)");
+
+            statement.execute(
+                    "INSERT INTO metadataschemaregistry VALUES (1, 'dc'), (2, 'dcterms')");
+            statement.execute(
+                    "INSERT INTO metadatafieldregistry VALUES"
+                            + " ("
+                            + TITLE
+                            + ", 1, 'title', NULL), ("
+                            + DESCRIPTION
+                            + ", 1, 'description', NULL), (3, 1, 'title', 'alternative'),"
+                            + " (4, 2, 'title', NULL)");
+        }
+    }
+
+    @After
+    public void dropDatabase() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    public void jpgJpgQueryFindsGeneratedThumbnails() throws SQLException {
+        UUID generated = item(true);
+        bitstream(generated, "THUMBNAIL", "photo.jpg.jpg", "Generated Thumbnail", false);
+        UUID upperCase = item(true);
+        bitstream(upperCase, "THUMBNAIL", "photo.JPG.jpg", "IM Thumbnail", false);
+
+        UUID wrongDescription = item(true);
+        bitstream(wrongDescription, "THUMBNAIL", "photo.jpg.jpg", "Uploaded thumbnail", false);
+        UUID singleJpg = item(true);
+        bitstream(singleJpg, "THUMBNAIL", "photo.jpg", "Generated Thumbnail", false);
+        UUID original = item(true);
+        bitstream(original, "ORIGINAL", "photo.jpg.jpg", "Generated Thumbnail", false);
+        UUID deleted = item(true);
+        bitstream(deleted, "THUMBNAIL", "photo.jpg.jpg", "Generated Thumbnail", true);
+        UUID notArchived = item(false);
+        bitstream(notArchived, "THUMBNAIL", "photo.jpg.jpg", "Generated Thumbnail", false);
+
+        assertEquals(
+                Arrays.asList(generated, upperCase),
+                find(ThumbnailRules.JPG_JPG_CANDIDATE_QUERY, 10, null, null));
+    }
+
+    @Test
+    public void pagesThroughAllCandidatesInOrder() throws SQLException {
+        List<UUID> expected = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            UUID itemId = item(true);
+            bitstream(itemId, "THUMBNAIL", "photo.jpg.jpg", "Generated Thumbnail", false);
+            expected.add(itemId);
+        }
+
+        assertEquals(expected, find(ThumbnailRules.JPG_JPG_CANDIDATE_QUERY, 10, null, null));
+        // a last page that is full is followed by an empty one
+        assertEquals(expected.subList(0, 20), find(jpgJpgItems(20), 10, null, null));
+        assertEquals(expected.subList(0, 1), find(jpgJpgItems(1), 1, null, null));
+    }
+
+    @Test
+    public void limitsCandidatesByDateAndCollection() throws SQLException {
+        UUID old = item(true);
+        setLastModified(old, new Date(1000));
+        UUID recent = item(true);
+        setLastModified(recent, new Date(3000));
+        UUID collection = new UUID(1, 1);
+        addToCollection(collection, old);
+
+        String allItems = "SELECT uuid FROM item";
+        assertEquals(Arrays.asList(recent), find(allItems, 10, new Date(2000), null));
+        assertEquals(
+                Arrays.asList(old),
+                find(allItems, 10, null, Collections.singletonList(collection)));
+        assertTrue(find(allItems, 10, null, Collections.<UUID>emptyList()).isEmpty());
+    }
+
+    @Test
+    public void restoresPooledConnections() throws SQLException {
+        for (int i = 0; i < 3; i++) {
+            item(true);
+        }
+        // like a connection that a worker wrote with and returned to the pool
+        connection.setAutoCommit(false);
+        PooledConnection pooled = new PooledConnection();
+
+        assertEquals(3, find(pooled, "SELECT uuid FROM item", 2, null, null).size());
+        assertEquals(2, pooled.borrowed);
+        assertFalse(connection.getAutoCommit());
+        assertFalse(pooled.readOnly);
+    }
+
+    private List<UUID> find(
+            String candidateQuery, int pageSize, Date since, List<UUID> collections) {
+        return find(dataSource, candidateQuery, pageSize, since, collections);
+    }
+
+    private static List<UUID> find(
+            DataSource dataSource,
+            String candidateQuery,
+            int pageSize,
+            Date since,
+            List<UUID> collections) {
+        List<UUID> itemIds = new ArrayList<>();
+        CandidateQuery candidates =
+                CandidateQuery.execute(dataSource, pageSize, candidateQuery, since, collections);
+        while (candidates.hasNext()) {
+            itemIds.add(candidates.next().getID());
+        }
+        return itemIds;
+    }
+
+    /** The first items of the ".jpg.jpg" candidates, so that the last page is full. */
+    private static String jpgJpgItems(int limit) {
+        return "SELECT item_id FROM ("
+                + ThumbnailRules.JPG_JPG_CANDIDATE_QUERY
+                + ") ORDER BY item_id LIMIT "
+                + limit;
+    }
+
+    /** A new item, with UUIDs that sort the same whether they are compared signed or not. */
+    private UUID item(boolean inArchive) throws SQLException {
+        UUID itemId = newId();
+        update("INSERT INTO item VALUES (?, ?, ?)", itemId, inArchive, new Timestamp(0));
+        return itemId;
+    }
+
+    private void bitstream(
+            UUID itemId, String bundleName, String name, String description, boolean deleted)
+            throws SQLException {
+        UUID bundleId = newId();
+        UUID bitstreamId = newId();
+        update("INSERT INTO item2bundle VALUES (?, ?)", itemId, bundleId);
+        update("INSERT INTO metadatavalue VALUES (?, ?, ?)", bundleId, TITLE, bundleName);
+        update("INSERT INTO bundle2bitstream VALUES (?, ?)", bundleId, bitstreamId);
+        update("INSERT INTO bitstream VALUES (?, ?)", bitstreamId, deleted);
+        update("INSERT INTO metadatavalue VALUES (?, ?, ?)", bitstreamId, TITLE, name);
+        update("INSERT INTO metadatavalue VALUES (?, ?, ?)", bitstreamId, DESCRIPTION, description);
+        // other fields with the same values must not match
+        update("INSERT INTO metadatavalue VALUES (?, 4, ?)", bundleId, "THUMBNAIL");
+        update("INSERT INTO metadatavalue VALUES (?, 3, ?)", bitstreamId, "photo.jpg.jpg");
+    }
+
+    private void setLastModified(UUID itemId, Date lastModified) throws SQLException {
+        update(
+                "UPDATE item SET last_modified = ? WHERE uuid = ?",
+                new Timestamp(lastModified.getTime()),
+                itemId);
+    }
+
+    private void addToCollection(UUID collectionId, UUID itemId) throws SQLException {
+        update("INSERT INTO collection2item VALUES (?, ?)", collectionId, itemId);
+    }
+
+    private UUID newId() {
+        return new UUID(0, nextId++);
+    }
+
+    /**
+     * A pool of the test's one connection, which is kept open when it is returned, like DSpace's
+     * pool keeps its connections. H2 ignores read-only connections, so this keeps track of it.
+     */
+    private class PooledConnection implements DataSource {
+        private int borrowed;
+        private boolean readOnly;
+
+        @Override
+        public Connection getConnection() {
+            borrowed++;
+            return (Connection)
+                    Proxy.newProxyInstance(
+                            getClass().getClassLoader(),
+                            new Class<?>[] {Connection.class},
+                            (proxy, method, args) -> {
+                                switch (method.getName()) {
+                                    case "close":
+                                        return null;
+                                    case "isReadOnly":
+                                        return readOnly;
+                                    case "setReadOnly":
+                                        readOnly = (Boolean) args[0];
+                                        return null;
+                                    default:
+                                        try {
+                                            return method.invoke(connection, args);
+                                        } catch (InvocationTargetException e) {
+                                            throw e.getCause();
+                                        }
+                                }
+                            });
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) {
+            return getConnection();
+        }
+
+        @Override
+        public PrintWriter getLogWriter() {
+            return null;
+        }
+
+        @Override
+        public void setLogWriter(PrintWriter out) {}
+
+        @Override
+        public void setLoginTimeout(int seconds) {}
+
+        @Override
+        public int getLoginTimeout() {
+            return 0;
+        }
+
+        @Override
+        public Logger getParentLogger() {
+            return Logger.getGlobal();
+        }
+
+        @Override
+        public <T> T unwrap(Class<T> type) throws SQLException {
+            throw new SQLException("not a wrapper");
+        }
+
+        @Override
+        public boolean isWrapperFor(Class<?> type) {
+            return false;
+        }
+    }
+
+    private void update(String sql, Object... parameters) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            statement.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.scripts;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+public class ImageHeaderTest {
+    private static final int SOI = 0xd8;
+    private static final int SOF0 = 0xc0;
+    private static final int SOF2 = 0xc2;
+    private static final int DHT = 0xc4;
+    private static final int APP0 = 0xe0;
+    private static final int APP1 = 0xe1;
+    private static final int SOS = 0xda;
+
+    @Test
+    public void readsBaselineJpeg() throws IOException {
+        byte[] jpeg = encodeJpeg(300, 200, false);
+        assertTrue(hasMarker(jpeg, SOF0));
+
+        assertHeader("300x200 JPEG", jpeg);
+    }
+
+    @Test
+    public void readsProgressiveJpeg() throws IOException {
+        byte[] jpeg = encodeJpeg(120, 640, true);
+        assertTrue(hasMarker(jpeg, SOF2));
+
+        assertHeader("120x640 JPEG", jpeg);
+    }
+
+    @Test
+    public void skipsLargeSegmentsBeforeFrame() throws IOException {
+        // like a photo with EXIF data and an embedded preview, and an ICC profile
+        byte[] jpeg =
+                jpeg(
+                        segment(APP0, new byte[14]),
+                        segment(APP1, new byte[0xffff - 2]),
+                        segment(0xe2, new byte[40_000]),
+                        segment(DHT, new byte[30]),
+                        frame(SOF0, 4000, 3000));
+        CountingInputStream in = new CountingInputStream(jpeg);
+
+        assertEquals("4000x3000 JPEG", ImageHeader.read(in).toString());
+        // the segments are skipped, so only a buffer is read at the start and after each segment
+        // that didn't fit in it
+        assertTrue(in.read + " bytes read", in.read <= 3 * ImageHeader.BUFFER_SIZE);
+    }
+
+    @Test
+    public void skipsSegmentsOfStreamsThatCantSkip() throws IOException {
+        byte[] jpeg = jpeg(segment(APP1, new byte[5000]), frame(SOF2, 64, 48));
+        InputStream in =
+                new ByteArrayInputStream(jpeg) {
+                    @Override
+                    public long skip(long n) {
+                        return 0;
+                    }
+                };
+
+        assertEquals("64x48 JPEG", ImageHeader.read(in).toString());
+    }
+
+    @Test
+    public void skipsFillBytesBeforeMarkers() throws IOException {
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        jpeg.write(0xff);
+        jpeg.write(SOI);
+        jpeg.write(new byte[] {(byte) 0xff, (byte) 0xff, (byte) 0xff});
+        jpeg.write(segment(APP0, new byte[14]));
+        // a standalone marker, which has no length
+        jpeg.write(new byte[] {(byte) 0xff, (byte) 0xd0});
+        jpeg.write(new byte[] {(byte) 0xff, (byte) 0xff});
+        jpeg.write(frame(SOF0, 800, 600));
+
+        assertHeader("800x600 JPEG", jpeg.toByteArray());
+    }
+
+    @Test
+    public void readsPng() throws IOException {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(1024, 10, BufferedImage.TYPE_INT_ARGB), "png", png);
+
+        ImageHeader header = ImageHeader.read(new ByteArrayInputStream(png.toByteArray()));
+        assertEquals("PNG", header.getFormat());
+        assertEquals(1024, header.getWidth());
+        assertEquals(10, header.getHeight());
+        assertEquals(1024, header.getLongestSide());
+    }
+
+    @Test
+    public void rejectsTruncatedImages() throws IOException {
+        byte[] jpeg = jpeg(segment(APP1, new byte[2000]), frame(SOF0, 300, 200));
+        // the frame header ends with the width, and the rest of it isn't needed
+        int frameEnd = jpeg.length - 4;
+        for (int length = 0; length < frameEnd; length++) {
+            assertNull("JPEG of " + length + " bytes", read(Arrays.copyOf(jpeg, length)));
+        }
+        assertHeader("300x200 JPEG", Arrays.copyOf(jpeg, frameEnd));
+
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(16, 16, BufferedImage.TYPE_INT_RGB), "png", png);
+        // signature, then the IHDR chunk's length, type, width, and height
+        for (int length = 0; length < 24; length++) {
+            assertNull(
+                    "PNG of " + length + " bytes",
+                    read(Arrays.copyOf(png.toByteArray(), length)));
+        }
+    }
+
+    @Test
+    public void rejectsOtherFiles() throws IOException {
+        assertNull(read(new byte[0]));
+        assertNull(read("%PDF-1.7\n%âãÏÓ\n".getBytes(StandardCharsets.ISO_8859_1)));
+        assertNull(read("GIF89a\u0001\u0000\u0001\u0000".getBytes(StandardCharsets.US_ASCII)));
+        assertNull(read("not an image at all".getBytes(StandardCharsets.US_ASCII)));
+        assertNull(read(new byte[] {(byte) 0xff, (byte) SOI}));
+    }
+
+    @Test
+    public void rejectsBrokenHeaders() throws IOException {
+        // the image data comes before any frame header
+        assertNull(read(jpeg(segment(APP0, new byte[14]), segment(SOS, new byte[10]))));
+        // a segment that doesn't end at a marker
+        assertNull(
+                read(
+                        jpeg(
+                                segment(APP0, new byte[14]),
+                                new byte[] {0x12, 0x34},
+                                frame(SOF0, 10, 10))));
+        // a length that doesn't even cover itself
+        assertNull(read(jpeg(new byte[] {(byte) 0xff, (byte) APP0, 0, 1}, frame(SOF0, 1, 1))));
+        assertNull(read(jpeg(frame(SOF0, 0, 200))));
+        assertNull(read(jpeg(frame(SOF0, 300, 0))));
+
+        // a PNG whose first chunk isn't IHDR
+        byte[] png = new byte[24];
+        System.arraycopy(
+                new byte[] {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'}, 0, png, 0, 8);
+        System.arraycopy("IDAT".getBytes(StandardCharsets.US_ASCII), 0, png, 12, 4);
+        png[19] = 1;
+        png[23] = 1;
+        assertNull(read(png));
+        System.arraycopy("IHDR".getBytes(StandardCharsets.US_ASCII), 0, png, 12, 4);
+        assertHeader("1x1 PNG", png);
+    }
+
+    private static void assertHeader(String expected, byte[] image) throws IOException {
+        ImageHeader header = read(image);
+        assertEquals(expected, header == null ? null : header.toString());
+    }
+
+    private static ImageHeader read(byte[] image) throws IOException {
+        return ImageHeader.read(new ByteArrayInputStream(image));
+    }
+
+    private static byte[] encodeJpeg(int width, int height, boolean progressive)
+            throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, x * 31 ^ y * 17);
+            }
+        }
+
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        if (progressive) {
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+        }
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(jpeg)) {
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return jpeg.toByteArray();
+    }
+
+    /** Whether a JPEG has a marker, before its image data. */
+    private static boolean hasMarker(byte[] jpeg, int marker) {
+        for (int i = 0; i + 1 < jpeg.length && (jpeg[i + 1] & 0xff) != SOS; i++) {
+            if ((jpeg[i] & 0xff) == 0xff && (jpeg[i + 1] & 0xff) == marker) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** A JPEG's start of image marker followed by the segments. */
+    private static byte[] jpeg(byte[]... segments) throws IOException {
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        jpeg.write(0xff);
+        jpeg.write(SOI);
+        for (byte[] segment : segments) {
+            jpeg.write(segment);
+        }
+        return jpeg.toByteArray();
+    }
+
+    private static byte[] segment(int marker, byte[] data) {
+        int length = data.length + 2;
+        byte[] segment = new byte[data.length + 4];
+        segment[0] = (byte) 0xff;
+        segment[1] = (byte) marker;
+        segment[2] = (byte) (length >> 8);
+        segment[3] = (byte) length;
+        System.arraycopy(data, 0, segment, 4, data.length);
+        return segment;
+    }
+
+    /** A start of frame segment with one component. */
+    private static byte[] frame(int marker, int width, int height) {
+        return segment(
+                marker,
+                new byte[] {
+                    8,
+                    (byte) (height >> 8),
+                    (byte) height,
+                    (byte) (width >> 8),
+                    (byte) width,
+                    1,
+                    1,
+                    0x11,
+                    0
+                });
+    }
+
+    /** Counts the bytes read from it, but not the ones skipped. */
+    private static class CountingInputStream extends ByteArrayInputStream {
+        private long read;
+
+        CountingInputStream(byte[] bytes) {
+            super(bytes);
+        }
+
+        @Override
+        public synchronized int read() {
+            int b = super.read();
+            if (b >= 0) {
+                read++;
+            }
+            return b;
+        }
+
+        @Override
+        public synchronized int read(byte[] bytes, int offset, int length) {
+            int count = super.read(bytes, offset, length);
+            if (count > 0) {
+                read += count;
+            }
+            return count;
+        }
+    }
+}
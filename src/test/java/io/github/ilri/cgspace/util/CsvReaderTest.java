@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class CsvReaderTest {
+    // the size of the reader's buffer
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final byte[] BYTE_ORDER_MARK = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    @Test
+    public void readsQuotedCommasAndLineBreaks() throws IOException {
+        assertEquals(
+                Arrays.asList(
+                        Arrays.asList("id", "dc.title[en_US]", "dcterms.abstract[en_US]"),
+                        Arrays.asList("1", "Maize, beans", "First line\nsecond, line\r\nthird")),
+                read(
+                        "id,dc.title[en_US],dcterms.abstract[en_US]\n"
+                                + "1,\"Maize, beans\",\"First line\nsecond, line\r\nthird\"\n"));
+    }
+
+    @Test
+    public void unescapesDoubledQuotes() throws IOException {
+        assertEquals(
+                Arrays.asList(
+                        Arrays.asList("say \"hello\"", "\"", "", "a\"\"b"),
+                        Arrays.asList("\"quoted\" at both ends")),
+                read(
+                        "\"say \"\"hello\"\"\",\"\"\"\",\"\",\"a\"\"\"\"b\"\n"
+                                + "\"\"\"quoted\"\" at both ends\"\n"));
+    }
+
+    @Test
+    public void readsEmptyFields() throws IOException {
+        assertEquals(
+                Arrays.asList(
+                        Arrays.asList("", "", ""), Arrays.asList(""), Arrays.asList("a", "")),
+                read(",,\n\na,\n"));
+    }
+
+    @Test
+    public void endsRecordsWithLfCrlfOrCr() throws IOException {
+        List<List<String>> expected =
+                Arrays.asList(
+                        Arrays.asList("a", "1"),
+                        Arrays.asList("b", "2"),
+                        Arrays.asList("c", "3"),
+                        Arrays.asList("d", "4"));
+
+        assertEquals(expected, read("a,1\nb,2\nc,3\nd,4\n"));
+        assertEquals(expected, read("a,1\r\nb,2\r\nc,3\r\nd,4\r\n"));
+        assertEquals(expected, read("a,1\rb,2\rc,3\rd,4\r"));
+        assertEquals(expected, read("a,1\nb,2\r\nc,3\rd,4"));
+        // a quoted field can end the record too
+        assertEquals(
+                Arrays.asList(Arrays.asList("a", "1"), Arrays.asList("b", "2")),
+                read("a,\"1\"\rb,\"2\""));
+    }
+
+    @Test
+    public void skipsByteOrderMark() throws IOException {
+        byte[] csv = bytes("id,title\n1,\uFEFFtitle\n");
+        ByteArrayOutputStream withMark = new ByteArrayOutputStream();
+        withMark.write(BYTE_ORDER_MARK);
+        withMark.write(csv);
+
+        List<List<String>> expected =
+                Arrays.asList(Arrays.asList("id", "title"), Arrays.asList("1", "\uFEFFtitle"));
+        assertEquals(expected, read(withMark.toByteArray()));
+        assertEquals(expected, read(csv));
+        // a file with just the mark has no records
+        assertEquals(Arrays.asList(), read(BYTE_ORDER_MARK));
+    }
+
+    @Test
+    public void readsFieldsAcrossTheEndOfTheBuffer() throws IOException {
+        for (String lineBreak : Arrays.asList("\r\n", "\r", "\n")) {
+            String record = "\"a\"\"b,\nc\",d" + lineBreak;
+            // move the record over the end of the buffer one byte at a time, so that every part
+            // of it is split from the next
+            int start = BUFFER_SIZE - record.length() - 2;
+            for (int padding = start; padding <= BUFFER_SIZE; padding++) {
+                String first = repeat('x', padding);
+                List<List<String>> expected =
+                        Arrays.asList(
+                                Arrays.asList(first, "a\"b,\nc", "d"), Arrays.asList("é", "e"));
+
+                assertEquals(
+                        "padding " + padding,
+                        expected,
+                        read(first + "," + record + "é,e" + lineBreak));
+            }
+        }
+    }
+
+    @Test
+    public void readsFieldsLongerThanTheBuffer() throws IOException {
+        String quoted = repeat('q', 3 * BUFFER_SIZE) + ",\n\"" + repeat('r', BUFFER_SIZE);
+        String unquoted = repeat('u', 2 * BUFFER_SIZE + 1);
+        String csv =
+                "\"" + quoted.replace("\"", "\"\"") + "\"," + unquoted + "\r\n" + "last\r\n";
+
+        assertEquals(
+                Arrays.asList(Arrays.asList(quoted, unquoted), Arrays.asList("last")),
+                read(csv));
+    }
+
+    @Test
+    public void decodesUtf8() throws IOException {
+        assertEquals(
+                Arrays.asList(Arrays.asList("Côte d'Ivoire", "Türkiye", "中国", "🌽")),
+                read("Côte d'Ivoire,\"Türkiye\",中国,🌽\n"));
+    }
+
+    @Test
+    public void onlyReadsSelectedColumns() throws IOException {
+        try (CsvReader reader = new CsvReader(new ByteArrayInputStream(bytes("a,b,c,d\n")))) {
+            reader.setColumns(new boolean[] {false, true, true});
+            List<String> fields = new ArrayList<>();
+
+            assertTrue(reader.next(fields));
+            // columns after the selected ones aren't read either
+            assertEquals(Arrays.asList(null, "b", "c", null), fields);
+            assertFalse(reader.next(fields));
+        }
+    }
+
+    @Test
+    public void countsRecords() throws IOException {
+        try (CsvReader reader = new CsvReader(new ByteArrayInputStream(bytes("a\n\"b\nc\"\nd")))) {
+            List<String> fields = new ArrayList<>();
+            while (reader.next(fields)) {
+                // read to the end
+            }
+            assertEquals(3, reader.getRecords());
+            assertTrue(fields.isEmpty());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsUnterminatedQuotedField() throws IOException {
+        read("id,title\n1,\"no end\n");
+    }
+
+    private static List<List<String>> read(String csv) throws IOException {
+        return read(bytes(csv));
+    }
+
+    private static List<List<String>> read(byte[] csv) throws IOException {
+        List<List<String>> records = new ArrayList<>();
+        try (CsvReader reader = new CsvReader(new ByteArrayInputStream(csv))) {
+            List<String> fields = new ArrayList<>();
+            while (reader.next(fields)) {
+                records.add(new ArrayList<>(fields));
+            }
+        }
+        return records;
+    }
+
+    private static byte[] bytes(String csv) {
+        return csv.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+public class FingerprintIndexTest {
+    private static final UUID A = new UUID(-2, 5);
+    private static final UUID B = new UUID(-1, 0);
+    private static final UUID C = new UUID(0, -7);
+    private static final UUID D = new UUID(3, 1);
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void savesAndReopens() throws IOException {
+        File file = new File(folder.getRoot(), "fingerprints");
+        FingerprintIndex index = FingerprintIndex.open(file);
+        assertEquals(0, index.size());
+        assertEquals(0, index.get(A));
+
+        index.put(B, 2);
+        index.put(A, 1);
+        // only saved fingerprints are looked up
+        assertEquals(0, index.get(A));
+        assertEquals(2, index.getAdded());
+        index.save();
+        assertEquals(0, index.getAdded());
+
+        FingerprintIndex reopened = FingerprintIndex.open(file);
+        assertEquals(2, reopened.size());
+        assertEquals(1, reopened.get(A));
+        assertEquals(2, reopened.get(B));
+        assertEquals(0, reopened.get(C));
+    }
+
+    @Test
+    public void saveMergesAndReplacesSavedFingerprints() throws IOException {
+        FingerprintIndex index = FingerprintIndex.open(new File(folder.getRoot(), "fingerprints"));
+        index.put(A, 1);
+        index.put(C, 3);
+        index.save();
+
+        index.put(D, 4);
+        index.put(C, 30);
+        index.put(B, 2);
+        index.save();
+
+        assertEquals(4, index.size());
+        assertEquals(1, index.get(A));
+        assertEquals(2, index.get(B));
+        assertEquals(30, index.get(C));
+        assertEquals(4, index.get(D));
+    }
+
+    @Test
+    public void saveKeepsTheLastFingerprintAddedForAnItem() throws IOException {
+        FingerprintIndex index = FingerprintIndex.open(new File(folder.getRoot(), "fingerprints"));
+        index.put(A, 1);
+        index.put(B, 2);
+        index.put(A, 10);
+        index.put(A, 100);
+        index.save();
+
+        assertEquals(2, index.size());
+        assertEquals(100, index.get(A));
+        assertEquals(2, index.get(B));
+    }
+
+    @Test
+    public void saveMergesManyFingerprints() throws IOException {
+        File file = new File(folder.getRoot(), "fingerprints");
+        Map<UUID, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+        UUID[] itemIds = new UUID[2000];
+        for (int i = 0; i < itemIds.length; i++) {
+            itemIds[i] = new UUID(random.nextLong(), random.nextLong());
+        }
+
+        // several runs, each setting some fingerprints more than once
+        for (int run = 0; run < 3; run++) {
+            FingerprintIndex index = FingerprintIndex.open(file);
+            for (int i = 0; i < 5000; i++) {
+                UUID itemId = itemIds[random.nextInt(itemIds.length)];
+                long fingerprint = random.nextLong();
+                index.put(itemId, fingerprint);
+                expected.put(itemId, fingerprint);
+            }
+            index.save();
+        }
+
+        FingerprintIndex index = FingerprintIndex.open(file);
+        assertEquals(expected.size(), index.size());
+        for (Map.Entry<UUID, Long> entry : expected.entrySet()) {
+            assertEquals((long) entry.getValue(), index.get(entry.getKey()));
+        }
+    }
+
+    @Test
+    public void sortByUuidIsStable() {
+        long[] records = {
+            D.getMostSignificantBits(), D.getLeastSignificantBits(), 0,
+            A.getMostSignificantBits(), A.getLeastSignificantBits(), 1,
+            C.getMostSignificantBits(), C.getLeastSignificantBits(), 2,
+            A.getMostSignificantBits(), A.getLeastSignificantBits(), 3,
+            B.getMostSignificantBits(), B.getLeastSignificantBits(), 4
+        };
+        int[] offsets = {0, 3, 6, 9, 12};
+
+        FingerprintIndex.sortByUuid(records, offsets);
+
+        assertArrayEquals(new int[] {3, 9, 12, 6, 0}, offsets);
+    }
+
+    @Test(expected = IOException.class)
+    public void openRejectsOtherFiles() throws IOException {
+        File file = folder.newFile("fingerprints");
+        Files.write(file.toPath(), "not an index".getBytes("UTF-8"));
+        FingerprintIndex.open(file);
+    }
+
+    @Test
+    public void hashIncludesTheLengthOfEachValue() {
+        long seed = FingerprintIndex.HASH_SEED;
+        long ab = FingerprintIndex.hash(FingerprintIndex.hash(seed, "ab"), "c");
+        long bc = FingerprintIndex.hash(FingerprintIndex.hash(seed, "a"), "bc");
+        assertNotEquals(ab, bc);
+        assertNotEquals(FingerprintIndex.hash(seed, null), FingerprintIndex.hash(seed, ""));
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+public class ShardTest {
+    @Test
+    public void parsesShards() {
+        Shard shard = Shard.parse("2/4");
+        assertEquals(2, shard.getIndex());
+        assertEquals(4, shard.getCount());
+        assertEquals("2/4", shard.toString());
+        assertEquals("shard-2-of-4", shard.getName());
+
+        assertEquals(shard, Shard.parse(" 2 / 4 "));
+        assertEquals(shard.hashCode(), Shard.parse("2/4").hashCode());
+        assertNotEquals(shard, Shard.parse("2/5"));
+        assertNotEquals(shard, Shard.parse("3/4"));
+        assertEquals("1/1", Shard.parse("1/1").toString());
+        assertEquals("4/4", Shard.parse("4/4").toString());
+    }
+
+    @Test
+    public void rejectsInvalidShards() {
+        for (String shard :
+                new String[] {
+                    "", "/", "2", "2/", "/4", "0/4", "5/4", "-1/4", "1/0", "1/-1", "a/4", "2/b",
+                    "2/4/8", "2.0/4"
+                }) {
+            try {
+                Shard.parse(shard);
+                fail("parsed " + shard);
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage().contains("i/N"));
+            }
+        }
+    }
+
+    @Test
+    public void shardsAreDisjointAndCoverAllItems() {
+        List<UUID> itemIds = new ArrayList<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            itemIds.add(new UUID(random.nextLong(), random.nextLong()));
+            // sequential UUIDs like the load test's
+            itemIds.add(new UUID(3, i));
+        }
+
+        for (int count = 1; count <= 8; count++) {
+            List<Shard> shards = new ArrayList<>();
+            for (int index = 1; index <= count; index++) {
+                shards.add(Shard.parse(index + "/" + count));
+            }
+
+            int[] sizes = new int[count];
+            for (UUID itemId : itemIds) {
+                int owners = 0;
+                for (Shard shard : shards) {
+                    if (shard.contains(itemId)) {
+                        owners++;
+                        sizes[shard.getIndex() - 1]++;
+                    }
+                }
+                assertEquals(itemId + " in " + count + " shards", 1, owners);
+            }
+
+            // and about the same size
+            int expected = itemIds.size() / count;
+            for (int size : sizes) {
+                assertTrue(
+                        size + " items in a shard of " + count,
+                        Math.abs(size - expected) < expected / 10);
+            }
+        }
+    }
+
+    @Test
+    public void assignsItemsLikeEarlierReleases() {
+        // processes of a run must agree on the shards of the items even if their versions differ
+        assertShard(4, "0b0c2c6e-1d1a-4a6e-9a4e-3d2c1b0a9f8e");
+        assertShard(3, "00000000-0000-0003-0000-000000000000");
+        assertShard(4, "00000000-0000-0003-0000-000000000001");
+        assertShard(1, "00000000-0000-0003-0000-000000000002");
+    }
+
+    private static void assertShard(int index, String itemId) {
+        assertTrue(Shard.parse(index + "/4").contains(UUID.fromString(itemId)));
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2026 Alan Orth
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package io.github.ilri.cgspace.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class SummaryFileTest {
+    private static final String TOOL = "FixLowQualityThumbnails";
+    private static final String HANDLE = "10568/1";
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writesAndReads() throws IOException {
+        SummaryFile summary = shard("2/4", 1_000, 5_000, 100);
+        summary.count("failed", 1);
+        summary.count("removed from THUMBNAIL", 12);
+        summary.count("failed", 2);
+        summary.setPeakHeapBytes(3 * 1024 * 1024);
+        File file = folder.newFile("summary.json");
+        summary.write(file);
+
+        SummaryFile read = SummaryFile.read(file);
+        assertEquals(TOOL, read.getTool());
+        assertEquals(Arrays.asList(Shard.parse("2/4")), read.getShards());
+        assertEquals(1_000, read.getStartedMillis());
+        assertEquals(5_000, read.getElapsedMillis());
+        assertEquals(100, read.getItems());
+        assertEquals(print(summary), print(read));
+        assertEquals(
+                TOOL
+                        + " on 10568/1, shard 2/4: processed 100 item(s) in 5s (20 items/s)\n"
+                        + "> failed: 3, removed from THUMBNAIL: 12\n"
+                        + "> Peak heap: 3 MiB\n",
+                print(read));
+    }
+
+    @Test
+    public void readsSummariesOfAllItems() throws IOException {
+        File file = folder.newFile("summary.json");
+        new SummaryFile(TOOL, null, null, 0, 0, 0).write(file);
+
+        SummaryFile read = SummaryFile.read(file);
+        assertTrue(read.getShards().isEmpty());
+        assertTrue(read.getMissingShards().isEmpty());
+        assertEquals(TOOL + " on all items: processed 0 item(s) in 0s (0 items/s)\n", print(read));
+    }
+
+    @Test
+    public void rejectsInvalidFiles() throws IOException {
+        for (String json :
+                new String[] {
+                    "",
+                    "[]",
+                    "{\"tool\":\"" + TOOL + "\"}",
+                    "{\"tool\":\"" + TOOL + "\",\"handle\":\"\",\"shards\":[\"5/4\"],"
+                            + "\"started\":\"1970-01-01T00:00:00Z\",\"elapsed_ms\":0,"
+                            + "\"items\":0,\"peak_heap_bytes\":0,\"counts\":{}}",
+                    "{\"tool\":\"" + TOOL + "\",\"handle\":\"\",\"shards\":[],"
+                            + "\"started\":\"yesterday\",\"elapsed_ms\":0,"
+                            + "\"items\":0,\"peak_heap_bytes\":0,\"counts\":{}}"
+                }) {
+            File file = folder.newFile();
+            Files.write(file.toPath(), json.getBytes("UTF-8"));
+            try {
+                SummaryFile.read(file);
+                fail("read " + json);
+            } catch (IOException e) {
+                assertTrue(e.getMessage().startsWith("Invalid summary"));
+            }
+        }
+    }
+
+    @Test
+    public void mergesShards() {
+        SummaryFile first = shard("3/3", 1_000, 4_000, 30);
+        first.count("failed", 1);
+        first.count("swapped", 5);
+        first.setPeakHeapBytes(1024 * 1024);
+        SummaryFile second = shard("1/3", 2_000, 1_000, 10);
+        second.count("removed from ORIGINAL", 2);
+        second.count("failed", 1);
+        second.setPeakHeapBytes(3 * 1024 * 1024);
+        SummaryFile third = shard("2/3", 4_000, 500, 20);
+        third.setPeakHeapBytes(2 * 1024 * 1024);
+
+        SummaryFile merged = SummaryFile.merge(Arrays.asList(first, second, third));
+
+        assertEquals(TOOL, merged.getTool());
+        assertEquals(
+                Arrays.asList(Shard.parse("1/3"), Shard.parse("2/3"), Shard.parse("3/3")),
+                merged.getShards());
+        assertEquals(60, merged.getItems());
+        assertTrue(merged.getMissingShards().isEmpty());
+        assertEquals(
+                TOOL
+                        + " on 10568/1, 3 of 3 shards: processed 60 item(s) in 4s (15 items/s)\n"
+                        + "> failed: 2, swapped: 5, removed from ORIGINAL: 2\n"
+                        + "> Peak heap: 3 MiB\n",
+                print(merged));
+    }
+
+    @Test
+    public void mergedRunTakesFromFirstStartToLastEnd() {
+        // the shard that started first isn't the one that ended last
+        SummaryFile merged =
+                SummaryFile.merge(
+                        Arrays.asList(
+                                shard("1/3", 5_000, 1_000, 1),
+                                shard("2/3", 2_000, 10_000, 1),
+                                shard("3/3", 3_000, 500, 1)));
+
+        assertEquals(2_000, merged.getStartedMillis());
+        assertEquals(10_000, merged.getElapsedMillis());
+
+        merged =
+                SummaryFile.merge(
+                        Arrays.asList(shard("2/2", 7_000, 3_000, 1), shard("1/2", 1_000, 1, 1)));
+        assertEquals(1_000, merged.getStartedMillis());
+        assertEquals(9_000, merged.getElapsedMillis());
+    }
+
+    @Test
+    public void mergesMergedSummaries() {
+        SummaryFile someShards =
+                SummaryFile.merge(
+                        Arrays.asList(shard("1/4", 0, 1_000, 1), shard("3/4", 0, 1_000, 1)));
+        SummaryFile merged =
+                SummaryFile.merge(Arrays.asList(shard("4/4", 0, 2_000, 1), someShards));
+
+        assertEquals(3, merged.getItems());
+        assertEquals(Arrays.asList("2/4"), merged.getMissingShards());
+        assertEquals(2_000, merged.getElapsedMillis());
+    }
+
+    @Test
+    public void reportsMissingShards() {
+        assertEquals(
+                Arrays.asList("1/5", "3/5", "4/5", "5/5"),
+                shard("2/5", 0, 0, 0).getMissingShards());
+        assertEquals(
+                Arrays.asList("2/5", "4/5"),
+                SummaryFile.merge(
+                                Arrays.asList(
+                                        shard("5/5", 0, 0, 0),
+                                        shard("1/5", 0, 0, 0),
+                                        shard("3/5", 0, 0, 0)))
+                        .getMissingShards());
+        assertTrue(shard("1/1", 0, 0, 0).getMissingShards().isEmpty());
+    }
+
+    @Test
+    public void rejectsDuplicateShards() {
+        assertNotMerged(
+                "Shard 2/4 is there twice",
+                Arrays.asList(shard("2/4", 0, 0, 1), shard("1/4", 0, 0, 1), shard("2/4", 0, 0, 1)));
+    }
+
+    @Test
+    public void rejectsShardsOfDifferentCounts() {
+        assertNotMerged(
+                "Can't merge shards of 4 and 3",
+                Arrays.asList(shard("1/4", 0, 0, 1), shard("2/3", 0, 0, 1)));
+    }
+
+    @Test
+    public void rejectsSummariesOfOtherRuns() {
+        assertNotMerged(
+                "Can't merge the summaries of "
+                        + TOOL
+                        + " on 10568/1, shard 1/2 and FixJpgJpgThumbnails on 10568/1, shard 2/2",
+                Arrays.asList(
+                        shard("1/2", 0, 0, 1),
+                        new SummaryFile(
+                                "FixJpgJpgThumbnails", HANDLE, Shard.parse("2/2"), 0, 0, 1)));
+        assertNotMerged(
+                "Can't merge the summaries of "
+                        + TOOL
+                        + " on 10568/1, shard 1/2 and "
+                        + TOOL
+                        + " on all items, shard 2/2",
+                Arrays.asList(
+                        shard("1/2", 0, 0, 1),
+                        new SummaryFile(TOOL, null, Shard.parse("2/2"), 0, 0, 1)));
+    }
+
+    @Test
+    public void rejectsSummariesThatWerentSplit() {
+        assertNotMerged(
+                TOOL + " on 10568/1 wasn't split into shards",
+                Arrays.asList(shard("1/2", 0, 0, 1), new SummaryFile(TOOL, HANDLE, null, 0, 0, 1)));
+        assertNotMerged("No summaries to merge", Collections.<SummaryFile>emptyList());
+    }
+
+    private static SummaryFile shard(
+            String shard, long startedMillis, long elapsedMillis, long items) {
+        return new SummaryFile(
+                TOOL, HANDLE, Shard.parse(shard), startedMillis, elapsedMillis, items);
+    }
+
+    private static void assertNotMerged(String message, List<SummaryFile> summaries) {
+        try {
+            SummaryFile.merge(summaries);
+            fail("merged " + summaries.size() + " summaries");
+        } catch (IllegalArgumentException e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+
+    private static String print(SummaryFile summary) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (PrintStream out = new PrintStream(bytes, true)) {
+            summary.print(out);
+        }
+        return bytes.toString().replace(System.lineSeparator(), "\n");
+    }
+}